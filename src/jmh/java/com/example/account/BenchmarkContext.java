@@ -0,0 +1,33 @@
+package com.example.account;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * 벤치마크용 스프링 컨텍스트
+ * 웹 서버 없이 H2 와 내장 Redis(LocalRedisConfig) 만 띄운다.
+ */
+public final class BenchmarkContext {
+    private BenchmarkContext() {
+    }
+
+    /**
+     * properties 는 "key=value" 형식
+     * .properties() 는 기본값이라 application.yml 에 밀리므로 명령행 인자로 넘긴다.
+     */
+    public static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(AccountApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(Stream.concat(
+                                Stream.of(
+                                        "spring.jpa.properties.hibernate.show_sql=false",
+                                        "logging.level.root=WARN"),
+                                Arrays.stream(properties))
+                        .map(property -> "--" + property)
+                        .toArray(String[]::new));
+    }
+}
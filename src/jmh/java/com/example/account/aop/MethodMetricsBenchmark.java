@@ -0,0 +1,81 @@
+package com.example.account.aop;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 메서드 Timer 비용 (gc.alloc.rate.norm 확인 : ./gradlew jmh -PjmhIncludes=MethodMetrics -PjmhProfilers=gc)
+ *
+ * proxyOnly      : 이미 proxy 인 서비스 (@Transactional 등), 기준값
+ * preRegistered  : MethodMetricsInterceptor (미리 등록한 Timer)
+ * tagsPerCall    : 호출할 때마다 Timer.builder().tag().register() 로 찾는 방식
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MethodMetricsBenchmark {
+    private MeterRegistry meterRegistry;
+    private Target proxyOnly;
+    private Target preRegistered;
+    private Target tagsPerCall;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+
+        proxyOnly = proxy(invocation -> invocation.proceed());
+
+        MethodMetricsInterceptor interceptor = new MethodMetricsInterceptor(
+                () -> meterRegistry, "account.service", "service", Target.class);
+        interceptor.afterSingletonsInstantiated();
+        preRegistered = proxy(interceptor);
+
+        tagsPerCall = proxy(invocation -> {
+            long start = System.nanoTime();
+            Object result = invocation.proceed();
+            Timer.builder("account.service.naive")
+                    .tag("service", invocation.getThis().getClass().getSimpleName())
+                    .tag("method", invocation.getMethod().getName())
+                    .tag("outcome", "success")
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        });
+    }
+
+    private static Target proxy(MethodInterceptor interceptor) {
+        ProxyFactory proxyFactory = new ProxyFactory(new Target());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return (Target) proxyFactory.getProxy();
+    }
+
+    @Benchmark
+    public long proxyOnly() {
+        return proxyOnly.next();
+    }
+
+    @Benchmark
+    public long preRegistered() {
+        return preRegistered.next();
+    }
+
+    @Benchmark
+    public long tagsPerCall() {
+        return tagsPerCall.next();
+    }
+
+    public static class Target {
+        private long value;
+
+        public long next() {
+            return ++value;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.account.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 기존 UUID 기반 계좌번호 생성과 AccountNumberGenerator 비교
+ * 구간 예약은 DB 대신 메모리 카운터를 쓴다. (blockSize 1000 마다 한 번)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccountNumberGeneratorBenchmark {
+    private AccountNumberGenerator accountNumberGenerator;
+
+    @Setup
+    public void setUp() {
+        AtomicLong blocks = new AtomicLong();
+        accountNumberGenerator = new AccountNumberGenerator(blocks::incrementAndGet, 1000);
+    }
+
+    @Benchmark
+    public String legacyRandomAccountNumber() {
+        StringBuilder sb = new StringBuilder();
+        UUID.randomUUID().toString()
+                .replace("-", "")
+                .chars()
+                .forEach(c -> sb.append(Integer.parseInt(c + "")));
+
+        return sb.substring(0, 10);
+    }
+
+    @Benchmark
+    public String accountNumberGenerator() {
+        return accountNumberGenerator.next();
+    }
+}
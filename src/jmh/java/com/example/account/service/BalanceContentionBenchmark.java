@@ -0,0 +1,84 @@
+package com.example.account.service;
+
+import com.example.account.BenchmarkContext;
+import com.example.account.exception.AccountException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 계좌에 동시에 들어오는 차감 : Redis lock vs @Version 낙관적 lock
+ * accounts 가 작을수록 경합이 심하다. 실패(lock 획득 실패, 재시도 소진)는 failure 로 따로 센다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class BalanceContentionBenchmark {
+    @Param({"lock", "optimistic"})
+    private String mode;
+
+    @Param({"1", "16"})
+    private int accounts;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private LockService lockService;
+    private OptimisticRetryExecutor optimisticRetryExecutor;
+    private String[] accountNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("account.balance-mode=" + mode);
+        transactionService = context.getBean(TransactionService.class);
+        lockService = context.getBean(LockService.class);
+        optimisticRetryExecutor = context.getBean(OptimisticRetryExecutor.class);
+
+        AccountService accountService = context.getBean(AccountService.class);
+        accountNumbers = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            // 사용자당 계좌는 10개까지
+            accountNumbers[i] = accountService
+                    .createAccount(1L + i / 10 % 3, Long.MAX_VALUE / 2)
+                    .getAccountNumber();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcome {
+        public long success;
+        public long failure;
+    }
+
+    @Benchmark
+    public void useBalance(Outcome outcome) {
+        int index = ThreadLocalRandom.current().nextInt(accountNumbers.length);
+        String accountNumber = accountNumbers[index];
+        long userId = 1L + index / 10 % 3;
+
+        try {
+            if ("lock".equals(mode)) {
+                lockService.lock(accountNumber);
+                try {
+                    transactionService.useBalance(userId, accountNumber, 10L);
+                } finally {
+                    lockService.unlock(accountNumber);
+                }
+            } else {
+                optimisticRetryExecutor.execute(
+                        () -> transactionService.useBalance(userId, accountNumber, 10L));
+            }
+            outcome.success++;
+        } catch (AccountException e) {
+            outcome.failure++;
+        }
+    }
+}
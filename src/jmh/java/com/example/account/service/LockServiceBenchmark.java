@@ -0,0 +1,35 @@
+package com.example.account.service;
+
+import com.example.account.BenchmarkContext;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 내장 Redis 에 대한 lock -> unlock 왕복
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LockServiceBenchmark {
+    private ConfigurableApplicationContext context;
+    private LockService lockService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        lockService = context.getBean(LockService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void lockAndUnlock() {
+        lockService.lock("1000000000");
+        lockService.unlock("1000000000");
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.account.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 기존 UUID 거래 id 와 TransactionIdGenerator 비교
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransactionIdGeneratorBenchmark {
+    private TransactionIdGenerator transactionIdGenerator;
+
+    @Setup
+    public void setUp() {
+        transactionIdGenerator = new TransactionIdGenerator(0);
+    }
+
+    @Benchmark
+    public String legacyUuid() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    @Benchmark
+    public String transactionIdGenerator() {
+        return transactionIdGenerator.next();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String transactionIdGeneratorContended() {
+        return transactionIdGenerator.next();
+    }
+}
@@ -7,5 +7,9 @@ import java.lang.annotation.*;
 @Documented
 @Inherited
 public @interface AccountLock {
-    long tryLockTime() default 5000L;
+    // lock 대기 시간(ms), 0 이하면 account.lock.wait-millis
+    long tryLockTime() default -1L;
+
+    // lock 유지 시간(ms), 0 이하면 account.lock.lease-millis (adaptive-lease 사용 시 자동 계산)
+    long leaseTime() default -1L;
 }
@@ -0,0 +1,15 @@
+package com.example.account.aop;
+
+import java.lang.annotation.*;
+
+/**
+ * Idempotency-Key 헤더가 있으면 같은 키의 재요청에 저장해 둔 응답을 돌려준다. (IdempotencyAspect)
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface Idempotent {
+    // 키 구분 (동기 / 비동기 API 가 같은 값을 쓰면 서로의 재요청으로 본다.)
+    String value();
+}
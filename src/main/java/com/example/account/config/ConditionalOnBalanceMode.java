@@ -0,0 +1,20 @@
+package com.example.account.config;
+
+import com.example.account.type.BalanceMode;
+import org.springframework.context.annotation.Conditional;
+
+import java.lang.annotation.*;
+
+/**
+ * account.balance-mode 가 value 중 하나일 때만 bean 을 만든다.
+ *
+ * 문자열 그대로 비교하는 @ConditionalOnProperty 와 달리, BalanceMode 로 바인딩한 값으로 비교한다.
+ * (single-writer / SINGLE_WRITER / single_writer 모두 같은 모드, 다른 곳의 @Value BalanceMode 와 같은 결과)
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Conditional(OnBalanceModeCondition.class)
+public @interface ConditionalOnBalanceMode {
+    BalanceMode[] value();
+}
@@ -0,0 +1,66 @@
+package com.example.account.config;
+
+import com.example.account.aop.MethodMetricsInterceptor;
+import com.example.account.service.AccountService;
+import com.example.account.service.TransactionHistoryService;
+import com.example.account.service.TransactionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.Repository;
+
+import java.util.Arrays;
+
+/**
+ * 서비스 / 저장소 메서드 Timer
+ *
+ * account.service{service, method, outcome}
+ * account.repository{repository, method, outcome}
+ */
+@Configuration
+public class MetricsConfiguration {
+    private static final String REPOSITORY_PACKAGE = "com.example.account.repository";
+
+    @Bean
+    public static MethodMetricsInterceptor serviceMetricsInterceptor(
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new MethodMetricsInterceptor(meterRegistry::getObject, "account.service", "service",
+                TransactionService.class, AccountService.class, TransactionHistoryService.class);
+    }
+
+    @Bean
+    public static MethodMetricsInterceptor repositoryMetricsInterceptor(
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new MethodMetricsInterceptor(meterRegistry::getObject, "account.repository", "repository");
+    }
+
+    @Bean
+    public static Advisor serviceMetricsAdvisor(
+            @Qualifier("serviceMetricsInterceptor") MethodMetricsInterceptor interceptor) {
+        return new DefaultPointcutAdvisor(
+                new ComposablePointcut(new RootClassFilter(TransactionService.class))
+                        .union(new RootClassFilter(AccountService.class))
+                        .union(new RootClassFilter(TransactionHistoryService.class)),
+                interceptor);
+    }
+
+    @Bean
+    public static Advisor repositoryMetricsAdvisor(
+            @Qualifier("repositoryMetricsInterceptor") MethodMetricsInterceptor interceptor) {
+        return new DefaultPointcutAdvisor(
+                new ComposablePointcut(MetricsConfiguration::isAccountRepository),
+                interceptor);
+    }
+
+    private static boolean isAccountRepository(Class<?> clazz) {
+        return Repository.class.isAssignableFrom(clazz)
+                && Arrays.stream(clazz.getInterfaces())
+                .anyMatch(i -> i.getPackageName().equals(REPOSITORY_PACKAGE));
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.account.config;
+
+import com.example.account.type.BalanceMode;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.Arrays;
+
+/**
+ * 모르는 값이면 바인딩에서 실패하므로 시작하지 않는다.
+ */
+class OnBalanceModeCondition implements Condition {
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        BalanceMode[] expected = metadata.getAnnotations()
+                .get(ConditionalOnBalanceMode.class)
+                .getEnumArray("value", BalanceMode.class);
+        BalanceMode configured = Binder.get(context.getEnvironment())
+                .bind("account.balance-mode", BalanceMode.class)
+                .orElse(BalanceMode.LOCK);
+        return Arrays.asList(expected).contains(configured);
+    }
+}
@@ -1,23 +1,39 @@
 package com.example.account.controller;
 
 import com.example.account.domain.Account;
+import com.example.account.dto.AccountBalance;
 import com.example.account.dto.AccountDto;
 import com.example.account.dto.AccountInfo;
 import com.example.account.dto.CreateAccount;
 import com.example.account.dto.DeleteAccount;
+import com.example.account.dto.QueryTransactionResponse;
+import com.example.account.dto.TransactionHistory;
+import com.example.account.service.AccountJournal;
 import com.example.account.service.AccountService;
+import com.example.account.service.TransactionHistoryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequiredArgsConstructor
 public class AccountController {
     private final AccountService accountService;
+    private final TransactionHistoryService transactionHistoryService;
+    private final AccountJournal accountJournal;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/account")
     public CreateAccount.Response createAccount(@RequestBody @Valid CreateAccount.Request request) {
@@ -43,13 +59,58 @@ public class AccountController {
 
     @GetMapping("/account")
     public List<AccountInfo> getAccountsByUserId(@RequestParam("user_id") Long id) throws Exception {
-        return accountService.getAccountsByUserId(id)
-                .stream().map(accountDto -> AccountInfo.builder()
-                        .accountNumber(accountDto.getAccountNumber())
-                        .balance(accountDto.getBalance())
-                        .build())
-                .collect(Collectors.toList());
+        return accountService.getAccountsByUserId(id);
     }
 
+    /**
+     * 계좌 이벤트로 다시 계산한 잔액, at 을 주면 그 시점의 잔액 (예: at=2024-01-01T00:00:00)
+     */
+    @GetMapping("/account/{accountNumber}/balance")
+    public AccountBalance.Response getBalance(
+            @PathVariable String accountNumber,
+            @RequestParam(value = "at", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return AccountBalance.Response.builder()
+                .accountNumber(accountNumber)
+                .balance(accountJournal.getBalance(accountNumber, at))
+                .at(at)
+                .build();
+    }
+
+    /**
+     * 계좌별 거래 내역 (최신순)
+     * 다음 페이지는 응답의 nextCursor 를 cursor 로 넘긴다.
+     */
+    @GetMapping("/account/{accountNumber}/transactions")
+    public TransactionHistory.Response getTransactions(
+            @PathVariable String accountNumber,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return TransactionHistory.Response.from(
+                transactionHistoryService.getTransactions(accountNumber, cursor, size));
+    }
 
+    /**
+     * 계좌의 전체 거래 내역 (오래된 순), 한 줄에 거래 하나 (NDJSON)
+     * 읽는 대로 바로 쓰므로 전체 목록을 메모리에 올리지 않는다.
+     */
+    @GetMapping("/account/{accountNumber}/transactions/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(@PathVariable String accountNumber) {
+        transactionHistoryService.getAccountId(accountNumber);
+
+        ObjectWriter writer = objectMapper.writerFor(QueryTransactionResponse.class);
+        StreamingResponseBody body = outputStream -> transactionHistoryService.exportTransactions(
+                accountNumber, transactionDto -> {
+                    try {
+                        outputStream.write(writer.writeValueAsBytes(QueryTransactionResponse.from(transactionDto)));
+                        outputStream.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 }
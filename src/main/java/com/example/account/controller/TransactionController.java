@@ -1,15 +1,19 @@
 package com.example.account.controller;
 
 import com.example.account.aop.AccountLock;
+import com.example.account.aop.Idempotent;
 import com.example.account.domain.Account;
 import com.example.account.dto.CancelBalance;
 import com.example.account.dto.QueryTransactionResponse;
 import com.example.account.dto.TransactionDto;
 import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
 import com.example.account.dto.UseBalance.Response;
 import com.example.account.dto.UseBalance.Request;
-import com.example.account.exception.AccountException;
 import com.example.account.repository.TransactionRepository;
+import com.example.account.service.AsyncTransactionService;
+import com.example.account.service.BalanceEngine;
+import com.example.account.service.ProcessingDelay;
 import com.example.account.service.TransactionService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
@@ -18,6 +22,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 
 import java.beans.IntrospectionException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -25,7 +31,11 @@ import java.beans.IntrospectionException;
  * 1. 잔액 사용
  * 2. 잔액 사용 취소
  * 3. 거래 확인
+ * 4. 잔액 일괄 사용
+ * 5. 비동기 잔액 사용 / 취소 / 거래 확인 (/transaction/async/**)
  *
+ * 잔액 사용 / 취소 / 일괄 사용은 account.balance-mode 에 맞는 BalanceEngine 하나가 처리한다.
+ * 잔액 사용 / 취소는 Idempotency-Key 헤더가 있으면 같은 키의 재요청에 처음 응답을 그대로 돌려준다.
  */
 
 @Slf4j
@@ -33,58 +43,86 @@ import java.beans.IntrospectionException;
 @RequiredArgsConstructor
 public class TransactionController {
     private final TransactionService transactionService;
+    private final ProcessingDelay processingDelay;
+    private final BalanceEngine balanceEngine;
+    private final AsyncTransactionService asyncTransactionService;
 
     @PostMapping("/transaction/use")
+    @Idempotent("use")
     @AccountLock
-    public Response useBalance(@Valid @RequestBody UseBalance.Request request)
-            throws InterruptedException {
-        try {
-            Thread.sleep(5000L);
-            return Response.from(
-                    transactionService.useBalance(
-                            request.getUserId(),
-                            request.getAccountNumber(),
-                            request.getAmount()
-                    )
-            );
-        } catch (AccountException e) {
-            log.error("Failed to use balance. " + e.getErrorMessage());
-
-            transactionService.saveFailedUseTransaction(
-                    request.getAccountNumber(),
-                    request.getAmount()
-            );
+    public CompletableFuture<Response> useBalance(@Valid @RequestBody UseBalance.Request request) {
+        // 지연은 lock 해제 이후 스케줄러에서 처리된다.
+        return balanceEngine.useBalance(
+                        request.getUserId(),
+                        request.getAccountNumber(),
+                        request.getAmount())
+                .thenApply(Response::from)
+                .thenCompose(processingDelay::delay);
+    }
 
-            throw e;
-        }
+    @PostMapping("/transaction/use/batch")
+    public UseBalanceBatch.Response useBalanceBatch(
+            @Valid @RequestBody UseBalanceBatch.Request request) {
+        return UseBalanceBatch.Response.from(
+                balanceEngine.useBalanceBatch(request.getRequests())
+        );
     }
 
     @PostMapping("/transaction/cancel")
-    public CancelBalance.Response cancelBalance(@Valid @RequestBody CancelBalance.Request request) {
-        try {
-            return CancelBalance.Response.from(
-                transactionService.cancelBalance(
+    @Idempotent("cancel")
+    public CompletableFuture<CancelBalance.Response> cancelBalance(
+            @Valid @RequestBody CancelBalance.Request request) {
+        return balanceEngine.cancelBalance(
                         request.getTransactionId(),
                         request.getAccountNumber(),
                         request.getAmount())
-            );
-        } catch (AccountException e) {
-            log.error("Failed to cancelBalance. " + e.getErrorMessage());
-
-            transactionService.saveFailedUseTransaction(
-                    request.getAccountNumber(),
-                    request.getAmount()
-            );
-
-            throw e;
-        }
+                .thenApply(CancelBalance.Response::from);
     }
 
     @GetMapping("/transaction/{transactionId}")
     public QueryTransactionResponse queryTransaction(
             @PathVariable String transactionId) {
-            return QueryTransactionResponse.from(
-                    transactionService.queryTransaction(transactionId)
+            // 원장 모드에서 아직 DB 로 옮기지 않은 거래는 원장에서 찾는다.
+            return QueryTransactionResponse.from(balanceEngine.findTransaction(transactionId)
+                    .orElseGet(() -> transactionService.queryTransaction(transactionId))
             );
     }
+
+    /**
+     * lock 을 기다리는 동안 요청 스레드를 잡지 않는 잔액 사용 (@AccountLock 대신 비동기 lock)
+     */
+    @PostMapping("/transaction/async/use")
+    @Idempotent("use")
+    public CompletableFuture<Response> useBalanceAsync(@Valid @RequestBody UseBalance.Request request) {
+        return balanceEngine.useBalanceAsync(
+                        request.getUserId(),
+                        request.getAccountNumber(),
+                        request.getAmount())
+                .thenApply(Response::from)
+                .thenCompose(processingDelay::delay);
+    }
+
+    @PostMapping("/transaction/async/cancel")
+    @Idempotent("cancel")
+    public CompletableFuture<CancelBalance.Response> cancelBalanceAsync(
+            @Valid @RequestBody CancelBalance.Request request) {
+        return balanceEngine.cancelBalanceAsync(
+                        request.getTransactionId(),
+                        request.getAccountNumber(),
+                        request.getAmount())
+                .thenApply(CancelBalance.Response::from);
+    }
+
+    @GetMapping("/transaction/async/{transactionId}")
+    public CompletableFuture<QueryTransactionResponse> queryTransactionAsync(
+            @PathVariable String transactionId) {
+        Optional<QueryTransactionResponse> pending = balanceEngine.findTransaction(transactionId)
+                .map(QueryTransactionResponse::from);
+        if (pending.isPresent()) {
+            return CompletableFuture.completedFuture(pending.get());
+        }
+
+        return asyncTransactionService.queryTransaction(transactionId)
+                .thenApply(QueryTransactionResponse::from);
+    }
 }
@@ -17,8 +17,12 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @SuperBuilder                               // 자식 객체가 부모 객체의 필드를 빌더 패턴으로 사용할 수 있게 해준다.
 @Entity                                     // 프로그램 실행시 자동으로 테이블이 생성 된다.
+@Table(indexes = {
+        // 계좌번호 조회(findByAccountNumber)용, 중복 계좌번호는 insert 시점에 막힌다.
+        @Index(name = "ux_account_account_number", columnList = "accountNumber", unique = true)
+})
 public class Account extends BaseEntity {
-    @ManyToOne                              // 관계
+    @ManyToOne(fetch = FetchType.LAZY)      // 관계, 소유주 id 만 필요할 때는 user 를 읽지 않는다.
     private AccountUser accountUser;
 
     private String accountNumber;
@@ -30,6 +34,12 @@ public class Account extends BaseEntity {
     private LocalDateTime registeredAt;
     private LocalDateTime unregisteredAt;
 
+    @Version                                // 수정할 때마다 증가, 다른 트랜잭션이 먼저 고쳤으면 commit 이 실패한다.
+    private Long version;
+
+    // 마지막으로 반영한 계좌 이벤트 순번 (AccountJournal), 계좌 row 는 이벤트의 projection 이다.
+    private Long eventSequence;
+
     public void useBalance(Long amount) {
         if (amount > balance) {
             throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
@@ -44,4 +54,9 @@ public class Account extends BaseEntity {
 
         balance += amount;
     }
+
+    public long nextEventSequence() {
+        eventSequence = (eventSequence == null ? 0L : eventSequence) + 1;
+        return eventSequence;
+    }
 }
@@ -0,0 +1,36 @@
+package com.example.account.domain;
+
+import com.example.account.type.AccountEventType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 계좌 이벤트 (append-only, 고치거나 지우지 않는다.)
+ * 계좌마다 1 부터 이어지는 순번(sequenceNumber)을 가진다. 같은 순번이 두 번 들어가면 unique 제약에 걸린다.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(indexes = {
+        @Index(name = "ux_account_event_account_sequence", columnList = "accountId, sequenceNumber", unique = true)
+})
+public class AccountEvent {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    // 계좌 row 를 읽지 않고 쌓기만 하므로 연관관계 대신 id 만 둔다.
+    private Long accountId;
+    private Long sequenceNumber;
+
+    @Enumerated(EnumType.STRING)
+    private AccountEventType eventType;
+    private Long amount;
+    // 거래에서 나온 이벤트면 거래 id
+    private String transactionId;
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,29 @@
+package com.example.account.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 계좌 잔액 스냅샷
+ * sequenceNumber 번 이벤트까지 반영한 잔액, takenAt 은 그 이벤트의 시각이다.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(indexes = {
+        @Index(name = "ix_account_snapshot_account_sequence", columnList = "accountId, sequenceNumber")
+})
+public class AccountSnapshot {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    private Long accountId;
+    private Long sequenceNumber;
+    private Long balance;
+    private LocalDateTime takenAt;
+}
@@ -0,0 +1,26 @@
+package com.example.account.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 원장 로그를 DB 에 어디까지 옮겼는지 (account.balance-mode=ledger)
+ * 행은 하나(ID)만 쓰고, 거래 row 와 같은 트랜잭션에서 갱신한다.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+public class LedgerCheckpoint {
+    public static final Long ID = 1L;
+
+    @Id
+    private Long id;
+    private Long lsn;
+    private LocalDateTime updatedAt;
+}
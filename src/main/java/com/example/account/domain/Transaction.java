@@ -21,6 +21,13 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @SuperBuilder
 @Entity
+@Table(indexes = {
+        @Index(name = "ux_transaction_transaction_id", columnList = "transactionId", unique = true),
+        // 원거래 하나에 취소(CANCEL)는 한 번만, 취소 여부도 이 인덱스로 확인한다.
+        @Index(name = "ux_transaction_original_transaction_id", columnList = "originalTransactionId", unique = true),
+        // 계좌별 거래 내역 조회용
+        @Index(name = "ix_transaction_account_transaction_at", columnList = "account_id, transactionAt, id")
+})
 public class Transaction extends BaseEntity {
     @Enumerated(EnumType.STRING)
     private TransactionType transactionType;
@@ -30,11 +37,16 @@ public class Transaction extends BaseEntity {
     @Nullable
     private ErrorCode errorCode;
 
-    @ManyToOne
+    // 계좌번호가 필요한 조회는 join fetch 로 같이 읽는다. (findWithAccountByTransactionId)
+    @ManyToOne(fetch = FetchType.LAZY)
     private Account account;
     private Long amount;
     private Long balanceSnapshot;
 
     private String transactionId;
     private LocalDateTime transactionAt;
+
+    // 성공한 취소(CANCEL) 거래만 원거래 id 를 가진다. (사용 / 실패 거래는 null)
+    @Nullable
+    private String originalTransactionId;
 }
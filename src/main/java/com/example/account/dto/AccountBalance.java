@@ -0,0 +1,20 @@
+package com.example.account.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+public class AccountBalance {
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private String accountNumber;
+        private Long balance;
+        // 없으면 현재 잔액
+        private LocalDateTime at;
+    }
+}
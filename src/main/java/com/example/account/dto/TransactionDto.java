@@ -2,6 +2,7 @@ package com.example.account.dto;
 
 import com.example.account.domain.Account;
 import com.example.account.domain.Transaction;
+import com.example.account.type.ErrorCode;
 import com.example.account.type.TransactionResultType;
 import com.example.account.type.TransactionType;
 import jakarta.persistence.*;
@@ -20,19 +21,26 @@ public class TransactionDto {
     private String accountNumber;
     private TransactionType transactionType;
     private TransactionResultType transactionResultType;
+    private ErrorCode errorCode;
     private Long amount;
     private Long balanceSnapshot;
     private String transactionId;
     private LocalDateTime transactionAt;
 
     public static TransactionDto fromEntity(Transaction transaction) {
+        return fromEntity(transaction, transaction.getAccount().getAccountNumber());
+    }
+
+    // 계좌 엔티티를 읽지 않은 경우 (계좌 참조만 가진 거래)
+    public static TransactionDto fromEntity(Transaction transaction, String accountNumber) {
         return TransactionDto.builder()
-                .accountNumber(transaction.getAccount().getAccountNumber())
+                .accountNumber(accountNumber)
                 .amount(transaction.getAmount())
                 .balanceSnapshot(transaction.getBalanceSnapshot())
                 .transactionId(transaction.getTransactionId())
                 .transactionType(transaction.getTransactionType())
                 .transactionResultType(transaction.getTransactionResultType())
+                .errorCode(transaction.getErrorCode())
                 .transactionAt(transaction.getTransactionAt())
                 .build();
     }
@@ -0,0 +1,28 @@
+package com.example.account.dto;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class TransactionHistory {
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private List<QueryTransactionResponse> transactions;
+        private String nextCursor;
+
+        public static Response from(TransactionHistoryDto transactionHistoryDto) {
+            return Response.builder()
+                    .transactions(transactionHistoryDto.getTransactions().stream()
+                            .map(QueryTransactionResponse::from)
+                            .collect(Collectors.toList()))
+                    .nextCursor(transactionHistoryDto.getNextCursor())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.account.dto;
+
+import com.example.account.domain.Transaction;
+import jakarta.annotation.Nullable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 사용 거래와 그 거래의 취소 거래 (TransactionRepository.findWithCancelByTransactionId)
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionWithCancel {
+    private Transaction transaction;
+    // 아직 취소되지 않았으면 null
+    @Nullable
+    private Transaction cancel;
+
+    public boolean isCancelled() {
+        return cancel != null;
+    }
+}
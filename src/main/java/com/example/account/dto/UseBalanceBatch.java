@@ -0,0 +1,69 @@
+package com.example.account.dto;
+
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class UseBalanceBatch {
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Request {
+        @Valid
+        @NotEmpty
+        @Size(max = 10_000)
+        private List<UseBalance.Request> requests;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private List<Item> results;
+
+        public static Response from(List<TransactionDto> transactionDtos) {
+            return Response.builder()
+                    .results(transactionDtos.stream()
+                            .map(Item::from)
+                            .collect(Collectors.toList()))
+                    .build();
+        }
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Item {
+        private String accountNumber;
+        private TransactionResultType transactionResultType;
+        private ErrorCode errorCode;
+        private String transactionId;
+        private Long amount;
+        private LocalDateTime transactionAt;
+
+        public static Item from(TransactionDto transactionDto) {
+            return Item.builder()
+                    .accountNumber(transactionDto.getAccountNumber())
+                    .transactionResultType(transactionDto.getTransactionResultType())
+                    .errorCode(transactionDto.getErrorCode())
+                    .transactionId(transactionDto.getTransactionId())
+                    .transactionAt(transactionDto.getTransactionAt())
+                    .amount(transactionDto.getAmount())
+                    .build();
+        }
+    }
+}
@@ -2,18 +2,33 @@ package com.example.account.exception;
 
 import com.example.account.dto.ErrorResponse;
 import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 @Slf4j
 @RestControllerAdvice
 public class GlobalExceptionHandler {
+    // 응답한 ErrorCode 별 건수 (account.errors{code}), 미리 등록해 둔다.
+    private final Map<ErrorCode, Counter> errorCounters = new EnumMap<>(ErrorCode.class);
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        for (ErrorCode errorCode : ErrorCode.values()) {
+            errorCounters.put(errorCode, meterRegistry.counter("account.errors", "code", errorCode.name()));
+        }
+    }
+
     @ExceptionHandler(AccountException.class)
     public ErrorResponse handleAccountException(AccountException e) {
         log.error("{} is occurred", e.getErrorCode());
+        count(e.getErrorCode());
 
         return new ErrorResponse(e.getErrorCode(), e.getErrorMessage());
     }
@@ -21,6 +36,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(DataIntegrityViolationException.class)
     public ErrorResponse handleDataIntegrityViolationException(DataIntegrityViolationException e) {
         log.error("DataIntegrityViolationException is occurred.");
+        count(ErrorCode.INVALIDED_REQUEST);
 
         return new ErrorResponse(
                 ErrorCode.INVALIDED_REQUEST,
@@ -30,6 +46,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ErrorResponse methodArgumentNotValidException(MethodArgumentNotValidException e) {
         log.error("MethodArgumentNotValidException is occurred.");
+        count(ErrorCode.INVALIDED_REQUEST);
 
         return new ErrorResponse(
                 ErrorCode.INVALIDED_REQUEST,
@@ -39,10 +56,14 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(Exception.class)
     public ErrorResponse handleAccountException(Exception e) {
         log.error("Exception is occurred", e);
+        count(ErrorCode.INTERNAL_SERVER_ERROR);
 
         return new ErrorResponse(
                 ErrorCode.INTERNAL_SERVER_ERROR,
                 ErrorCode.INTERNAL_SERVER_ERROR.getDescription());
     }
 
+    private void count(ErrorCode errorCode) {
+        errorCounters.get(errorCode == null ? ErrorCode.INTERNAL_SERVER_ERROR : errorCode).increment();
+    }
 }
@@ -0,0 +1,29 @@
+package com.example.account.repository;
+
+import com.example.account.domain.AccountEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AccountEventRepository extends JpaRepository<AccountEvent, Long> {
+    // 스냅샷 이후의 이벤트 (순번 순)
+    @Query("select e from AccountEvent e"
+            + " where e.accountId = :accountId and e.sequenceNumber > :afterSequence"
+            + " order by e.sequenceNumber")
+    List<AccountEvent> findTail(@Param("accountId") Long accountId,
+                                @Param("afterSequence") Long afterSequence);
+
+    // 스냅샷 이후 at 까지의 이벤트 (순번 순)
+    @Query("select e from AccountEvent e"
+            + " where e.accountId = :accountId and e.sequenceNumber > :afterSequence"
+            + " and e.occurredAt <= :at"
+            + " order by e.sequenceNumber")
+    List<AccountEvent> findTailUntil(@Param("accountId") Long accountId,
+                                     @Param("afterSequence") Long afterSequence,
+                                     @Param("at") LocalDateTime at);
+}
@@ -1,10 +1,22 @@
 package com.example.account.repository;
 
 import com.example.account.domain.Account;
+import com.example.account.domain.AccountStatus;
 import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountInfo;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,5 +28,75 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
 
     Optional<Account> findByAccountNumber(String accountNumber);
 
+    // SELECT ... FOR UPDATE (account.lock.strategy=database), 트랜잭션이 끝날 때까지 row lock 유지
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.accountNumber = :accountNumber")
+    Optional<Account> findByAccountNumberForUpdate(@Param("accountNumber") String accountNumber);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.id = :id")
+    Optional<Account> findByIdForUpdate(@Param("id") Long id);
+
     List<Account> findByAccountUser(AccountUser accountUser);
+
+    // 계좌 목록 응답에 필요한 컬럼만 읽는다. 엔티티를 만들지 않으므로 스냅샷 / dirty checking 도 없다.
+    @Query("select new com.example.account.dto.AccountInfo(a.accountNumber, a.balance)"
+            + " from Account a where a.accountUser.id = :userId order by a.id")
+    List<AccountInfo> findAccountInfosByAccountUserId(@Param("userId") Long userId);
+
+    // 계좌 + 소유주를 한 번에 읽는다. (계좌 엔티티를 그대로 응답할 때)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("select a from Account a join fetch a.accountUser where a.id = :id")
+    Optional<Account> findWithAccountUserById(@Param("id") Long id);
+
+    // 계좌번호 구간 예약 (AccountNumberGenerator)
+    @Query(value = "select next value for account_number_seq", nativeQuery = true)
+    long reserveAccountNumberBlock();
+
+    // 잔액 확인과 차감을 한 번에 한다. 차감되면 1, 잔액 부족/해지 계좌면 0
+    @Modifying
+    @Query("update Account a"
+            + " set a.balance = a.balance - :amount, a.updatedAt = :now, a.version = a.version + 1"
+            + ", a.eventSequence = coalesce(a.eventSequence, 0) + 1"
+            + " where a.id = :id"
+            + " and a.balance >= :amount"
+            + " and a.accountStatus = com.example.account.domain.AccountStatus.IN_USE")
+    int debitBalance(@Param("id") Long id,
+                     @Param("amount") Long amount,
+                     @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update Account a"
+            + " set a.balance = a.balance + :amount, a.updatedAt = :now, a.version = a.version + 1"
+            + ", a.eventSequence = coalesce(a.eventSequence, 0) + 1"
+            + " where a.id = :id")
+    int creditBalance(@Param("id") Long id,
+                      @Param("amount") Long amount,
+                      @Param("now") LocalDateTime now);
+
+    // 원장 checkpoint : 원장의 마지막 잔액을 그대로 쓰고, 이벤트 순번은 events 만큼 올린다. (account.balance-mode=ledger, redis)
+    @Modifying
+    @Query("update Account a"
+            + " set a.balance = :balance, a.updatedAt = :now, a.version = a.version + 1"
+            + ", a.eventSequence = coalesce(a.eventSequence, 0) + :events"
+            + " where a.id = :id")
+    int updateBalance(@Param("id") Long id,
+                      @Param("balance") Long balance,
+                      @Param("events") long events,
+                      @Param("now") LocalDateTime now);
+
+    @Query("select a.balance from Account a where a.id = :id")
+    Long findBalanceById(@Param("id") Long id);
+
+    @Query("select a.accountStatus from Account a where a.id = :id")
+    AccountStatus findStatusById(@Param("id") Long id);
+
+    // 원장 복구 : 로그에 남은 계좌 중 해지된 계좌 (account.balance-mode=ledger)
+    @Query("select a.id from Account a where a.id in :ids"
+            + " and a.accountStatus = com.example.account.domain.AccountStatus.UNREGISTERED")
+    List<Long> findUnregisteredIds(@Param("ids") Collection<Long> ids);
+
+    // UPDATE 로 올린 이벤트 순번을 읽는다. (계좌 엔티티를 읽지 않는 경우)
+    @Query("select a.eventSequence from Account a where a.id = :id")
+    Long findEventSequenceById(@Param("id") Long id);
 }
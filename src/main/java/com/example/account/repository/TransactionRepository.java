@@ -3,16 +3,75 @@ package com.example.account.repository;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionWithCancel;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository
         extends JpaRepository<Transaction, Long> {
-Optional<Transaction> findByTransactionId(String transactionId);
+    // 내보내기(export) 에서 한 번에 가져오는 row 수
+    String EXPORT_FETCH_SIZE = "500";
 
+    Optional<Transaction> findByTransactionId(String transactionId);
 
+    // 취소 여부 (originalTransactionId 유니크 인덱스 한 번)
+    boolean existsByOriginalTransactionId(String originalTransactionId);
+
+    // 이미 저장된 거래 id (Redis 반영 기록을 다시 받았을 때 건너뛴다.)
+    @Query("select t.transactionId from Transaction t where t.transactionId in :transactionIds")
+    List<String> findExistingTransactionIds(@Param("transactionIds") Collection<String> transactionIds);
+
+    // 거래와 그 거래의 취소 거래를 한 번에 읽는다. (두 쪽 다 유니크 인덱스)
+    @Query("select new com.example.account.dto.TransactionWithCancel(t, c)"
+            + " from Transaction t left join Transaction c on c.originalTransactionId = t.transactionId"
+            + " where t.transactionId = :transactionId")
+    Optional<TransactionWithCancel> findWithCancelByTransactionId(
+            @Param("transactionId") String transactionId);
+
+    // 거래 조회 응답에 필요한 컬럼만 계좌번호와 함께 읽는다. (엔티티를 만들지 않는다.)
+    @Query("select new com.example.account.dto.TransactionDto("
+            + "a.accountNumber, t.transactionType, t.transactionResultType, t.errorCode,"
+            + " t.amount, t.balanceSnapshot, t.transactionId, t.transactionAt)"
+            + " from Transaction t join t.account a where t.transactionId = :transactionId")
+    Optional<TransactionDto> findDtoByTransactionId(@Param("transactionId") String transactionId);
+
+    // 계좌별 거래 내역 첫 페이지 (최신순)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("select t from Transaction t where t.account.id = :accountId"
+            + " order by t.transactionAt desc, t.id desc")
+    List<Transaction> findLatestByAccountId(@Param("accountId") Long accountId, Limit limit);
+
+    // (transactionAt, id) 가 cursor 보다 앞선(오래된) 거래, offset 없이 인덱스에서 바로 이어 읽는다.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("select t from Transaction t where t.account.id = :accountId"
+            + " and (t.transactionAt < :transactionAt"
+            + " or (t.transactionAt = :transactionAt and t.id < :id))"
+            + " order by t.transactionAt desc, t.id desc")
+    List<Transaction> findByAccountIdBefore(@Param("accountId") Long accountId,
+                                            @Param("transactionAt") LocalDateTime transactionAt,
+                                            @Param("id") Long id,
+                                            Limit limit);
+
+    // 전체 거래 내역 (오래된 순), 트랜잭션 안에서 읽고 닫아야 한다.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select t from Transaction t where t.account.id = :accountId"
+            + " order by t.transactionAt, t.id")
+    Stream<Transaction> streamByAccountId(@Param("accountId") Long accountId);
 }
@@ -0,0 +1,121 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountEvent;
+import com.example.account.domain.AccountSnapshot;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountEventRepository;
+import com.example.account.repository.AccountSnapshotRepository;
+import com.example.account.type.AccountEventType;
+import com.example.account.type.ErrorCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 계좌 이벤트 저널 (append-only)
+ *
+ * 잔액이나 상태가 바뀌는 일(개설, 사용, 취소, 해지)을 계좌별 순번을 붙여 이벤트로 쌓는다.
+ * Account 테이블은 이벤트를 차례로 반영한 결과(projection)이고, 이벤트와 같은 트랜잭션에서 갱신한다.
+ * 순번은 Account.eventSequence 에서 이어서 정하므로, 계좌 lock / @Version 이 순번도 함께 지킨다.
+ *
+ * snapshot-interval 번째 이벤트마다 그때의 잔액을 스냅샷으로 남긴다.
+ * 잔액은 마지막 스냅샷 + 그 뒤의 이벤트(snapshot-interval 건 미만)만 읽어서 다시 계산하고,
+ * 과거 시점의 잔액은 그 시점 이전의 마지막 스냅샷부터 그 시점까지 이벤트를 반영해서 계산한다.
+ */
+@Service
+public class AccountJournal {
+    private final AccountEventRepository accountEventRepository;
+    private final AccountSnapshotRepository accountSnapshotRepository;
+    private final AccountLookupCache accountLookupCache;
+    private final int snapshotInterval;
+
+    public AccountJournal(
+            AccountEventRepository accountEventRepository,
+            AccountSnapshotRepository accountSnapshotRepository,
+            AccountLookupCache accountLookupCache,
+            @Value("${account.journal.snapshot-interval:100}") int snapshotInterval) {
+        this.accountEventRepository = accountEventRepository;
+        this.accountSnapshotRepository = accountSnapshotRepository;
+        this.accountLookupCache = accountLookupCache;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * 계좌 엔티티를 고친 경우, 순번은 엔티티에서 하나 올려서 쓴다. (dirty checking 으로 같이 UPDATE 된다.)
+     * 트랜잭션 안에서 호출해야 한다.
+     */
+    public void append(Account account, AccountEventType eventType, Long amount,
+                       Long balanceAfter, String transactionId, LocalDateTime occurredAt) {
+        append(account.getId(), account.nextEventSequence(), eventType, amount,
+                balanceAfter, transactionId, occurredAt);
+    }
+
+    /**
+     * 순번을 이미 정한 경우 (계좌 row 를 UPDATE 문으로 직접 고친 경우)
+     *
+     * @param balanceAfter 이 이벤트까지 반영한 잔액, 스냅샷을 남길 때만 쓴다.
+     */
+    public void append(Long accountId, long sequenceNumber, AccountEventType eventType, Long amount,
+                       Long balanceAfter, String transactionId, LocalDateTime occurredAt) {
+        accountEventRepository.save(AccountEvent.builder()
+                .accountId(accountId)
+                .sequenceNumber(sequenceNumber)
+                .eventType(eventType)
+                .amount(amount)
+                .transactionId(transactionId)
+                .occurredAt(occurredAt)
+                .build());
+
+        if (sequenceNumber % snapshotInterval == 0) {
+            accountSnapshotRepository.save(AccountSnapshot.builder()
+                    .accountId(accountId)
+                    .sequenceNumber(sequenceNumber)
+                    .balance(balanceAfter)
+                    .takenAt(occurredAt)
+                    .build());
+        }
+    }
+
+    /**
+     * 계좌 잔액, at 이 없으면 현재 잔액
+     */
+    @Transactional(readOnly = true)
+    public Long getBalance(String accountNumber, LocalDateTime at) {
+        Long accountId = accountLookupCache.findRef(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND))
+                .getId();
+        return at == null ? rebuildBalance(accountId) : balanceAt(accountId, at);
+    }
+
+    long rebuildBalance(Long accountId) {
+        Optional<AccountSnapshot> snapshot =
+                accountSnapshotRepository.findFirstByAccountIdOrderBySequenceNumberDesc(accountId);
+        return replay(snapshot, accountEventRepository.findTail(accountId, sequenceOf(snapshot)));
+    }
+
+    /**
+     * at 시점의 잔액, 개설 전이면 0
+     */
+    long balanceAt(Long accountId, LocalDateTime at) {
+        Optional<AccountSnapshot> snapshot = accountSnapshotRepository
+                .findFirstByAccountIdAndTakenAtLessThanEqualOrderBySequenceNumberDesc(accountId, at);
+        return replay(snapshot, accountEventRepository.findTailUntil(accountId, sequenceOf(snapshot), at));
+    }
+
+    private static long sequenceOf(Optional<AccountSnapshot> snapshot) {
+        return snapshot.map(AccountSnapshot::getSequenceNumber).orElse(0L);
+    }
+
+    private static long replay(Optional<AccountSnapshot> snapshot, List<AccountEvent> events) {
+        long balance = snapshot.map(AccountSnapshot::getBalance).orElse(0L);
+        for (AccountEvent event : events) {
+            balance = event.getEventType().apply(balance, event.getAmount());
+        }
+        return balance;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountStatus;
+import com.example.account.repository.AccountRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 계좌번호 -> 계좌 id (+ 소유주, 상태) 캐시
+ *
+ * 처음 조회할 때는 계좌번호로 찾고(read-through), 이후에는 id(PK)로 계좌 row 를 읽는다.
+ * 잔액은 캐시하지 않는다. 항상 lock 을 잡은 상태에서 DB row 를 읽어야 한다.
+ * 다른 노드의 해지는 TTL 이 지나야 반영되므로, 상태 검증은 읽어온 row 로 한다.
+ *
+ * 해지는 commit 후에 invalidate 한다. 그 전에 row 를 읽어 둔 조회가 뒤늦게 넣는 값은
+ * invalidate 횟수를 비교해서 버린다. (해지 전 상태가 TTL 동안 남지 않도록)
+ */
+@Component
+public class AccountLookupCache {
+    private final AccountRepository accountRepository;
+    private final Cache<String, AccountRef> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public AccountLookupCache(
+            AccountRepository accountRepository,
+            @Value("${account.lookup-cache.maximum-size:100000}") long maximumSize,
+            @Value("${account.lookup-cache.ttl:10m}") Duration ttl) {
+        this.accountRepository = accountRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public Optional<Account> findAccount(String accountNumber) {
+        AccountRef ref = cache.getIfPresent(accountNumber);
+        if (ref != null) {
+            return accountRepository.findById(ref.getId());
+        }
+
+        long seen = invalidations.get();
+        Optional<Account> account = accountRepository.findByAccountNumber(accountNumber);
+        account.ifPresent(a -> put(accountNumber, AccountRef.from(a), seen));
+        return account;
+    }
+
+    /**
+     * 계좌 row 를 SELECT ... FOR UPDATE 로 읽는다. (account.lock.strategy=database)
+     * 트랜잭션 안에서 호출해야 한다.
+     */
+    public Optional<Account> findAccountForUpdate(String accountNumber) {
+        AccountRef ref = cache.getIfPresent(accountNumber);
+        if (ref != null) {
+            return accountRepository.findByIdForUpdate(ref.getId());
+        }
+
+        long seen = invalidations.get();
+        Optional<Account> account = accountRepository.findByAccountNumberForUpdate(accountNumber);
+        account.ifPresent(a -> put(accountNumber, AccountRef.from(a), seen));
+        return account;
+    }
+
+    /**
+     * 계좌 row 없이 id / 소유주 / 상태만 필요할 때 (atomic 모드)
+     */
+    public Optional<AccountRef> findRef(String accountNumber) {
+        AccountRef ref = cache.getIfPresent(accountNumber);
+        if (ref != null) {
+            return Optional.of(ref);
+        }
+
+        long seen = invalidations.get();
+        return accountRepository.findByAccountNumber(accountNumber)
+                .map(account -> {
+                    AccountRef loaded = AccountRef.from(account);
+                    put(accountNumber, loaded, seen);
+                    return loaded;
+                });
+    }
+
+    /**
+     * 계좌 상태가 바뀐 트랜잭션이 commit 된 뒤에 호출한다.
+     */
+    public void invalidate(String accountNumber) {
+        cache.asMap().compute(accountNumber, (key, value) -> {
+            invalidations.incrementAndGet();
+            return null;
+        });
+    }
+
+    // row 를 읽는 사이에 invalidate 가 있었으면 넣지 않는다. (다음 조회가 다시 읽는다.)
+    // invalidate 와 같은 key 의 compute 안에서 비교하므로 둘이 엇갈리지 않는다.
+    private void put(String accountNumber, AccountRef ref, long seen) {
+        cache.asMap().compute(accountNumber,
+                (key, value) -> invalidations.get() == seen ? ref : value);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class AccountRef {
+        private final Long id;
+        private final Long ownerId;
+        private final AccountStatus accountStatus;
+
+        static AccountRef from(Account account) {
+            return new AccountRef(
+                    account.getId(),
+                    account.getAccountUser().getId(),
+                    account.getAccountStatus());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.account.service;
+
+import com.example.account.repository.AccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 계좌번호 생성기
+ *
+ * DB 시퀀스(account_number_seq)로 노드마다 blockSize 개씩 번호 구간을 예약하고,
+ * 구간 안에서는 메모리에서 순서대로 꺼내 쓴다. 예약된 구간은 겹치지 않으므로 중복 확인 조회가 필요 없다.
+ *
+ * 번호 형식 : 9자리 본문 + 1자리 Luhn 검증 숫자
+ * 본문은 순번에 10과 서로소인 수를 곱해서(10^9 위의 전단사) 순서가 드러나지 않게 섞는다.
+ */
+@Component
+public class AccountNumberGenerator {
+    static final long BODY_SPACE = 1_000_000_000L;
+    // 3^18, 10 과 서로소
+    private static final long MULTIPLIER = 387_420_489L;
+    private static final long OFFSET = 123_456_789L;
+
+    private final LongSupplier blockSource;
+    private final long blockSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long next;
+    private long limit;
+
+    @Autowired
+    public AccountNumberGenerator(
+            AccountRepository accountRepository,
+            @Value("${account.number.block-size:1000}") long blockSize) {
+        this(accountRepository::reserveAccountNumberBlock, blockSize);
+    }
+
+    AccountNumberGenerator(LongSupplier blockSource, long blockSize) {
+        this.blockSource = blockSource;
+        this.blockSize = blockSize;
+    }
+
+    public String next() {
+        long sequence;
+        lock.lock();
+        try {
+            if (next == limit) {
+                long block = blockSource.getAsLong();
+                next = block * blockSize;
+                limit = next + blockSize;
+            }
+            sequence = next++;
+        } finally {
+            lock.unlock();
+        }
+
+        return format(sequence);
+    }
+
+    static String format(long sequence) {
+        long body = ((sequence % BODY_SPACE) * MULTIPLIER + OFFSET) % BODY_SPACE;
+
+        char[] digits = new char[10];
+        int sum = 0;
+        // 오른쪽(검증 숫자 바로 앞)부터 홀수 번째 자리를 두 배로 한다.
+        for (int i = 8; i >= 0; i--) {
+            int digit = (int) (body % 10);
+            body /= 10;
+            digits[i] = (char) ('0' + digit);
+
+            if (((8 - i) & 1) == 0) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        digits[9] = (char) ('0' + (10 - sum % 10) % 10);
+
+        return new String(digits);
+    }
+
+    static boolean isValid(String accountNumber) {
+        int sum = 0;
+        for (int i = accountNumber.length() - 1, pos = 0; i >= 0; i--, pos++) {
+            int digit = accountNumber.charAt(i) - '0';
+            if ((pos & 1) == 1) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return sum % 10 == 0;
+    }
+}
@@ -4,19 +4,26 @@ import com.example.account.domain.Account;
 import com.example.account.domain.AccountStatus;
 import com.example.account.domain.AccountUser;
 import com.example.account.dto.AccountDto;
+import com.example.account.dto.AccountInfo;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRepository;
+import com.example.account.type.AccountEventType;
 import com.example.account.type.ErrorCode;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 import static com.example.account.domain.AccountStatus.IN_USE;
 import static com.example.account.type.ErrorCode.USER_NOT_FOUND;
@@ -31,51 +38,67 @@ import static com.example.account.type.ErrorCode.USER_NOT_FOUND;
 
  */
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class AccountService {
     private final AccountRepository accountRepository;
     private final AccountUserRepository accountUserRepository;
+    private final AccountNumberGenerator accountNumberGenerator;
+    private final AccountLookupCache accountLookupCache;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountJournal accountJournal;
+    // account.balance-mode=redis 일 때만 있다. (현재 잔액이 Redis 에 있다.)
+    private final Optional<RedisBalanceEngine> redisBalanceEngine;
+    // account.balance-mode=ledger 일 때만 있다. (현재 잔액이 메모리 원장에 있다.)
+    private final Optional<LedgerEngine> ledgerEngine;
+
+    static final int MAX_CREATE_ATTEMPTS = 3;
 
     /**
      * 사용자가 있는지 확인한다.
      * 계좌의 번호를 생성한다.
-     * 계좌를 저장하고, 정보를 넘긴다.
+     * 계좌를 저장하고, 개설 이벤트를 남긴 뒤 정보를 넘긴다.
+     * 계좌번호가 겹치면 unique 제약조건에 걸리므로, 새 번호로 다시 시도한다.
      *
      * @param userId
      * @param initialBalance
      */
-    @Transactional
     public AccountDto createAccount(Long userId, Long initialBalance) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(
+                        status -> saveNewAccount(userId, initialBalance));
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= MAX_CREATE_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("Account number collision. retry : {}", attempt);
+            }
+        }
+    }
+
+    private AccountDto saveNewAccount(Long userId, Long initialBalance) {
         AccountUser accountUser = accountUserRepository.findById(userId)
                 .orElseThrow(() -> new AccountException(USER_NOT_FOUND));
 
         validateCreateAccount(accountUser);
 
-        String newAccountNumber = getRandomAccountNumber();
-        while (accountRepository.findByAccountNumber(newAccountNumber).isPresent()) {
-            newAccountNumber = getRandomAccountNumber();
-        }
-
-        return AccountDto.fromEntity(
-                accountRepository.save(Account.builder()
-                            .accountUser(accountUser)
-                            .accountStatus(IN_USE)
-                            .accountNumber(newAccountNumber)
-                            .balance(initialBalance)
-                            .registeredAt(LocalDateTime.now())
-                            .build()
-        ));
-    }
+        String newAccountNumber = accountNumberGenerator.next();
 
-    String getRandomAccountNumber() {
-        StringBuilder sb = new StringBuilder();
-        UUID.randomUUID().toString()
-                .replace("-", "")
-                .chars()
-                .forEach(c -> sb.append(Integer.parseInt(c + "")));
+        // 개설 이벤트가 1번이다. (엔티티를 다시 고치지 않도록 순번을 미리 넣는다.)
+        Account account = accountRepository.save(Account.builder()
+                .accountUser(accountUser)
+                .accountStatus(IN_USE)
+                .accountNumber(newAccountNumber)
+                .balance(initialBalance)
+                .registeredAt(LocalDateTime.now())
+                .eventSequence(1L)
+                .build());
+        accountJournal.append(account.getId(), 1L, AccountEventType.ACCOUNT_CREATED,
+                initialBalance, initialBalance, null, account.getRegisteredAt());
 
-        return sb.substring(0, 10);
+        return AccountDto.fromEntity(account);
     }
 
     @Transactional
@@ -83,19 +106,71 @@ public class AccountService {
         AccountUser accountUser = accountUserRepository.findById(userId)
                 .orElseThrow(() -> new AccountException(USER_NOT_FOUND));
 
-        Account account = accountRepository.findByAccountNumber(accountNumber)
+        Account account = accountLookupCache.findAccount(accountNumber)
                 .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
 
         validateDeleteAccount(accountUser, account);
+        Long balance = currentBalance(account, accountNumber);
+        if (balance > 0) {
+            throw new AccountException(ErrorCode.ACCOUNT_DELETE_HAS_BALANCE);
+        }
 
         account.setAccountStatus(AccountStatus.UNREGISTERED);
         account.setUnregisteredAt(LocalDateTime.now());
+        accountJournal.append(account, AccountEventType.ACCOUNT_UNREGISTERED,
+                0L, balance, null, account.getUnregisteredAt());
 
         accountRepository.save(account);
+        // commit 전에 지우면 그 사이 조회가 해지 전 상태를 다시 캐시할 수 있다.
+        afterCommit(() -> {
+            accountLookupCache.invalidate(accountNumber);
+            redisBalanceEngine.ifPresent(engine -> engine.unregistered(accountNumber));
+        });
 
         return AccountDto.fromEntity(account);
     }
 
+    // DB 잔액은 Redis / 원장보다 늦을 수 있으므로 현재 잔액이 있는 곳에서 읽는다.
+    private Long currentBalance(Account account, String accountNumber) {
+        if (ledgerEngine.isPresent()) {
+            // 작성 스레드가 잔액을 확인하고 이후 거래를 막는다. rollback 되면 다시 받는다.
+            LedgerEngine engine = ledgerEngine.get();
+            long balance = engine.unregister(account.getId());
+            afterRollback(() -> engine.reregister(account.getId()));
+            return balance;
+        }
+        return redisBalanceEngine
+                .flatMap(engine -> engine.findBalance(accountNumber))
+                .orElse(account.getBalance());
+    }
+
+    private static void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     private void validateDeleteAccount(AccountUser accountUser, Account account) {
         if (!Objects.equals(accountUser.getId(), account.getAccountUser().getId())) {
             throw new AccountException(ErrorCode.ACCOUNT_UNMATCHED);
@@ -104,10 +179,6 @@ public class AccountService {
         if (account.getAccountStatus() == AccountStatus.UNREGISTERED) {
             throw new AccountException(ErrorCode.ACCOUNT_ALREADY_DELETED);
         }
-
-        if (account.getBalance() > 0) {
-            throw new AccountException(ErrorCode.ACCOUNT_DELETE_HAS_BALANCE);
-        }
     }
 
     private void validateCreateAccount(AccountUser accountUser) {
@@ -116,24 +187,29 @@ public class AccountService {
         }
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public Account getAccount(Long id) {
         if (id < 0) {
             throw new RuntimeException("Minus");
         }
 
-        return accountRepository.findById(id).get();
+        return accountRepository.findWithAccountUserById(id).get();
     }
 
-    @Transactional
-    public List<AccountDto> getAccountsByUserId(Long userId) {
-        AccountUser accountUser = accountUserRepository.findById(userId)
-                .orElseThrow(() -> new AccountException(USER_NOT_FOUND));
-
-        List<Account> accounts = accountRepository.findByAccountUser(accountUser);
+    @Transactional(readOnly = true)
+    public List<AccountInfo> getAccountsByUserId(Long userId) {
+        if (!accountUserRepository.existsById(userId)) {
+            throw new AccountException(USER_NOT_FOUND);
+        }
 
-        return accounts.stream()
-                .map(AccountDto::fromEntity)
-                .collect(Collectors.toList());
+        List<AccountInfo> accounts = accountRepository.findAccountInfosByAccountUserId(userId);
+        // DB 잔액은 Redis 보다 늦을 수 있으므로 Redis 에 있는 잔액으로 덮는다.
+        redisBalanceEngine.ifPresent(engine -> {
+            Map<String, Long> balances = engine.findBalances(
+                    accounts.stream().map(AccountInfo::getAccountNumber).toList());
+            accounts.forEach(account -> account.setBalance(
+                    balances.getOrDefault(account.getAccountNumber(), account.getBalance())));
+        });
+        return accounts;
     }
 }
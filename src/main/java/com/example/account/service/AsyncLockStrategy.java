@@ -0,0 +1,18 @@
+package com.example.account.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 대기하는 동안 스레드를 잡고 있지 않는 lock (비동기 거래 API)
+ *
+ * lock 의 주인은 스레드가 아니라 lockAsync 가 돌려주는 owner id 다.
+ * 그래서 lock 을 잡은 스레드와 푸는 스레드가 달라도 된다.
+ */
+public interface AsyncLockStrategy {
+    /**
+     * @return 완료되면 owner id, 실패하면 AccountException 으로 완료된다.
+     */
+    CompletableFuture<Long> lockAsync(String accountNumber, long waitMillis, long leaseMillis);
+
+    CompletableFuture<Void> unlockAsync(String accountNumber, long ownerId);
+}
@@ -0,0 +1,123 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import com.example.account.type.BalanceMode;
+import com.example.account.type.ErrorCode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 비동기 거래 API (/transaction/async/**)
+ *
+ * 요청 스레드는 바로 돌려주고, 거래는 전용 실행기(account.async.*)에서 처리한다.
+ * lock 방식이 AsyncLockStrategy(redis) 면 lock 을 기다리는 동안에는 어떤 스레드도 잡지 않고,
+ * lock 을 잡은 다음에만 실행기 스레드를 쓴다. 그 외 방식은 실행기 스레드에서 lock 을 기다린다.
+ * 실행기 큐가 가득 차면 SERVER_BUSY 로 바로 실패시킨다.
+ */
+@Slf4j
+@Service
+public class AsyncTransactionService {
+    private final TransactionService transactionService;
+    private final LockStrategy lockStrategy;
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
+    private final ThreadPoolExecutor executor;
+
+    @Value("${account.balance-mode:lock}")
+    private BalanceMode balanceMode = BalanceMode.LOCK;
+
+    // 기다리는 동안 요청 스레드를 잡지 않으므로 account.lock.wait-millis 보다 길게 기다린다.
+    @Value("${account.async.lock-wait-millis:5000}")
+    private long lockWaitMillis = 5000L;
+
+    public AsyncTransactionService(
+            TransactionService transactionService,
+            LockStrategy lockStrategy,
+            OptimisticRetryExecutor optimisticRetryExecutor,
+            @Value("${account.async.threads:16}") int threads,
+            @Value("${account.async.queue-capacity:1000}") int queueCapacity) {
+        this.transactionService = transactionService;
+        this.lockStrategy = lockStrategy;
+        this.optimisticRetryExecutor = optimisticRetryExecutor;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                r -> new Thread(r, "account-async-" + threadNumber.getAndIncrement()));
+    }
+
+    public CompletableFuture<TransactionDto> useBalance(
+            Long userId, String accountNumber, Long amount) {
+        return withLock(accountNumber, () -> {
+            try {
+                return optimisticRetryExecutor.execute(() ->
+                        transactionService.useBalance(userId, accountNumber, amount));
+            } catch (AccountException e) {
+                log.error("Failed to use balance. " + e.getErrorMessage());
+                transactionService.saveFailedUseTransaction(accountNumber, amount);
+                throw e;
+            }
+        });
+    }
+
+    public CompletableFuture<TransactionDto> cancelBalance(
+            String transactionId, String accountNumber, Long amount) {
+        return withLock(accountNumber, () -> {
+            try {
+                return optimisticRetryExecutor.execute(() ->
+                        transactionService.cancelBalance(transactionId, accountNumber, amount));
+            } catch (AccountException e) {
+                log.error("Failed to cancelBalance. " + e.getErrorMessage());
+                transactionService.saveFailedUseTransaction(accountNumber, amount);
+                throw e;
+            }
+        });
+    }
+
+    public CompletableFuture<TransactionDto> queryTransaction(String transactionId) {
+        return submit(() -> transactionService.queryTransaction(transactionId));
+    }
+
+    private <T> CompletableFuture<T> withLock(String accountNumber, Supplier<T> command) {
+        // lock 모드가 아니면 @AccountLock 과 마찬가지로 lock 없이 실행한다.
+        if (balanceMode != BalanceMode.LOCK) {
+            return submit(command);
+        }
+
+        if (lockStrategy instanceof AsyncLockStrategy asyncLock) {
+            return asyncLock.lockAsync(accountNumber, lockWaitMillis, LockStrategy.DEFAULT_TIME)
+                    .thenCompose(ownerId -> submit(command)
+                            .whenComplete((result, e) -> asyncLock.unlockAsync(accountNumber, ownerId)));
+        }
+
+        return submit(() -> {
+            lockStrategy.lock(accountNumber, lockWaitMillis, LockStrategy.DEFAULT_TIME);
+            try {
+                return command.get();
+            } finally {
+                lockStrategy.unlock(accountNumber);
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> command) {
+        try {
+            return CompletableFuture.supplyAsync(command, executor);
+        } catch (RejectedExecutionException e) {
+            log.error("Async transaction executor is full.");
+            return CompletableFuture.failedFuture(new AccountException(ErrorCode.SERVER_BUSY));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
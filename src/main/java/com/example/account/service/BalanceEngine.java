@@ -0,0 +1,50 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 잔액 사용 / 취소 / 일괄 사용
+ *
+ * account.balance-mode 마다 구현 하나만 bean 으로 뜬다. (@ConditionalOnBalanceMode)
+ * lock / atomic / optimistic : TransactionServiceBalanceEngine
+ * single-writer              : TransactionCommandQueue
+ * ledger                     : LedgerEngine
+ * redis                      : RedisBalanceEngine
+ *
+ * 실패는 AccountException 으로 끝난 future 로 돌려주고, 실패(F) 거래 기록은 구현이 남긴다.
+ */
+public interface BalanceEngine {
+    CompletableFuture<TransactionDto> useBalance(Long userId, String accountNumber, Long amount);
+
+    CompletableFuture<TransactionDto> cancelBalance(String transactionId, String accountNumber, Long amount);
+
+    /**
+     * 결과는 요청과 같은 순서로, 실패 건(F)도 포함해서 돌려준다.
+     */
+    List<TransactionDto> useBalanceBatch(List<UseBalance.Request> requests);
+
+    /**
+     * 요청 스레드에서 lock 을 기다리지 않는 잔액 사용 (/transaction/async/**)
+     * 요청 스레드에서 lock 을 잡지 않는 구현은 useBalance 와 같다.
+     */
+    default CompletableFuture<TransactionDto> useBalanceAsync(Long userId, String accountNumber, Long amount) {
+        return useBalance(userId, accountNumber, amount);
+    }
+
+    default CompletableFuture<TransactionDto> cancelBalanceAsync(
+            String transactionId, String accountNumber, Long amount) {
+        return cancelBalance(transactionId, accountNumber, amount);
+    }
+
+    /**
+     * 아직 DB 로 옮기지 않은 거래 (원장 모드), 나머지는 DB 에서 찾는다.
+     */
+    default Optional<TransactionDto> findTransaction(String transactionId) {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.account.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * DB row lock
+ *
+ * row lock 은 트랜잭션 안에서만 유지되므로 여기서는 아무것도 하지 않는다.
+ * 대신 TransactionService 가 계좌를 SELECT ... FOR UPDATE 로 읽고, commit / rollback 때 풀린다.
+ * 실패 거래(F) 저장은 별도 트랜잭션이라 rollback 에 같이 묶이지 않는다.
+ */
+@Component
+@ConditionalOnProperty(name = "account.lock.strategy", havingValue = "database")
+public class DatabaseLockStrategy implements LockStrategy {
+    @Override
+    public void lock(String accountNumber, long waitMillis, long leaseMillis) {
+    }
+
+    @Override
+    public void unlock(String accountNumber) {
+    }
+}
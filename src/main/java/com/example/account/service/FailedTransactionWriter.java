@@ -0,0 +1,235 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.account.type.TransactionResultType.F;
+import static com.example.account.type.TransactionType.USE;
+
+/**
+ * 실패(F) 거래 내역 write-behind
+ *
+ * 요청 스레드는 큐에 넣기만 하고, 기록 스레드가 batch-size 건이 모이거나 flush-millis 가 지나면
+ * 한 트랜잭션으로 batch insert 한다. 계좌는 batch 안의 계좌번호마다 한 번만 읽는다.
+ * 큐가 가득 차면 기록을 버리고 account.failed.dropped{reason=queue-full} 를 올린다. (요청은 기다리지 않는다.)
+ * 종료할 때는 새 기록을 받지 않고(reason=shutdown), 큐에 남은 기록을 모두 쓴 다음 멈춘다.
+ * 없는 계좌의 실패는 기록할 곳이 없어서 reason=unknown-account 로 세고 버린다.
+ *
+ * 실패 시각과 거래 id 는 큐에 넣을 때 정하고, 잔액 스냅샷은 기록할 때의 잔액이다.
+ */
+@Slf4j
+@Component
+public class FailedTransactionWriter {
+    // 종료할 때 기다리고 있는 기록 스레드를 깨우는 표시, 저장하지 않는다.
+    private static final FailedTransaction WAKE_UP = new FailedTransaction(null, null, null, null);
+
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final AccountLookupCache accountLookupCache;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final TransactionMetrics transactionMetrics;
+
+    private final BlockingQueue<FailedTransaction> queue;
+    private final int batchSize;
+    private final long flushNanos;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final Counter queueFullCounter;
+    private final Counter shutdownCounter;
+    private final Counter unknownAccountCounter;
+    private final Counter flushErrorCounter;
+    private final DistributionSummary batchSizeSummary;
+
+    public FailedTransactionWriter(
+            TransactionRepository transactionRepository,
+            AccountRepository accountRepository,
+            AccountLookupCache accountLookupCache,
+            TransactionTemplate transactionTemplate,
+            TransactionIdGenerator transactionIdGenerator,
+            TransactionMetrics transactionMetrics,
+            MeterRegistry meterRegistry,
+            @Value("${account.failed-writer.queue-capacity:10000}") int queueCapacity,
+            @Value("${account.failed-writer.batch-size:500}") int batchSize,
+            @Value("${account.failed-writer.flush-millis:200}") long flushMillis) {
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.accountLookupCache = accountLookupCache;
+        this.transactionTemplate = transactionTemplate;
+        this.transactionIdGenerator = transactionIdGenerator;
+        this.transactionMetrics = transactionMetrics;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.writer = new Thread(this::run, "account-failed-writer");
+        this.writer.setDaemon(true);
+
+        queueFullCounter = meterRegistry.counter("account.failed.dropped", "reason", "queue-full");
+        shutdownCounter = meterRegistry.counter("account.failed.dropped", "reason", "shutdown");
+        unknownAccountCounter = meterRegistry.counter("account.failed.dropped", "reason", "unknown-account");
+        flushErrorCounter = meterRegistry.counter("account.failed.dropped", "reason", "flush-error");
+        batchSizeSummary = DistributionSummary.builder("account.failed.batch.size")
+                .register(meterRegistry);
+        Gauge.builder("account.failed.queue", queue, Collection::size)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * 실패 거래를 큐에 넣는다. 큐가 가득 찼거나 종료 중이면 버리고 false
+     */
+    public boolean write(String accountNumber, Long amount) {
+        if (!running) {
+            log.warn("Failed transaction dropped on shutdown. accountNumber : {}", accountNumber);
+            shutdownCounter.increment();
+            return false;
+        }
+        if (queue.offer(new FailedTransaction(
+                accountNumber, amount, transactionIdGenerator.next(), LocalDateTime.now()))) {
+            return true;
+        }
+        log.warn("Failed transaction dropped. accountNumber : {}", accountNumber);
+        queueFullCounter.increment();
+        return false;
+    }
+
+    private void run() {
+        List<FailedTransaction> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                FailedTransaction first = queue.poll(flushNanos, TimeUnit.NANOSECONDS);
+                if (first == null || first == WAKE_UP) {
+                    continue;
+                }
+                batch.add(first);
+
+                // 첫 건부터 flush-millis 까지, 또는 batch-size 가 찰 때까지 모은다.
+                long deadline = System.nanoTime() + flushNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    FailedTransaction next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null || next == WAKE_UP) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                batch.removeIf(failed -> failed == WAKE_UP);
+            } catch (InterruptedException e) {
+                // 종료로 보고 남은 기록을 마저 쓴다.
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    void flush(List<FailedTransaction> batch) {
+        try {
+            Integer unknown = transactionTemplate.execute(status -> {
+                // 계좌번호 -> 계좌, batch 안의 계좌를 한 번에 읽는다.
+                Map<String, Long> accountIds = new HashMap<>();
+                for (FailedTransaction failed : batch) {
+                    String accountNumber = failed.getAccountNumber();
+                    if (!accountIds.containsKey(accountNumber)) {
+                        accountIds.put(accountNumber, accountLookupCache.findRef(accountNumber)
+                                .map(AccountLookupCache.AccountRef::getId)
+                                .orElse(null));
+                    }
+                }
+                Map<Long, Account> accounts = new HashMap<>();
+                accountRepository.findAllById(accountIds.values().stream()
+                                .filter(Objects::nonNull)
+                                .toList())
+                        .forEach(account -> accounts.put(account.getId(), account));
+
+                List<Transaction> transactions = new ArrayList<>(batch.size());
+                int unknownAccounts = 0;
+                for (FailedTransaction failed : batch) {
+                    Account account = accounts.get(accountIds.get(failed.getAccountNumber()));
+                    if (account == null) {
+                        // 없는 계좌의 실패는 기록할 곳이 없다.
+                        log.warn("Failed transaction dropped, account not found. accountNumber : {}",
+                                failed.getAccountNumber());
+                        unknownAccounts++;
+                        continue;
+                    }
+                    transactions.add(Transaction.builder()
+                            .transactionType(USE)
+                            .transactionResultType(F)
+                            .account(account)
+                            .amount(failed.getAmount())
+                            .balanceSnapshot(account.getBalance())
+                            .transactionId(failed.getTransactionId())
+                            .transactionAt(failed.getTransactionAt())
+                            .build());
+                }
+
+                transactionMetrics.recordAfterCommit(transactionRepository.saveAll(transactions));
+                batchSizeSummary.record(transactions.size());
+                return unknownAccounts;
+            });
+            // rollback 되면 batch 전체를 flush-error 로 센다.
+            if (unknown != null) {
+                unknownAccountCounter.increment(unknown);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to write failed transactions. size : {}", batch.size(), e);
+            flushErrorCounter.increment(batch.size());
+        }
+    }
+
+    /**
+     * 기록 스레드는 insert 중일 수 있으므로 interrupt 하지 않고, 큐에 표시를 넣어서 깨운다.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        queue.offer(WAKE_UP);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    int queueSize() {
+        return queue.size();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    static class FailedTransaction {
+        private final String accountNumber;
+        private final Long amount;
+        private final String transactionId;
+        private final LocalDateTime transactionAt;
+    }
+}
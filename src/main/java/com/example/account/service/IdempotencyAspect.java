@@ -0,0 +1,150 @@
+package com.example.account.service;
+
+import com.example.account.aop.Idempotent;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Idempotency-Key 처리 (@Idempotent)
+ *
+ * 계좌 lock(@AccountLock) 보다 먼저 실행되므로, 재요청은 lock 도 DB 도 거치지 않고 저장된 응답을 받는다.
+ * 같은 키로 처리 중인 요청이 있으면 IDEMPOTENCY_KEY_IN_PROGRESS, 본문이 다르면 IDEMPOTENCY_KEY_REUSED 로 거절한다.
+ * 업무 실패(잔액 부족 등)도 그대로 돌려주고, lock 실패 / 서버 오류처럼 다시 시도하면 될 수 있는 실패는 남기지 않는다.
+ * 헤더가 없으면 그냥 처리한다.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@RequiredArgsConstructor
+public class IdempotencyAspect {
+    static final String HEADER = "Idempotency-Key";
+    static final int MAX_KEY_LENGTH = 255;
+    // 결과로 남기지 않는 실패
+    private static final Set<ErrorCode> RETRYABLE = EnumSet.of(
+            ErrorCode.INTERNAL_SERVER_ERROR,
+            ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED,
+            ErrorCode.LOCK_UNAVAILABLE,
+            ErrorCode.SERVER_BUSY);
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+
+    @Around("@annotation(idempotent)")
+    public Object aroundMethod(ProceedingJoinPoint pjp, Idempotent idempotent) throws Throwable {
+        String header = currentHeader();
+        if (header == null) {
+            return pjp.proceed();
+        }
+        if (header.isBlank() || header.length() > MAX_KEY_LENGTH) {
+            throw new AccountException(ErrorCode.INVALIDED_REQUEST);
+        }
+
+        String key = idempotent.value() + ":" + header;
+        String fingerprint = fingerprint(pjp.getArgs());
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+
+        Optional<IdempotencyStore.Entry> existing = idempotencyStore.begin(key, fingerprint);
+        if (existing.isPresent()) {
+            return replay(method, existing.get(), fingerprint);
+        }
+
+        Object result;
+        try {
+            result = pjp.proceed();
+        } catch (Throwable e) {
+            finish(key, fingerprint, null, e);
+            throw e;
+        }
+
+        if (result instanceof CompletableFuture<?> future) {
+            // 응답보다 먼저 저장되도록 저장이 끝난 future 를 돌려준다.
+            return future.whenComplete((response, e) -> finish(key, fingerprint, response, e));
+        }
+        finish(key, fingerprint, result, null);
+        return result;
+    }
+
+    private void finish(String key, String fingerprint, Object response, Throwable e) {
+        if (e == null) {
+            try {
+                idempotencyStore.complete(key, new IdempotencyStore.Entry(
+                        IdempotencyStore.Status.DONE, fingerprint, objectMapper.writeValueAsString(response)));
+            } catch (Exception writeFailure) {
+                log.warn("Failed to serialize idempotent response. key : {}", key, writeFailure);
+                idempotencyStore.release(key);
+            }
+            return;
+        }
+
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        if (cause instanceof AccountException accountException
+                && accountException.getErrorCode() != null
+                && !RETRYABLE.contains(accountException.getErrorCode())) {
+            idempotencyStore.complete(key, new IdempotencyStore.Entry(
+                    IdempotencyStore.Status.FAILED, fingerprint, accountException.getErrorCode().name()));
+            return;
+        }
+        idempotencyStore.release(key);
+    }
+
+    private Object replay(Method method, IdempotencyStore.Entry entry, String fingerprint) throws Exception {
+        if (!fingerprint.equals(entry.getFingerprint())) {
+            throw new AccountException(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+        }
+        switch (entry.getStatus()) {
+            case PENDING -> throw new AccountException(ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS);
+            case FAILED -> throw new AccountException(ErrorCode.valueOf(entry.getBody()));
+            default -> {
+            }
+        }
+
+        boolean async = CompletableFuture.class.isAssignableFrom(method.getReturnType());
+        JavaType responseType = async && method.getGenericReturnType() instanceof ParameterizedType type
+                ? objectMapper.constructType(type.getActualTypeArguments()[0])
+                : objectMapper.constructType(method.getGenericReturnType());
+        Object response = objectMapper.readValue(entry.getBody(), responseType);
+        return async ? CompletableFuture.completedFuture(response) : response;
+    }
+
+    private static String currentHeader() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            return attributes.getRequest().getHeader(HEADER);
+        }
+        return null;
+    }
+
+    private String fingerprint(Object[] args) throws Exception {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(objectMapper.writeValueAsString(args).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.account.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Idempotency-Key -> 응답 저장소 (2단계)
+ *
+ * 1단계 : 노드 안의 Caffeine 캐시 (최대 maximum-size 건, ttl 이 지나면 제거)
+ * 2단계 : Redis map (RMapCache, 키마다 ttl), 다른 노드로 들어온 재요청도 여기서 찾는다.
+ *
+ * 처음 들어온 요청이 키를 처리 중(PENDING)으로 잡고, 끝나면 응답(DONE) 또는 실패 코드(FAILED)로 바꾼다.
+ * Redis 의 처리 중 표시는 pending-ttl 만 유지해서, 처리하던 노드가 죽어도 키가 계속 막히지 않게 한다.
+ * Redis 오류나 account.redis.enabled=false 이면 노드 안에서만 중복을 거른다.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+    static final String MAP_NAME = "account:idempotency";
+
+    private final Cache<String, Entry> local;
+    private final RMapCache<String, String> remote;
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+    private final long pendingTtlMillis;
+
+    public IdempotencyStore(
+            Optional<RedissonClient> redissonClient,
+            ObjectMapper objectMapper,
+            @Value("${account.idempotency.maximum-size:100000}") long maximumSize,
+            @Value("${account.idempotency.ttl:24h}") Duration ttl,
+            @Value("${account.idempotency.pending-ttl:1m}") Duration pendingTtl) {
+        this.local = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.remote = redissonClient
+                .map(client -> client.<String, String>getMapCache(MAP_NAME, StringCodec.INSTANCE))
+                .orElse(null);
+        this.objectMapper = objectMapper;
+        this.ttlMillis = ttl.toMillis();
+        this.pendingTtlMillis = pendingTtl.toMillis();
+    }
+
+    /**
+     * key 를 처리 중으로 잡는다. 이미 기록이 있으면 잡지 않고 그 기록을 돌려준다.
+     */
+    public Optional<Entry> begin(String key, String fingerprint) {
+        Entry pending = new Entry(Status.PENDING, fingerprint, null);
+        Entry existing = local.asMap().putIfAbsent(key, pending);
+        if (existing != null) {
+            return Optional.of(existing);
+        }
+        if (remote == null) {
+            return Optional.empty();
+        }
+
+        try {
+            String found = remote.putIfAbsent(key, write(pending), pendingTtlMillis, TimeUnit.MILLISECONDS);
+            if (found == null) {
+                return Optional.empty();
+            }
+            Entry entry = read(found);
+            if (entry.getStatus() == Status.PENDING) {
+                // 다른 노드가 처리 중, 끝난 뒤의 재요청은 다시 Redis 를 보게 한다.
+                local.invalidate(key);
+            } else {
+                local.put(key, entry);
+            }
+            return Optional.of(entry);
+        } catch (RuntimeException e) {
+            log.warn("Idempotency store is unavailable. key : {}", key, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 처리 결과를 남긴다. (ttl 동안 같은 키의 재요청에 돌려준다.)
+     */
+    public void complete(String key, Entry entry) {
+        local.put(key, entry);
+        if (remote == null) {
+            return;
+        }
+        try {
+            remote.fastPut(key, write(entry), ttlMillis, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            log.warn("Failed to store idempotency key. key : {}", key, e);
+        }
+    }
+
+    /**
+     * 결과를 남기지 않고 키를 놓는다. (다시 시도하면 처음부터 처리한다.)
+     */
+    public void release(String key) {
+        local.invalidate(key);
+        if (remote == null) {
+            return;
+        }
+        try {
+            remote.fastRemove(key);
+        } catch (RuntimeException e) {
+            log.warn("Failed to release idempotency key. key : {}", key, e);
+        }
+    }
+
+    private String write(Entry entry) {
+        try {
+            return objectMapper.writeValueAsString(entry);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Entry read(String value) {
+        try {
+            return objectMapper.readValue(value, Entry.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public enum Status {
+        PENDING,
+        DONE,
+        FAILED
+    }
+
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+        private Status status;
+        // 요청 본문의 hash, 같은 키로 다른 요청이 오면 거절한다.
+        private String fingerprint;
+        // DONE : 응답 JSON, FAILED : ErrorCode
+        private String body;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.account.service;
+
+/**
+ * 계좌 id -> 잔액 (long -> long) 해시 맵
+ *
+ * 박싱 없이 배열 두 개에 open addressing(linear probing) 으로 넣는다.
+ * 계좌 id 는 DB sequence 라서 0 이하가 없으므로 0 을 빈 칸 표시로 쓴다.
+ * 원장 작성 스레드 하나만 쓰므로 동기화하지 않는다.
+ */
+class LedgerBalances {
+    static final long MISSING = Long.MIN_VALUE;
+    private static final double LOAD_FACTOR = 0.5;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+
+    LedgerBalances(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return 잔액, 없으면 MISSING
+     */
+    long get(long accountId) {
+        int i = index(accountId);
+        while (keys[i] != 0) {
+            if (keys[i] == accountId) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    void put(long accountId, long balance) {
+        if (accountId <= 0) {
+            throw new IllegalArgumentException("account id must be positive : " + accountId);
+        }
+        int i = index(accountId);
+        while (keys[i] != 0) {
+            if (keys[i] == accountId) {
+                values[i] = balance;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = accountId;
+        values[i] = balance;
+        if (++size > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int index(long accountId) {
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length << 1];
+        values = new long[oldKeys.length << 1];
+        mask = keys.length - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
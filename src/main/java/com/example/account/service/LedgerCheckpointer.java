@@ -0,0 +1,163 @@
+package com.example.account.service;
+
+import com.example.account.config.ConditionalOnBalanceMode;
+import com.example.account.domain.LedgerCheckpoint;
+import com.example.account.domain.Transaction;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.LedgerCheckpointRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.AccountEventType;
+import com.example.account.type.BalanceMode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.account.type.TransactionResultType.S;
+
+/**
+ * 원장 로그 -> DB checkpoint (account.balance-mode=ledger)
+ *
+ * checkpoint-millis 마다 마지막 checkpoint 이후 fsync 된 기록을 checkpoint-batch 건씩 읽어서 한 트랜잭션으로
+ * 거래 row 를 batch insert 하고, 계좌마다 마지막 잔액을 한 번씩 UPDATE 하고, 어디까지 옮겼는지(lsn)를 같이 저장한다.
+ * 거래마다 계좌 이벤트(AccountJournal)도 같은 트랜잭션에서 남긴다.
+ * commit 된 다음에 원장의 미반영 거래와 다 옮긴 로그 파일을 지운다.
+ * 실패하면 다음 주기에 같은 구간부터 다시 한다. (lsn 이 row 와 같은 트랜잭션이라 두 번 들어가지 않는다.)
+ */
+@Slf4j
+@Component
+@ConditionalOnBalanceMode(BalanceMode.LEDGER)
+public class LedgerCheckpointer {
+    private final LedgerEngine ledgerEngine;
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final LedgerCheckpointRepository ledgerCheckpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionMetrics transactionMetrics;
+    private final AccountJournal accountJournal;
+    private final long checkpointMillis;
+    private final int checkpointBatch;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "account-ledger-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LedgerCheckpointer(
+            LedgerEngine ledgerEngine,
+            TransactionRepository transactionRepository,
+            AccountRepository accountRepository,
+            LedgerCheckpointRepository ledgerCheckpointRepository,
+            TransactionTemplate transactionTemplate,
+            TransactionMetrics transactionMetrics,
+            AccountJournal accountJournal,
+            @Value("${account.ledger.checkpoint-millis:1000}") long checkpointMillis,
+            @Value("${account.ledger.checkpoint-batch:10000}") int checkpointBatch) {
+        this.ledgerEngine = ledgerEngine;
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.ledgerCheckpointRepository = ledgerCheckpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.transactionMetrics = transactionMetrics;
+        this.accountJournal = accountJournal;
+        this.checkpointMillis = checkpointMillis;
+        this.checkpointBatch = checkpointBatch;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(
+                this::run, checkpointMillis, checkpointMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        try {
+            // 밀려 있으면 따라잡을 때까지 이어서 한다.
+            while (checkpoint() == checkpointBatch) {
+                log.debug("Ledger checkpoint is behind. committed : {}, checkpointed : {}",
+                        ledgerEngine.committedLsn(), ledgerEngine.checkpointedLsn());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to checkpoint ledger. checkpointed : {}", ledgerEngine.checkpointedLsn(), e);
+        }
+    }
+
+    /**
+     * @return 옮긴 기록 건수
+     */
+    int checkpoint() throws IOException {
+        long fromLsn = ledgerEngine.checkpointedLsn();
+        long toLsn = Math.min(ledgerEngine.committedLsn(), fromLsn + checkpointBatch);
+        if (toLsn <= fromLsn) {
+            return 0;
+        }
+
+        List<Transaction> transactions = new ArrayList<>((int) (toLsn - fromLsn));
+        transactionTemplate.execute(status -> {
+            // 계좌 id -> 마지막 잔액, 계좌마다 UPDATE 는 한 번만 한다.
+            Map<Long, Long> balances = new HashMap<>();
+            // 계좌 id -> 이 구간의 거래 건수
+            Map<Long, Long> events = new HashMap<>();
+            ledgerEngine.read(fromLsn, toLsn, record -> {
+                transactions.add(Transaction.builder()
+                        .transactionType(record.getTransactionType())
+                        .transactionResultType(S)
+                        .account(accountRepository.getReferenceById(record.getAccountId()))
+                        .amount(record.getAmount())
+                        .balanceSnapshot(record.getBalanceAfter())
+                        .transactionId(record.getTransactionId())
+                        .transactionAt(record.getTransactionAt())
+                        .originalTransactionId(record.getOriginalTransactionId())
+                        .build());
+                balances.put(record.getAccountId(), record.getBalanceAfter());
+                events.merge(record.getAccountId(), 1L, Long::sum);
+            });
+
+            transactionRepository.saveAll(transactions);
+            LocalDateTime now = LocalDateTime.now();
+            // 계좌 id -> 이 구간 첫 이벤트 바로 앞의 순번
+            Map<Long, Long> sequences = new HashMap<>();
+            balances.forEach((accountId, balance) -> {
+                long count = events.get(accountId);
+                accountRepository.updateBalance(accountId, balance, count, now);
+                sequences.put(accountId, accountRepository.findEventSequenceById(accountId) - count);
+            });
+            for (Transaction transaction : transactions) {
+                Long accountId = transaction.getAccount().getId();
+                accountJournal.append(accountId,
+                        sequences.merge(accountId, 1L, Long::sum),
+                        AccountEventType.from(transaction.getTransactionType()),
+                        transaction.getAmount(),
+                        transaction.getBalanceSnapshot(),
+                        transaction.getTransactionId(),
+                        transaction.getTransactionAt());
+            }
+            ledgerCheckpointRepository.save(new LedgerCheckpoint(LedgerCheckpoint.ID, toLsn, now));
+            return null;
+        });
+
+        transactions.forEach(transactionMetrics::record);
+        ledgerEngine.checkpointed(toLsn, transactions.stream()
+                .map(Transaction::getTransactionId)
+                .toList());
+        return (int) (toLsn - fromLsn);
+    }
+
+    /**
+     * 남은 기록은 다음에 시작할 때 로그에서 복구되므로 진행 중인 checkpoint 만 기다린다.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
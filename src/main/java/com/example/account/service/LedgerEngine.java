@@ -0,0 +1,612 @@
+package com.example.account.service;
+
+import com.example.account.config.ConditionalOnBalanceMode;
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountStatus;
+import com.example.account.domain.LedgerCheckpoint;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.repository.LedgerCheckpointRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.BalanceMode;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import static com.example.account.type.TransactionResultType.F;
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.USE;
+
+/**
+ * 원장(ledger) 잔액 엔진 (account.balance-mode=ledger)
+ *
+ * 잔액은 메모리(계좌 id -> 잔액)에 있고, 작성 스레드 하나가 차감 / 취소를 순서대로 반영하면서 write-ahead log 에 붙여 쓴다.
+ * 큐에서 꺼낸 batch(batch-size 건)마다 fsync 는 한 번만 하고, fsync 가 끝난 다음에 응답한다.
+ * 계좌 잔액 / 거래 row 는 LedgerCheckpointer 가 뒤에서 DB 로 옮긴다. 원장이 기준이고 DB 는 checkpoint 만큼 따라온다.
+ *
+ * 시작할 때 마지막 checkpoint 이후의 로그를 다시 읽어서 잔액과 아직 DB 에 없는 거래를 복구한다.
+ * 메모리에 없는 계좌는 처음 거래할 때 DB 잔액을 읽어온다. (그 계좌는 checkpoint 가 끝난 상태다.)
+ *
+ * 잔액 사용 / 취소(/transaction/use, cancel, async, batch)와 해지할 때의 잔액 확인이 원장을 거친다.
+ * 해지를 받은 계좌는 작성 스레드가 이후의 차감 / 취소를 거절한다.
+ * 계좌 목록처럼 계좌 row 를 읽는 기능은 checkpoint 된 잔액을 본다.
+ * 로그 디렉터리(account.ledger.dir)는 DB 와 같이 유지해야 한다. (DB 를 새로 만들면 로그도 비운다.)
+ */
+@Slf4j
+@Component
+@ConditionalOnBalanceMode(BalanceMode.LEDGER)
+public class LedgerEngine implements BalanceEngine {
+    // 종료할 때 기다리고 있는 작성 스레드를 깨우는 표시
+    private static final Command WAKE_UP = new Command(null, null, null, null, null, 0L, 0L, null, null);
+
+    private final AccountUserRepository accountUserRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final LedgerCheckpointRepository ledgerCheckpointRepository;
+    private final AccountLookupCache accountLookupCache;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final FailedTransactionWriter failedTransactionWriter;
+
+    private final LedgerWriteAheadLog wal;
+    // 작성 스레드만 읽고 쓴다.
+    private final LedgerBalances balances = new LedgerBalances(1 << 16);
+    // 해지된(해지 중인) 계좌 id, 작성 스레드만 읽고 쓴다.
+    private final Set<Long> unregistered = new HashSet<>();
+    private final BlockingQueue<Command> queue;
+    // 로그에는 있고 아직 DB 에 없는 거래 (거래 id -> 거래), 취소 / 거래 확인에 쓴다.
+    private final Map<String, LedgerEntry> pending = new ConcurrentHashMap<>();
+    // 아직 DB 에 없는 취소 (원거래 id -> 취소 거래 id), 같은 거래를 두 번 취소하지 않게 한다.
+    private final Map<String, String> cancelled = new ConcurrentHashMap<>();
+    private final int batchSize;
+    private final int maxPending;
+    private final Thread writer;
+    private volatile boolean running = true;
+    // 로그를 쓰지 못했으면 더 받지 않는다.
+    private volatile boolean broken;
+    // fsync 까지 끝난 마지막 lsn
+    private volatile long committedLsn;
+    // DB 로 옮긴 마지막 lsn
+    private volatile long checkpointedLsn;
+
+    @Autowired
+    public LedgerEngine(
+            AccountUserRepository accountUserRepository,
+            AccountRepository accountRepository,
+            TransactionRepository transactionRepository,
+            LedgerCheckpointRepository ledgerCheckpointRepository,
+            AccountLookupCache accountLookupCache,
+            TransactionIdGenerator transactionIdGenerator,
+            FailedTransactionWriter failedTransactionWriter,
+            @Value("${account.ledger.dir:./ledger}") Path dir,
+            @Value("${account.ledger.segment-records:1048576}") int segmentRecords,
+            @Value("${account.ledger.fsync:true}") boolean fsync,
+            @Value("${account.ledger.batch-size:1024}") int batchSize,
+            @Value("${account.ledger.queue-capacity:100000}") int queueCapacity,
+            @Value("${account.ledger.max-pending:1000000}") int maxPending) throws IOException {
+        this(accountUserRepository, accountRepository, transactionRepository, ledgerCheckpointRepository,
+                accountLookupCache, transactionIdGenerator, failedTransactionWriter,
+                new LedgerWriteAheadLog(dir, segmentRecords, fsync), batchSize, queueCapacity, maxPending);
+    }
+
+    LedgerEngine(
+            AccountUserRepository accountUserRepository,
+            AccountRepository accountRepository,
+            TransactionRepository transactionRepository,
+            LedgerCheckpointRepository ledgerCheckpointRepository,
+            AccountLookupCache accountLookupCache,
+            TransactionIdGenerator transactionIdGenerator,
+            FailedTransactionWriter failedTransactionWriter,
+            LedgerWriteAheadLog wal,
+            int batchSize,
+            int queueCapacity,
+            int maxPending) {
+        this.accountUserRepository = accountUserRepository;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.ledgerCheckpointRepository = ledgerCheckpointRepository;
+        this.accountLookupCache = accountLookupCache;
+        this.transactionIdGenerator = transactionIdGenerator;
+        this.failedTransactionWriter = failedTransactionWriter;
+        this.wal = wal;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.writer = new Thread(this::run, "account-ledger-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * 마지막 checkpoint 이후의 로그로 잔액 / 미반영 거래를 복구한 뒤 작성 스레드를 시작한다.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        long checkpointLsn = ledgerCheckpointRepository.findById(LedgerCheckpoint.ID)
+                .map(LedgerCheckpoint::getLsn)
+                .orElse(0L);
+        long startedAt = System.nanoTime();
+        Set<Long> replayed = new HashSet<>();
+        wal.recover(checkpointLsn, record -> {
+            balances.put(record.getAccountId(), record.getBalanceAfter());
+            replayed.add(record.getAccountId());
+            pending.put(record.getTransactionId(), LedgerEntry.from(record));
+            if (record.getOriginalTransactionId() != null) {
+                cancelled.put(record.getOriginalTransactionId(), record.getTransactionId());
+            }
+        });
+        // 로그로 잔액을 복구한 계좌는 DB 를 다시 읽지 않으므로 해지 여부를 여기서 본다.
+        if (!replayed.isEmpty()) {
+            unregistered.addAll(accountRepository.findUnregisteredIds(replayed));
+        }
+        checkpointedLsn = checkpointLsn;
+        committedLsn = wal.lastLsn();
+        log.info("Ledger recovered. checkpoint : {}, last : {}, replayed : {}, {} ms",
+                checkpointLsn, committedLsn, pending.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        writer.start();
+    }
+
+    /**
+     * 소유주 / 상태는 요청 스레드에서 확인하고, 잔액 확인과 차감은 작성 스레드가 한다.
+     */
+    @Override
+    public CompletableFuture<TransactionDto> useBalance(
+            Long userId, String accountNumber, Long amount) {
+        CompletableFuture<TransactionDto> result;
+        try {
+            AccountLookupCache.AccountRef ref = accountLookupCache.findRef(accountNumber)
+                    .filter(found -> Objects.equals(found.getOwnerId(), userId))
+                    .orElseThrow(() -> notOwned(userId, accountNumber));
+            if (ref.getAccountStatus() == AccountStatus.UNREGISTERED) {
+                throw new AccountException(ErrorCode.ACCOUNT_ALREADY_DELETED);
+            }
+            result = submit(USE, ref.getId(), accountNumber, amount, null, 0L, 0L);
+        } catch (AccountException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return whenFailed(result, accountNumber, amount);
+    }
+
+    /**
+     * 취소 여부는 원장(미반영 취소)과 DB(originalTransactionId 인덱스)를 보고,
+     * 동시에 들어온 같은 거래의 취소는 작성 스레드가 다시 걸러낸다.
+     */
+    @Override
+    public CompletableFuture<TransactionDto> cancelBalance(
+            String transactionId, String accountNumber, Long amount) {
+        CompletableFuture<TransactionDto> result;
+        try {
+            // 이 뒤에 checkpoint 가 끝나면 작성 스레드가 DB 를 다시 본다.
+            long checkedLsn = checkpointedLsn;
+            if (cancelled.containsKey(transactionId)
+                    || transactionRepository.existsByOriginalTransactionId(transactionId)) {
+                throw new AccountException(ErrorCode.TRANSACTION_ALREADY_CANCELLED);
+            }
+            LedgerEntry original = findEntry(transactionId)
+                    .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
+            AccountLookupCache.AccountRef ref = accountLookupCache.findRef(accountNumber)
+                    .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+            if (!Objects.equals(original.getAccountId(), ref.getId())) {
+                throw new AccountException(ErrorCode.TRANSACTION_UNMATCHED);
+            }
+            if (!Objects.equals(original.getAmount(), amount)) {
+                throw new AccountException(ErrorCode.CANCEL_MUST_FULLY);
+            }
+            if (original.getTransactionAt().isBefore(LocalDateTime.now().minusYears(1))) {
+                throw new AccountException(ErrorCode.TOO_OLD_ORDER_TO_CANCEL);
+            }
+            long originalIdValue = TransactionIdGenerator.parse(transactionId);
+            if (originalIdValue < 0) {
+                // 로그에 원거래를 남길 수 없는 형식 (거래 id 생성기 이전의 거래)
+                throw new AccountException(ErrorCode.INVALIDED_REQUEST);
+            }
+            result = submit(CANCEL, ref.getId(), accountNumber, amount,
+                    transactionId, originalIdValue, checkedLsn);
+        } catch (AccountException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return whenFailed(result, accountNumber, amount);
+    }
+
+    /**
+     * 요청을 모두 큐에 넣고 기다린다. 결과는 요청과 같은 순서로, 실패 건(F)도 포함해서 돌려준다.
+     */
+    @Override
+    public List<TransactionDto> useBalanceBatch(List<UseBalance.Request> requests) {
+        List<CompletableFuture<TransactionDto>> futures = new ArrayList<>(requests.size());
+        for (UseBalance.Request request : requests) {
+            futures.add(useBalance(request.getUserId(), request.getAccountNumber(), request.getAmount()));
+        }
+
+        List<TransactionDto> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            UseBalance.Request request = requests.get(i);
+            try {
+                results.add(futures.get(i).join());
+            } catch (CompletionException e) {
+                results.add(TransactionDto.builder()
+                        .accountNumber(request.getAccountNumber())
+                        .transactionType(USE)
+                        .transactionResultType(F)
+                        .errorCode(e.getCause() instanceof AccountException accountException
+                                ? accountException.getErrorCode()
+                                : ErrorCode.INTERNAL_SERVER_ERROR)
+                        .amount(request.getAmount())
+                        .build());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 해지 트랜잭션 안에서 호출한다.
+     * 작성 스레드가 원장 잔액을 확인하고, 잔액이 없으면 이 뒤로 들어오는 차감 / 취소를 거절한다.
+     *
+     * @return 원장 잔액
+     */
+    public long unregister(Long accountId) {
+        if (broken) {
+            throw new AccountException(ErrorCode.INTERNAL_SERVER_ERROR);
+        }
+        Command command = Command.status(accountId, AccountStatus.UNREGISTERED);
+        if (!running || !queue.offer(command)) {
+            throw new AccountException(ErrorCode.SERVER_BUSY);
+        }
+        try {
+            return command.future.join().getBalanceSnapshot();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof AccountException accountException) {
+                throw accountException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 해지 트랜잭션이 rollback 되면 거래를 다시 받는다.
+     */
+    public void reregister(Long accountId) {
+        if (!queue.offer(Command.status(accountId, AccountStatus.IN_USE))) {
+            log.error("Ledger queue is full. account stays unregistered until restart. accountId : {}", accountId);
+        }
+    }
+
+    /**
+     * 아직 DB 로 옮기지 않은 거래, 없으면 DB 를 보면 된다.
+     */
+    @Override
+    public Optional<TransactionDto> findTransaction(String transactionId) {
+        return Optional.ofNullable(pending.get(transactionId))
+                .map(entry -> entry.toDto(entry.getAccountNumber() != null
+                        ? entry.getAccountNumber()
+                        : accountRepository.findById(entry.getAccountId())
+                        .map(Account::getAccountNumber)
+                        .orElse(null)));
+    }
+
+    private Optional<LedgerEntry> findEntry(String transactionId) {
+        LedgerEntry entry = pending.get(transactionId);
+        if (entry != null) {
+            return Optional.of(entry);
+        }
+        return transactionRepository.findByTransactionId(transactionId)
+                .map(LedgerEntry::from);
+    }
+
+    // 계좌가 없거나 소유주가 다를 때, 사용자가 없으면 그 쪽을 먼저 알려준다. (lock 모드와 같은 순서)
+    private AccountException notOwned(Long userId, String accountNumber) {
+        if (!accountUserRepository.existsById(userId)) {
+            return new AccountException(ErrorCode.USER_NOT_FOUND);
+        }
+        if (accountLookupCache.findRef(accountNumber).isEmpty()) {
+            return new AccountException(ErrorCode.ACCOUNT_NOT_FOUND);
+        }
+        return new AccountException(ErrorCode.ACCOUNT_UNMATCHED);
+    }
+
+    private CompletableFuture<TransactionDto> submit(
+            TransactionType type, Long accountId, String accountNumber, Long amount,
+            String originalTransactionId, long originalTransactionIdValue, long checkedLsn) {
+        if (broken) {
+            throw new AccountException(ErrorCode.INTERNAL_SERVER_ERROR);
+        }
+        // checkpoint 가 밀리면 메모리가 계속 늘어나므로 받지 않는다.
+        if (pending.size() >= maxPending) {
+            throw new AccountException(ErrorCode.SERVER_BUSY);
+        }
+        Command command = new Command(type, accountId, accountNumber, amount,
+                originalTransactionId, originalTransactionIdValue, checkedLsn, null, new CompletableFuture<>());
+        if (!running || !queue.offer(command)) {
+            log.error("Ledger queue is full. accountNumber : {}", accountNumber);
+            throw new AccountException(ErrorCode.SERVER_BUSY);
+        }
+        return command.future;
+    }
+
+    private CompletableFuture<TransactionDto> whenFailed(
+            CompletableFuture<TransactionDto> result, String accountNumber, Long amount) {
+        return result.whenComplete((dto, e) -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof AccountException accountException) {
+                log.error("Failed to apply ledger. " + accountException.getErrorMessage());
+                failedTransactionWriter.write(accountNumber, amount);
+            }
+        });
+    }
+
+    private void run() {
+        List<Command> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Command first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null || first == WAKE_UP) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                batch.removeIf(command -> command == WAKE_UP);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                apply(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * batch 를 순서대로 반영하고 로그에 쓴 뒤 fsync 한 번, 그 다음에 응답한다.
+     *
+     * fsync 가 실패해도 이미 반영한 거래는 메모리 잔액과 로그(매핑된 파일)에 남아 있어 checkpoint / 복구 때 그대로 읽힌다.
+     * 그래서 실패로 응답하지 않고 반영된 것으로 응답한 뒤, 이후의 거래만 받지 않는다.
+     */
+    void apply(List<Command> batch) {
+        List<Command> applied = new ArrayList<>(batch.size());
+        for (Command command : batch) {
+            if (broken) {
+                command.future.completeExceptionally(
+                        new AccountException(ErrorCode.INTERNAL_SERVER_ERROR));
+                continue;
+            }
+            try {
+                if (command.status != null) {
+                    changeStatus(command);
+                    continue;
+                }
+                command.entry = append(command);
+                applied.add(command);
+            } catch (AccountException e) {
+                command.future.completeExceptionally(e);
+            } catch (DataAccessException e) {
+                log.error("Failed to load balance. accountId : {}", command.accountId, e);
+                command.future.completeExceptionally(
+                        new AccountException(ErrorCode.INTERNAL_SERVER_ERROR));
+            } catch (IOException | UncheckedIOException e) {
+                // 로그에 쓰기 전에 실패했으므로 이 거래는 반영되지 않았다.
+                log.error("Failed to write ledger log.", e);
+                broken = true;
+                command.future.completeExceptionally(
+                        new AccountException(ErrorCode.INTERNAL_SERVER_ERROR));
+            }
+        }
+
+        try {
+            wal.sync();
+        } catch (UncheckedIOException e) {
+            log.error("Failed to sync ledger log. {} applied records are kept, no more writes.", applied.size(), e);
+            broken = true;
+        }
+
+        // checkpoint 가 committedLsn 까지 읽고 pending 에서 지우므로, pending 에 먼저 넣는다.
+        for (Command command : applied) {
+            pending.put(command.entry.getTransactionId(), command.entry);
+        }
+        committedLsn = wal.lastLsn();
+        for (Command command : applied) {
+            command.future.complete(command.entry.toDto(command.accountNumber));
+        }
+    }
+
+    private void changeStatus(Command command) {
+        if (command.status == AccountStatus.IN_USE) {
+            unregistered.remove(command.accountId);
+            command.future.complete(null);
+            return;
+        }
+
+        long balance = balanceOf(command.accountId);
+        if (unregistered.contains(command.accountId)) {
+            throw new AccountException(ErrorCode.ACCOUNT_ALREADY_DELETED);
+        }
+        if (balance > 0) {
+            throw new AccountException(ErrorCode.ACCOUNT_DELETE_HAS_BALANCE);
+        }
+        unregistered.add(command.accountId);
+        command.future.complete(TransactionDto.builder()
+                .balanceSnapshot(balance)
+                .build());
+    }
+
+    // 메모리에 없는 계좌는 DB 잔액 / 상태를 읽어온다.
+    private long balanceOf(Long accountId) {
+        long balance = balances.get(accountId);
+        if (balance != LedgerBalances.MISSING) {
+            return balance;
+        }
+        Long loaded = accountRepository.findBalanceById(accountId);
+        if (loaded == null) {
+            throw new AccountException(ErrorCode.ACCOUNT_NOT_FOUND);
+        }
+        if (accountRepository.findStatusById(accountId) == AccountStatus.UNREGISTERED) {
+            unregistered.add(accountId);
+        }
+        balances.put(accountId, loaded);
+        return loaded;
+    }
+
+    private LedgerEntry append(Command command) throws IOException {
+        long balance = balanceOf(command.accountId);
+        if (unregistered.contains(command.accountId)) {
+            throw new AccountException(ErrorCode.ACCOUNT_ALREADY_DELETED);
+        }
+
+        long balanceAfter;
+        if (command.type == USE) {
+            if (balance < command.amount) {
+                throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+            }
+            balanceAfter = balance - command.amount;
+        } else {
+            if (cancelled.containsKey(command.originalTransactionId)
+                    || (checkpointedLsn != command.checkedLsn
+                    && transactionRepository.existsByOriginalTransactionId(command.originalTransactionId))) {
+                throw new AccountException(ErrorCode.TRANSACTION_ALREADY_CANCELLED);
+            }
+            balanceAfter = balance + command.amount;
+        }
+
+        long transactionIdValue = transactionIdGenerator.nextId();
+        // 로그에는 micros 까지 남으므로 응답과 DB row 가 같도록 맞춘다.
+        LocalDateTime transactionAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        wal.append(command.type, command.accountId, command.amount, balanceAfter,
+                transactionIdValue, LedgerRecord.toMicros(transactionAt), command.originalTransactionIdValue);
+        balances.put(command.accountId, balanceAfter);
+        String transactionId = TransactionIdGenerator.format(transactionIdValue);
+        if (command.originalTransactionId != null) {
+            cancelled.put(command.originalTransactionId, transactionId);
+        }
+
+        return new LedgerEntry(command.type, command.accountId, command.accountNumber,
+                command.amount, balanceAfter, transactionId, transactionAt, command.originalTransactionId);
+    }
+
+    long committedLsn() {
+        return committedLsn;
+    }
+
+    long checkpointedLsn() {
+        return checkpointedLsn;
+    }
+
+    /**
+     * (fromLsn, toLsn] 기록을 읽는다. checkpoint 스레드에서만 호출한다.
+     */
+    void read(long fromLsn, long toLsn, Consumer<LedgerRecord> consumer) {
+        wal.read(fromLsn, toLsn, consumer);
+    }
+
+    /**
+     * toLsn 까지 DB 에 commit 되었으면 미반영 거래와 로그 파일을 지운다. checkpoint 스레드에서만 호출한다.
+     */
+    void checkpointed(long toLsn, Collection<String> transactionIds) throws IOException {
+        // 취소 표시를 지우기 전에 올려서, 작성 스레드가 표시를 못 찾으면 DB 를 다시 보게 한다.
+        checkpointedLsn = toLsn;
+        for (String transactionId : transactionIds) {
+            LedgerEntry entry = pending.remove(transactionId);
+            if (entry != null && entry.getOriginalTransactionId() != null) {
+                cancelled.remove(entry.getOriginalTransactionId());
+            }
+        }
+        wal.truncate(toLsn);
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        queue.offer(WAKE_UP);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        wal.close();
+    }
+
+    @RequiredArgsConstructor
+    static class Command {
+        private final TransactionType type;
+        private final Long accountId;
+        private final String accountNumber;
+        private final Long amount;
+        // 취소만 (원거래 id, 그 TransactionIdGenerator 값, 요청 스레드가 취소 여부를 볼 때의 checkpoint lsn)
+        private final String originalTransactionId;
+        private final long originalTransactionIdValue;
+        private final long checkedLsn;
+        // 상태 변경만 (UNREGISTERED : 해지, IN_USE : 해지 rollback), 로그에 남기지 않는다.
+        private final AccountStatus status;
+        private final CompletableFuture<TransactionDto> future;
+        private LedgerEntry entry;
+
+        static Command status(Long accountId, AccountStatus status) {
+            return new Command(null, accountId, null, null, null, 0L, 0L, status, new CompletableFuture<>());
+        }
+    }
+
+    /**
+     * 로그에 남긴 거래 한 건 (성공 거래만 남는다.)
+     */
+    @Getter
+    @RequiredArgsConstructor
+    static class LedgerEntry {
+        private final TransactionType transactionType;
+        private final Long accountId;
+        // 로그에서 복구한 거래는 계좌번호가 없다.
+        private final String accountNumber;
+        private final Long amount;
+        private final Long balanceAfter;
+        private final String transactionId;
+        private final LocalDateTime transactionAt;
+        // 취소 거래만
+        private final String originalTransactionId;
+
+        static LedgerEntry from(LedgerRecord record) {
+            return new LedgerEntry(record.getTransactionType(), record.getAccountId(), null,
+                    record.getAmount(), record.getBalanceAfter(),
+                    record.getTransactionId(), record.getTransactionAt(),
+                    record.getOriginalTransactionId());
+        }
+
+        static LedgerEntry from(Transaction transaction) {
+            return new LedgerEntry(transaction.getTransactionType(), transaction.getAccount().getId(), null,
+                    transaction.getAmount(), transaction.getBalanceSnapshot(),
+                    transaction.getTransactionId(), transaction.getTransactionAt(),
+                    transaction.getOriginalTransactionId());
+        }
+
+        TransactionDto toDto(String accountNumber) {
+            return TransactionDto.builder()
+                    .accountNumber(accountNumber)
+                    .transactionType(transactionType)
+                    .transactionResultType(S)
+                    .amount(amount)
+                    .balanceSnapshot(balanceAfter)
+                    .transactionId(transactionId)
+                    .transactionAt(transactionAt)
+                    .build();
+        }
+    }
+}
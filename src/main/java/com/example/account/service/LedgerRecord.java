@@ -0,0 +1,63 @@
+package com.example.account.service;
+
+import com.example.account.type.TransactionType;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 원장 로그(WAL) 한 건
+ *
+ * 읽을 때는 같은 객체를 다시 채워서 넘기므로(재생할 때 건마다 객체를 만들지 않는다),
+ * 받은 쪽은 콜백 밖에서 참조를 들고 있으면 안 된다.
+ */
+@Getter
+public class LedgerRecord {
+    private long lsn;
+    private TransactionType transactionType;
+    private long accountId;
+    private long amount;
+    private long balanceAfter;
+    // TransactionIdGenerator.nextId() 값, 문자열은 getTransactionId()
+    private long transactionIdValue;
+    // UTC 기준 epoch micros (LocalDateTime 을 그대로 옮긴다.)
+    private long transactionAtMicros;
+    // 취소한 원거래의 TransactionIdGenerator 값, 사용 거래는 0
+    private long originalTransactionIdValue;
+
+    LedgerRecord set(long lsn, TransactionType transactionType, long accountId, long amount,
+                     long balanceAfter, long transactionIdValue, long transactionAtMicros,
+                     long originalTransactionIdValue) {
+        this.lsn = lsn;
+        this.transactionType = transactionType;
+        this.accountId = accountId;
+        this.amount = amount;
+        this.balanceAfter = balanceAfter;
+        this.transactionIdValue = transactionIdValue;
+        this.transactionAtMicros = transactionAtMicros;
+        this.originalTransactionIdValue = originalTransactionIdValue;
+        return this;
+    }
+
+    public String getTransactionId() {
+        return TransactionIdGenerator.format(transactionIdValue);
+    }
+
+    public String getOriginalTransactionId() {
+        return originalTransactionIdValue == 0L ? null : TransactionIdGenerator.format(originalTransactionIdValue);
+    }
+
+    public LocalDateTime getTransactionAt() {
+        return toLocalDateTime(transactionAtMicros);
+    }
+
+    static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    static LocalDateTime toLocalDateTime(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
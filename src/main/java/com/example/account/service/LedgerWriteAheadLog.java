@@ -0,0 +1,252 @@
+package com.example.account.service;
+
+import com.example.account.type.TransactionType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 원장 write-ahead log
+ *
+ * 고정 길이(64 byte) 기록을 순서대로 붙여 쓰는 memory-mapped 파일이다.
+ * 파일 하나(segment)에 segment-records 건을 쓰고, 다 차면 다음 파일을 만든다. (ledger-{첫 lsn}.wal)
+ * append 는 매핑된 메모리에 쓰기만 하고, sync() 가 그 사이에 쓴 범위를 한 번에 디스크로 내린다. (group fsync)
+ *
+ * 기록 : lsn(8) | 계좌 id(8) | 금액(8) | 거래 후 잔액(8) | 거래 시각 micros(8) | 거래 id(8) | 종류(1) | ... |
+ *        원거래 id(8, 취소만, 없으면 0) | crc32c(4)
+ * lsn 은 1 부터 1씩 증가하고, lsn 이 0 이면 아직 쓰지 않은 자리이다.
+ * 복구할 때 crc 가 맞지 않거나 lsn 이 이어지지 않는 곳을 로그의 끝으로 본다. (쓰다 만 기록)
+ *
+ * append / sync 는 원장 작성 스레드 하나만, read / truncate 는 checkpoint 스레드만 호출한다.
+ */
+class LedgerWriteAheadLog implements Closeable {
+    static final int RECORD_BYTES = 64;
+    private static final int TYPE_OFFSET = 48;
+    private static final int ORIGINAL_OFFSET = 52;
+    private static final int CRC_OFFSET = 60;
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final Path dir;
+    private final int segmentRecords;
+    private final boolean fsync;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final CRC32C crc = new CRC32C();
+
+    private Segment current;
+    private int position;
+    private int syncedPosition;
+    private long nextLsn = 1L;
+
+    LedgerWriteAheadLog(Path dir, int segmentRecords, boolean fsync) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.segmentRecords = segmentRecords;
+        this.fsync = fsync;
+    }
+
+    /**
+     * 로그 파일을 열고, fromLsn 보다 큰 기록을 순서대로 consumer 에 넘긴다.
+     * 쓰다 만 꼬리는 지워서 다음 append 가 그 자리부터 쓰게 한다.
+     *
+     * @return 마지막 lsn (기록이 없으면 0)
+     */
+    long recover(long fromLsn, Consumer<LedgerRecord> consumer) throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(path -> path.getFileName().toString().matches("ledger-\\d{20}\\.wal"))
+                    .sorted()
+                    .toList();
+        }
+
+        LedgerRecord record = new LedgerRecord();
+        long lastLsn = 0L;
+        boolean ended = false;
+        for (Path file : files) {
+            if (ended) {
+                // 끝난 로그 뒤의 파일은 쓰이지 않은 것이다.
+                Files.delete(file);
+                continue;
+            }
+            Segment segment = open(file, Long.parseLong(file.getFileName().toString().substring(7, 27)));
+            segments.put(segment.firstLsn, segment);
+
+            int index = 0;
+            for (; index < segmentRecords; index++) {
+                long lsn = segment.firstLsn + index;
+                if (!isValid(segment.buffer, index * RECORD_BYTES, lsn)) {
+                    ended = true;
+                    break;
+                }
+                if (lsn > fromLsn) {
+                    consumer.accept(read(segment.buffer, index * RECORD_BYTES, record));
+                }
+                lastLsn = lsn;
+            }
+            if (ended) {
+                clearTail(segment, index);
+            }
+            current = segment;
+            position = index * RECORD_BYTES;
+        }
+
+        nextLsn = lastLsn + 1;
+        if (current == null) {
+            // 처음 시작이거나, checkpoint 이후 기록이 모두 지워진 경우
+            nextLsn = Math.max(nextLsn, fromLsn + 1);
+            roll();
+        }
+        syncedPosition = position;
+        return lastLsn;
+    }
+
+    long append(TransactionType type, long accountId, long amount, long balanceAfter,
+                long transactionIdValue, long transactionAtMicros,
+                long originalTransactionIdValue) throws IOException {
+        if (position == segmentRecords * RECORD_BYTES) {
+            sync();
+            roll();
+        }
+
+        MappedByteBuffer buffer = current.buffer;
+        long lsn = nextLsn++;
+        buffer.putLong(position, lsn);
+        buffer.putLong(position + 8, accountId);
+        buffer.putLong(position + 16, amount);
+        buffer.putLong(position + 24, balanceAfter);
+        buffer.putLong(position + 32, transactionAtMicros);
+        buffer.putLong(position + 40, transactionIdValue);
+        buffer.put(position + TYPE_OFFSET, (byte) type.ordinal());
+        buffer.putLong(position + ORIGINAL_OFFSET, originalTransactionIdValue);
+        buffer.putInt(position + CRC_OFFSET, checksum(buffer, position));
+        position += RECORD_BYTES;
+        return lsn;
+    }
+
+    /**
+     * 마지막 sync 이후에 쓴 기록을 디스크로 내린다.
+     */
+    void sync() {
+        if (fsync && position > syncedPosition) {
+            current.buffer.force(syncedPosition, position - syncedPosition);
+        }
+        syncedPosition = position;
+    }
+
+    /**
+     * fromLsn 보다 크고 toLsn 이하인 기록을 넘긴다. (sync 된 범위만 읽어야 한다.)
+     */
+    void read(long fromLsn, long toLsn, Consumer<LedgerRecord> consumer) {
+        LedgerRecord record = new LedgerRecord();
+        for (long lsn = fromLsn + 1; lsn <= toLsn; lsn++) {
+            Segment segment = segments.floorEntry(lsn).getValue();
+            consumer.accept(read(segment.buffer, (int) (lsn - segment.firstLsn) * RECORD_BYTES, record));
+        }
+    }
+
+    /**
+     * checkpoint 가 끝난 파일을 지운다. (모든 기록의 lsn 이 checkpointLsn 이하인 파일)
+     */
+    void truncate(long checkpointLsn) throws IOException {
+        for (Map.Entry<Long, Segment> entry : segments.entrySet()) {
+            Map.Entry<Long, Segment> next = segments.higherEntry(entry.getKey());
+            if (next == null || next.getKey() - 1 > checkpointLsn) {
+                return;
+            }
+            segments.remove(entry.getKey());
+            Files.deleteIfExists(entry.getValue().path);
+        }
+    }
+
+    long lastLsn() {
+        return nextLsn - 1;
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        if (current != null) {
+            sync();
+        }
+    }
+
+    private void roll() throws IOException {
+        Path file = dir.resolve(String.format("ledger-%020d.wal", nextLsn));
+        current = open(file, nextLsn);
+        segments.put(current.firstLsn, current);
+        clearTail(current, 0);
+        position = 0;
+        syncedPosition = 0;
+    }
+
+    private Segment open(Path file, long firstLsn) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(firstLsn, file,
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_BYTES));
+        }
+    }
+
+    private boolean isValid(MappedByteBuffer buffer, int offset, long lsn) {
+        return buffer.getLong(offset) == lsn && buffer.getInt(offset + CRC_OFFSET) == checksum(buffer, offset);
+    }
+
+    // index 부터 파일 끝까지 남아있는 기록을 지운다. (예전에 쓰다 만 기록이 나중에 이어 붙은 것처럼 보이지 않게)
+    private void clearTail(Segment segment, int index) {
+        boolean cleared = false;
+        for (int i = index; i < segmentRecords; i++) {
+            int offset = i * RECORD_BYTES;
+            if (segment.buffer.getLong(offset) != 0L) {
+                for (int j = 0; j < RECORD_BYTES; j += 8) {
+                    segment.buffer.putLong(offset + j, 0L);
+                }
+                cleared = true;
+            }
+        }
+        if (cleared && fsync) {
+            segment.buffer.force();
+        }
+    }
+
+    private int checksum(MappedByteBuffer buffer, int offset) {
+        crc.reset();
+        crc.update(buffer.slice(offset, CRC_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    private static LedgerRecord read(MappedByteBuffer buffer, int offset, LedgerRecord record) {
+        return record.set(
+                buffer.getLong(offset),
+                TYPES[buffer.get(offset + TYPE_OFFSET)],
+                buffer.getLong(offset + 8),
+                buffer.getLong(offset + 16),
+                buffer.getLong(offset + 24),
+                buffer.getLong(offset + 40),
+                buffer.getLong(offset + 32),
+                buffer.getLong(offset + ORIGINAL_OFFSET));
+    }
+
+    private static class Segment {
+        private final long firstLsn;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+
+        Segment(long firstLsn, Path path, MappedByteBuffer buffer) {
+            this.firstLsn = firstLsn;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JVM 내부 lock (계좌번호를 해시해서 나눈 ReentrantLock)
+ * 단일 노드에서는 이것만으로 충분하고, Redis lock 앞단(LockService)에서도 쓴다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "account.lock.strategy", havingValue = "local")
+public class LocalLockStrategy implements LockStrategy {
+    private final ReentrantLock[] stripes;
+
+    @Value("${account.lock.wait-millis:1000}")
+    private long waitMillis = 1000L;
+
+    public LocalLockStrategy(@Value("${account.lock.local-stripes:64}") int localStripes) {
+        this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(localStripes, 1) * 2 - 1)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void lock(String accountNumber, long waitMillis, long leaseMillis) {
+        if (!tryLock(accountNumber, waitMillis > 0 ? waitMillis : this.waitMillis)) {
+            log.error("Local lock acquisition failed.");
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED);
+        }
+    }
+
+    @Override
+    public void unlock(String accountNumber) {
+        getLock(accountNumber).unlock();
+    }
+
+    boolean tryLock(String accountNumber, long waitMillis) {
+        try {
+            return getLock(accountNumber).tryLock(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    ReentrantLock getLock(String accountNumber) {
+        int h = accountNumber.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+}
@@ -1,13 +1,16 @@
 package com.example.account.service;
 
+import com.example.account.aop.AccountLock;
 import com.example.account.aop.AccountLockIdInterface;
 import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
+import com.example.account.type.BalanceMode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Aspect
@@ -15,22 +18,34 @@ import org.springframework.stereotype.Component;
 @Slf4j
 @RequiredArgsConstructor
 public class LockAopAspect {
-    private final LockService lockService;
+    private final LockStrategy lockStrategy;
 
-    @Around("@annotation(com.example.account.aop.AccountLock) && args(request)")
+    // lock 모드가 아니면 순서는 작업 스레드(single-writer)나 DB 조건부 UPDATE(atomic)가 보장한다.
+    @Value("${account.balance-mode:lock}")
+    private BalanceMode balanceMode = BalanceMode.LOCK;
+
+    @Around("@annotation(accountLock) && args(request)")
     public Object aroundMethod(
             ProceedingJoinPoint pjp,
+            AccountLock accountLock,
             AccountLockIdInterface request
     ) throws Throwable {
+        if (balanceMode != BalanceMode.LOCK) {
+            return pjp.proceed();
+        }
+
         // lock 취득 시도
-        lockService.lock(request.getAccountNumber());
+        lockStrategy.lock(
+                request.getAccountNumber(),
+                accountLock.tryLockTime(),
+                accountLock.leaseTime());
         try {
             // before
             return pjp.proceed();
             // after
         } finally {
             // lock 해제
-            lockService.unlock(request.getAccountNumber());
+            lockStrategy.unlock(request.getAccountNumber());
         }
     }
 }
@@ -2,51 +2,323 @@ package com.example.account.service;
 
 import com.example.account.exception.AccountException;
 import com.example.account.type.ErrorCode;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
-    스핀락 실습을 위한 클래스
+    스핀락 실습을 위한 클래스 (account.lock.strategy=redis, 기본값)
+
+    1단계 : 계좌번호로 나눈 JVM 내부 lock (같은 노드의 요청은 여기서 대기한다)
+    2단계 : Redis 분산 lock
+
+    Redis 오류는 lock 없이 진행하지 않고 LOCK_UNAVAILABLE 로 실패시킨다.
+    adaptive-lease 를 켜면 lease 를 최근 보유 시간 p99 * multiplier 로 잡는다.
+    (보유 중에 죽은 노드가 계좌를 막고 있는 시간을 줄인다.)
+    lease 를 넘기면 DB 커밋 전에 다른 노드가 lock 을 잡을 수 있으므로
+    최근 최장 보유 시간 * 2 와 min-millis 아래로는 내리지 않고, 넘긴 경우는 account.lock.lease.expired 로 센다.
+
+    virtual thread 에서 대기해도 carrier 를 잡고 있지 않도록 synchronized 대신 ReentrantLock 을 쓴다.
+    (Redisson 의 tryLock 대기도 j.u.c 기반이라 고정(pinning)되지 않는다.)
  */
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
-public class LockService {
-    @Autowired
+@ConditionalOnProperty(name = "account.lock.strategy", havingValue = "redis", matchIfMissing = true)
+public class LockService implements LockStrategy, AsyncLockStrategy {
+    // p99 를 믿을 수 있을 만큼 쌓이기 전에는 설정된 lease 를 쓴다.
+    static final long ADAPTIVE_MIN_SAMPLES = 100L;
+    private static final long ADAPTIVE_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
     private final RedissonClient redissonClient;
+    private final LocalLockStrategy localLock;
+    // 로컬 lock 을 잡은 스레드만 접근하므로 계좌당 하나만 들어간다.
+    private final Map<String, HeldLock> heldLocks = new ConcurrentHashMap<>();
+    // 비동기 lock : owner id -> 보유 정보
+    private final Map<Long, HeldLock> heldAsyncLocks = new ConcurrentHashMap<>();
+    // 비동기 lock 의 owner id, 스레드 id(양수)와 겹치지 않도록 음수를 쓴다.
+    private final AtomicLong asyncOwnerIds = new AtomicLong();
+
+    private final Timer localWaitTimer;
+    private final Timer remoteWaitTimer;
+    private final Counter localContentionCounter;
+    private final Counter remoteContentionCounter;
+    private final Counter remoteErrorCounter;
+    private final Counter leaseExpiredCounter;
+    private final Timer holdTimer;
+
+    private final AtomicLong adaptiveLeaseRefreshedAt = new AtomicLong(System.nanoTime());
+    private volatile long adaptiveLeaseMillis = -1L;
+
+    @Value("${account.lock.wait-millis:1000}")
+    private long waitMillis = 1000L;
+
+    @Value("${account.lock.lease-millis:15000}")
+    private long leaseMillis = 15000L;
+
+    @Value("${account.lock.adaptive-lease.enabled:false}")
+    private boolean adaptiveLease = false;
+
+    @Value("${account.lock.adaptive-lease.multiplier:3}")
+    private double adaptiveLeaseMultiplier = 3.0;
+
+    // 최악의 트랜잭션 시간보다 충분히 길게
+    @Value("${account.lock.adaptive-lease.min-millis:5000}")
+    private long adaptiveLeaseMinMillis = 5000L;
+
+    public LockService(
+            RedissonClient redissonClient,
+            MeterRegistry meterRegistry,
+            @Value("${account.lock.local-stripes:64}") int localStripes) {
+        this.redissonClient = redissonClient;
+        this.localLock = new LocalLockStrategy(localStripes);
+
+        this.localWaitTimer = waitTimer(meterRegistry, "local");
+        this.remoteWaitTimer = waitTimer(meterRegistry, "remote");
+        this.localContentionCounter = meterRegistry.counter("account.lock.contention", "tier", "local");
+        this.remoteContentionCounter = meterRegistry.counter("account.lock.contention", "tier", "remote");
+        this.remoteErrorCounter = meterRegistry.counter("account.lock.errors", "tier", "remote");
+        this.leaseExpiredCounter = meterRegistry.counter("account.lock.lease.expired");
+        this.holdTimer = Timer.builder("account.lock.hold")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("account.lock.held", this, service -> service.heldLocks.size() + service.heldAsyncLocks.size())
+                .register(meterRegistry);
+        Gauge.builder("account.lock.hold.longest", this, LockService::longestHoldMillis)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("account.lock.lease", this, LockService::currentLeaseMillis)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    private static Timer waitTimer(MeterRegistry meterRegistry, String tier) {
+        return Timer.builder("account.lock.wait")
+                .tag("tier", tier)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
     String getLockKey(String accountNumber) {
         return "ACLK:" + accountNumber;
     }
 
-    public void lock(String accountNumber) {
-        RLock lock = redissonClient.getLock(getLockKey(accountNumber));
+    ReentrantLock getLocalLock(String accountNumber) {
+        return localLock.getLock(accountNumber);
+    }
+
+    @Override
+    public void lock(String accountNumber, long waitMillis, long leaseMillis) {
         log.debug("trying lock for accountNumber : {}", accountNumber);
 
+        long wait = waitMillis > 0 ? waitMillis : this.waitMillis;
+        long lease = leaseMillis > 0 ? leaseMillis : currentLeaseMillis();
+
+        long start = System.nanoTime();
+        boolean isLocalLock = localLock.tryLock(accountNumber, wait);
+        long localWaitNanos = System.nanoTime() - start;
+        localWaitTimer.record(localWaitNanos, TimeUnit.NANOSECONDS);
+
+        if (!isLocalLock) {
+            log.error("Local lock acquisition failed.");
+            localContentionCounter.increment();
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED);
+        }
+
+        try {
+            lockRemote(accountNumber,
+                    Math.max(wait - TimeUnit.NANOSECONDS.toMillis(localWaitNanos), 0L),
+                    lease);
+        } catch (RuntimeException e) {
+            localLock.unlock(accountNumber);
+            throw e;
+        }
+    }
+
+    private void lockRemote(String accountNumber, long waitMillis, long leaseMillis) {
+        long start = System.nanoTime();
         try {
-            // 3초동안 스핀락을 건다.
-            boolean isLock = lock.tryLock(1, 15, TimeUnit.SECONDS);
+            RLock lock = redissonClient.getLock(getLockKey(accountNumber));
+            boolean isLock = lock.tryLock(waitMillis, leaseMillis, TimeUnit.MILLISECONDS);
 
             if (!isLock) {
                 log.error("Lock acquisition failed.");
+                remoteContentionCounter.increment();
                 throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED);
             }
+            heldLocks.put(accountNumber, new HeldLock(lock, System.nanoTime()));
         } catch (AccountException e) {
             throw e;
-        } catch (Exception e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED);
+        } catch (RuntimeException e) {
+            // lock 없이 진행하면 잔액이 꼬일 수 있으므로 요청을 실패시킨다.
             log.error("Redis lock failed.", e);
+            remoteErrorCounter.increment();
+            throw new AccountException(ErrorCode.LOCK_UNAVAILABLE);
+        } finally {
+            remoteWaitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
 
+    @Override
     public void unlock(String accountNumber) {
         log.debug("Unlock for accountNumber : {}", accountNumber);
-        redissonClient.getLock(getLockKey(accountNumber)).unlock();
+        try {
+            HeldLock held = heldLocks.remove(accountNumber);
+            if (held != null) {
+                holdTimer.record(System.nanoTime() - held.acquiredAt, TimeUnit.NANOSECONDS);
+                unlockRemote(accountNumber, held.lock);
+            }
+        } finally {
+            localLock.unlock(accountNumber);
+        }
+    }
+
+    private void unlockRemote(String accountNumber, RLock lock) {
+        try {
+            lock.unlock();
+        } catch (IllegalMonitorStateException e) {
+            // lease 가 먼저 끝났다. 다른 노드가 이미 잡았을 수 있다.
+            log.warn("Lock lease expired before unlock. accountNumber : {}", accountNumber);
+            leaseExpiredCounter.increment();
+        } catch (RuntimeException e) {
+            // lease 가 끝나면 Redis 에서 풀린다.
+            log.error("Redis unlock failed.", e);
+            remoteErrorCounter.increment();
+        }
+    }
+
+    /**
+     * Redis lock 만 잡는다. (로컬 lock 은 스레드가 주인이라 비동기로 넘겨줄 수 없다.)
+     * 동기 lock 과도 Redis lock 으로 서로 배제된다.
+     */
+    @Override
+    public CompletableFuture<Long> lockAsync(String accountNumber, long waitMillis, long leaseMillis) {
+        long wait = waitMillis > 0 ? waitMillis : this.waitMillis;
+        long lease = leaseMillis > 0 ? leaseMillis : currentLeaseMillis();
+        long ownerId = -asyncOwnerIds.incrementAndGet();
+
+        long start = System.nanoTime();
+        RLock lock;
+        CompletableFuture<Boolean> tryLock;
+        try {
+            lock = redissonClient.getLock(getLockKey(accountNumber));
+            tryLock = lock.tryLockAsync(wait, lease, TimeUnit.MILLISECONDS, ownerId).toCompletableFuture();
+        } catch (RuntimeException e) {
+            log.error("Redis lock failed.", e);
+            remoteErrorCounter.increment();
+            return CompletableFuture.failedFuture(new AccountException(ErrorCode.LOCK_UNAVAILABLE));
+        }
+
+        return tryLock.handle((isLock, e) -> {
+            remoteWaitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (e != null) {
+                log.error("Redis lock failed.", e);
+                remoteErrorCounter.increment();
+                throw new AccountException(ErrorCode.LOCK_UNAVAILABLE);
+            }
+            if (!isLock) {
+                log.error("Lock acquisition failed.");
+                remoteContentionCounter.increment();
+                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED);
+            }
+            heldAsyncLocks.put(ownerId, new HeldLock(lock, System.nanoTime()));
+            return ownerId;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> unlockAsync(String accountNumber, long ownerId) {
+        log.debug("Unlock for accountNumber : {}", accountNumber);
+        HeldLock held = heldAsyncLocks.remove(ownerId);
+        if (held == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        holdTimer.record(System.nanoTime() - held.acquiredAt, TimeUnit.NANOSECONDS);
+
+        return held.lock.unlockAsync(ownerId).toCompletableFuture()
+                .exceptionally(e -> {
+                    // lease 가 먼저 끝났거나 Redis 오류, 어느 쪽이든 lease 가 끝나면 Redis 에서 풀린다.
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    log.warn("Async unlock failed. accountNumber : {}", accountNumber, cause);
+                    (cause instanceof IllegalMonitorStateException ? leaseExpiredCounter : remoteErrorCounter).increment();
+                    return null;
+                });
+    }
+
+    /**
+     * 지금 새로 잡는 lock 의 lease
+     * adaptive-lease 면 보유 시간 p99 * multiplier, 1초마다 다시 계산한다.
+     * 하한은 min-millis 와 최장 보유 시간 * 2 중 큰 값, 상한은 lease-millis
+     */
+    long currentLeaseMillis() {
+        if (!adaptiveLease) {
+            return leaseMillis;
+        }
+
+        long now = System.nanoTime();
+        long refreshedAt = adaptiveLeaseRefreshedAt.get();
+        if ((adaptiveLeaseMillis < 0 || now - refreshedAt >= ADAPTIVE_REFRESH_NANOS)
+                && adaptiveLeaseRefreshedAt.compareAndSet(refreshedAt, now)) {
+            adaptiveLeaseMillis = computeAdaptiveLeaseMillis();
+        }
+        return adaptiveLeaseMillis > 0 ? adaptiveLeaseMillis : leaseMillis;
+    }
+
+    private long computeAdaptiveLeaseMillis() {
+        if (holdTimer.count() < ADAPTIVE_MIN_SAMPLES) {
+            return -1L;
+        }
+
+        for (ValueAtPercentile percentile : holdTimer.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.99) {
+                long p99Millis = (long) Math.ceil(percentile.value(TimeUnit.MILLISECONDS));
+                long lease = (long) (p99Millis * adaptiveLeaseMultiplier);
+                long floor = Math.max(adaptiveLeaseMinMillis,
+                        (long) Math.ceil(holdTimer.max(TimeUnit.MILLISECONDS)) * 2);
+                return Math.min(Math.max(lease, floor), leaseMillis);
+            }
+        }
+        return -1L;
+    }
+
+    private double longestHoldMillis() {
+        long now = System.nanoTime();
+        long longest = 0L;
+        for (HeldLock held : heldLocks.values()) {
+            longest = Math.max(longest, now - held.acquiredAt);
+        }
+        for (HeldLock held : heldAsyncLocks.values()) {
+            longest = Math.max(longest, now - held.acquiredAt);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(longest);
+    }
+
+    private static class HeldLock {
+        private final RLock lock;
+        private final long acquiredAt;
+
+        private HeldLock(RLock lock, long acquiredAt) {
+            this.lock = lock;
+            this.acquiredAt = acquiredAt;
+        }
     }
 }
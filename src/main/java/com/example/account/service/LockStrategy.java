@@ -0,0 +1,22 @@
+package com.example.account.service;
+
+/**
+ * 계좌 lock 방식 (@AccountLock, 일괄 거래)
+ * lock 과 unlock 은 같은 스레드에서 호출한다.
+ */
+public interface LockStrategy {
+    // 대기 / 유지 시간을 설정값(account.lock.*)으로 쓴다.
+    long DEFAULT_TIME = -1L;
+
+    default void lock(String accountNumber) {
+        lock(accountNumber, DEFAULT_TIME, DEFAULT_TIME);
+    }
+
+    /**
+     * @param waitMillis  lock 대기 시간, 0 이하면 설정값
+     * @param leaseMillis lock 유지 시간, 0 이하면 설정값 (lock 서버가 없는 방식은 무시)
+     */
+    void lock(String accountNumber, long waitMillis, long leaseMillis);
+
+    void unlock(String accountNumber);
+}
@@ -0,0 +1,19 @@
+package com.example.account.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 운영 기본값 : 지연 없이 바로 완료된다.
+ */
+@Component
+@ConditionalOnProperty(name = "account.processing-delay.enabled",
+        havingValue = "false", matchIfMissing = true)
+public class NoProcessingDelay implements ProcessingDelay {
+    @Override
+    public <T> CompletableFuture<T> delay(T result) {
+        return CompletableFuture.completedFuture(result);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.BalanceMode;
+import com.example.account.type.ErrorCode;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Account @Version 충돌 시 재시도
+ *
+ * 충돌은 commit 시점에 나므로 @Transactional 메서드 바깥에서 감싸야 한다.
+ * 재시도마다 새 트랜잭션에서 계좌를 다시 읽는다.
+ * 대기 시간은 min(maxBackoff, baseBackoff * 2^attempt) 안에서 무작위 (full jitter)
+ *
+ * account.balance-mode=optimistic 일 때만 재시도한다. 이 모드는 lock 을 잡지 않으므로 기다리는 동안 잡고 있는 lock 이 없다.
+ * 다른 모드는 한 번만 실행하고, 충돌은 lock 실패로 돌려준다. (lock 모드에서는 @AccountLock 을 잡은 채로 기다리게 된다.)
+ */
+@Slf4j
+@Component
+public class OptimisticRetryExecutor {
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public OptimisticRetryExecutor(
+            @Value("${account.balance-mode:lock}") BalanceMode balanceMode,
+            @Value("${account.optimistic.max-attempts:5}") int maxAttempts,
+            @Value("${account.optimistic.base-backoff-millis:5}") long baseBackoffMillis,
+            @Value("${account.optimistic.max-backoff-millis:100}") long maxBackoffMillis) {
+        this.maxAttempts = balanceMode == BalanceMode.OPTIMISTIC ? maxAttempts : 1;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public <T> T execute(Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                if (attempt >= maxAttempts) {
+                    log.error("Optimistic lock retry exhausted. attempts : {}", attempt);
+                    throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED);
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED);
+        }
+    }
+}
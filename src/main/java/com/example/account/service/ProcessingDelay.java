@@ -0,0 +1,11 @@
+package com.example.account.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 거래 처리 지연을 흉내내기 위한 컴포넌트
+ * 요청 스레드를 재우지 않고, 지연이 끝나면 완료되는 future 를 돌려준다.
+ */
+public interface ProcessingDelay {
+    <T> CompletableFuture<T> delay(T result);
+}
@@ -0,0 +1,335 @@
+package com.example.account.service;
+
+import com.example.account.config.ConditionalOnBalanceMode;
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountStatus;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionWithCancel;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.BalanceMode;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionType;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static com.example.account.type.TransactionResultType.F;
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.USE;
+
+/**
+ * Redis 잔액 엔진 (account.balance-mode=redis)
+ *
+ * 계좌 잔액은 Redis hash(account:balance:{계좌번호}, balance / status)에 있고,
+ * 잔액 확인 + 차감(취소는 더하기)과 DB 반영 기록 추가를 Lua 스크립트 한 번으로 처리한다.
+ * (lock -> 읽기 -> 쓰기 -> unlock 대신 Redis 안에서 한 번에 끝난다.)
+ * 반영 기록은 Redis list(account:balance-log)에 쌓이고, RedisBalancePersister 가 뒤에서 DB 로 옮긴다.
+ *
+ * hash 가 없는 계좌는 처음 거래할 때 DB 의 잔액 / 상태로 채운다. (그 계좌는 DB 로 옮기지 않은 기록이 없다.)
+ * 소유주는 요청 스레드에서 확인하고, 해지 여부와 잔액은 스크립트 안에서 본다.
+ * 거래 확인과 취소할 원거래 조회는 DB 로 옮겨진 거래만 본다. (persist-millis 만큼 늦다.)
+ * 같은 거래의 취소는 Redis 의 취소 표시(cancel-marker-ttl 동안)와 DB 의 originalTransactionId 인덱스로 한 번만 받는다.
+ */
+@Slf4j
+@Component
+@ConditionalOnBalanceMode(BalanceMode.REDIS)
+public class RedisBalanceEngine implements BalanceEngine {
+    static final String BALANCE_KEY_PREFIX = "account:balance:";
+    static final String LOG_KEY = "account:balance-log";
+    static final String CANCELLED_KEY_PREFIX = "account:cancelled:";
+
+    // 스크립트 결과, 0 이상이면 거래 후 잔액
+    private static final long NOT_LOADED = -1L;
+    private static final long UNREGISTERED = -2L;
+    private static final long EXCEED_BALANCE = -3L;
+    private static final long ALREADY_CANCELLED = -4L;
+
+    // KEYS[1] 잔액 hash, KEYS[2] 반영 기록 list / ARGV[1] 금액, ARGV[2] 반영 기록 (거래 후 잔액은 뒤에 붙인다.)
+    private static final String USE_SCRIPT = """
+            local account = redis.call('HMGET', KEYS[1], 'balance', 'status')
+            if account[2] and account[2] ~= 'IN_USE' then
+              return -2
+            end
+            if not account[1] then
+              return -1
+            end
+            if tonumber(account[1]) < tonumber(ARGV[1]) then
+              return -3
+            end
+            local after = redis.call('HINCRBY', KEYS[1], 'balance', -tonumber(ARGV[1]))
+            redis.call('RPUSH', KEYS[2], ARGV[2] .. after)
+            return after
+            """;
+
+    // KEYS[3] 취소 표시 / ARGV[3] 취소 표시 유지 시간(초), 해지된 계좌는 USE 와 같이 막는다.
+    private static final String CANCEL_SCRIPT = """
+            local account = redis.call('HMGET', KEYS[1], 'balance', 'status')
+            if account[2] and account[2] ~= 'IN_USE' then
+              return -2
+            end
+            if not account[1] then
+              return -1
+            end
+            if not redis.call('SET', KEYS[3], '1', 'NX', 'EX', ARGV[3]) then
+              return -4
+            end
+            local after = redis.call('HINCRBY', KEYS[1], 'balance', ARGV[1])
+            redis.call('RPUSH', KEYS[2], ARGV[2] .. after)
+            return after
+            """;
+
+    // 다른 요청이 먼저 채웠으면 그대로 둔다. 해지 표시가 먼저 있으면 상태는 덮지 않는다.
+    private static final String LOAD_SCRIPT = """
+            redis.call('HSETNX', KEYS[1], 'balance', ARGV[1])
+            redis.call('HSETNX', KEYS[1], 'status', ARGV[2])
+            return 1
+            """;
+
+    // hash 가 없어도 표시한다. 해지 전에 DB 를 읽은 load 가 뒤늦게 IN_USE 로 채우지 못하게 한다.
+    private static final String UNREGISTER_SCRIPT = """
+            redis.call('HSET', KEYS[1], 'status', ARGV[1])
+            return 1
+            """;
+
+    private final RedissonClient redissonClient;
+    private final AccountUserRepository accountUserRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountLookupCache accountLookupCache;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final FailedTransactionWriter failedTransactionWriter;
+    private final String cancelMarkerSeconds;
+
+    private final RedisLuaScript useScript;
+    private final RedisLuaScript cancelScript;
+    private final RedisLuaScript loadScript;
+    private final RedisLuaScript unregisterScript;
+
+    public RedisBalanceEngine(
+            RedissonClient redissonClient,
+            AccountUserRepository accountUserRepository,
+            AccountRepository accountRepository,
+            TransactionRepository transactionRepository,
+            AccountLookupCache accountLookupCache,
+            TransactionIdGenerator transactionIdGenerator,
+            FailedTransactionWriter failedTransactionWriter,
+            @Value("${account.redis-balance.cancel-marker-ttl:24h}") Duration cancelMarkerTtl) {
+        this.redissonClient = redissonClient;
+        this.accountUserRepository = accountUserRepository;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.accountLookupCache = accountLookupCache;
+        this.transactionIdGenerator = transactionIdGenerator;
+        this.failedTransactionWriter = failedTransactionWriter;
+        this.cancelMarkerSeconds = String.valueOf(cancelMarkerTtl.toSeconds());
+        this.useScript = new RedisLuaScript(redissonClient, USE_SCRIPT, RScript.ReturnType.INTEGER);
+        this.cancelScript = new RedisLuaScript(redissonClient, CANCEL_SCRIPT, RScript.ReturnType.INTEGER);
+        this.loadScript = new RedisLuaScript(redissonClient, LOAD_SCRIPT, RScript.ReturnType.INTEGER);
+        this.unregisterScript = new RedisLuaScript(redissonClient, UNREGISTER_SCRIPT, RScript.ReturnType.INTEGER);
+    }
+
+    @Override
+    public CompletableFuture<TransactionDto> useBalance(
+            Long userId, String accountNumber, Long amount) {
+        try {
+            AccountLookupCache.AccountRef ref = accountLookupCache.findRef(accountNumber)
+                    .filter(found -> Objects.equals(found.getOwnerId(), userId))
+                    .orElseThrow(() -> notOwned(userId, accountNumber));
+            return CompletableFuture.completedFuture(apply(USE, ref.getId(), accountNumber, amount, null));
+        } catch (AccountException e) {
+            return failed(e, accountNumber, amount);
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransactionDto> cancelBalance(
+            String transactionId, String accountNumber, Long amount) {
+        try {
+            TransactionWithCancel found = transactionRepository.findWithCancelByTransactionId(transactionId)
+                    .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
+            if (found.isCancelled()) {
+                throw new AccountException(ErrorCode.TRANSACTION_ALREADY_CANCELLED);
+            }
+            AccountLookupCache.AccountRef ref = accountLookupCache.findRef(accountNumber)
+                    .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+            Transaction original = found.getTransaction();
+            if (!Objects.equals(original.getAccount().getId(), ref.getId())) {
+                throw new AccountException(ErrorCode.TRANSACTION_UNMATCHED);
+            }
+            if (!Objects.equals(original.getAmount(), amount)) {
+                throw new AccountException(ErrorCode.CANCEL_MUST_FULLY);
+            }
+            if (original.getTransactionAt().isBefore(LocalDateTime.now().minusYears(1))) {
+                throw new AccountException(ErrorCode.TOO_OLD_ORDER_TO_CANCEL);
+            }
+            return CompletableFuture.completedFuture(
+                    apply(CANCEL, ref.getId(), accountNumber, amount, transactionId));
+        } catch (AccountException e) {
+            return failed(e, accountNumber, amount);
+        }
+    }
+
+    /**
+     * 요청 순서대로 처리한다. 결과는 요청과 같은 순서로, 실패 건(F)도 포함해서 돌려준다.
+     */
+    @Override
+    public List<TransactionDto> useBalanceBatch(List<UseBalance.Request> requests) {
+        List<TransactionDto> results = new ArrayList<>(requests.size());
+        for (UseBalance.Request request : requests) {
+            try {
+                results.add(useBalance(request.getUserId(), request.getAccountNumber(), request.getAmount()).join());
+            } catch (CompletionException e) {
+                results.add(TransactionDto.builder()
+                        .accountNumber(request.getAccountNumber())
+                        .transactionType(USE)
+                        .transactionResultType(F)
+                        .errorCode(e.getCause() instanceof AccountException accountException
+                                ? accountException.getErrorCode()
+                                : ErrorCode.INTERNAL_SERVER_ERROR)
+                        .amount(request.getAmount())
+                        .build());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Redis 에 있는 계좌의 잔액 (계좌번호 -> 잔액), 한 번의 왕복으로 읽는다.
+     * 아직 거래하지 않아서 hash 가 없는 계좌는 빠진다. (DB 잔액이 현재 잔액이다.)
+     */
+    public Map<String, Long> findBalances(Collection<String> accountNumbers) {
+        RBatch batch = redissonClient.createBatch(BatchOptions.defaults());
+        Map<String, RFuture<String>> futures = new LinkedHashMap<>();
+        for (String accountNumber : accountNumbers) {
+            futures.put(accountNumber, batch.<String, String>getMap(
+                    BALANCE_KEY_PREFIX + accountNumber, StringCodec.INSTANCE).getAsync("balance"));
+        }
+        if (futures.isEmpty()) {
+            return Map.of();
+        }
+        batch.execute();
+
+        Map<String, Long> balances = new HashMap<>();
+        futures.forEach((accountNumber, future) -> {
+            String balance = future.getNow();
+            if (balance != null) {
+                balances.put(accountNumber, Long.parseLong(balance));
+            }
+        });
+        return balances;
+    }
+
+    public Optional<Long> findBalance(String accountNumber) {
+        return Optional.ofNullable(findBalances(List.of(accountNumber)).get(accountNumber));
+    }
+
+    /**
+     * 해지된 계좌는 스크립트에서 바로 거절되도록 표시한다.
+     * 해지 트랜잭션이 commit 된 뒤에 호출한다.
+     */
+    public void unregistered(String accountNumber) {
+        unregisterScript.eval(List.of(BALANCE_KEY_PREFIX + accountNumber), AccountStatus.UNREGISTERED.name());
+    }
+
+    private TransactionDto apply(
+            TransactionType type, Long accountId, String accountNumber, Long amount,
+            String originalTransactionId) {
+        String transactionId = transactionIdGenerator.next();
+        // 반영 기록에는 micros 까지 남으므로 응답과 DB row 가 같도록 맞춘다.
+        LocalDateTime transactionAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        String record = RedisBalancePersister.recordPrefix(
+                type, accountId, amount, transactionId, transactionAt, originalTransactionId);
+
+        long balanceAfter;
+        try {
+            balanceAfter = eval(type, accountNumber, amount, record, originalTransactionId);
+            if (balanceAfter == NOT_LOADED) {
+                load(accountId, accountNumber);
+                balanceAfter = eval(type, accountNumber, amount, record, originalTransactionId);
+            }
+        } catch (RedisException e) {
+            log.error("Failed to apply balance on redis. accountNumber : {}", accountNumber, e);
+            throw new AccountException(ErrorCode.INTERNAL_SERVER_ERROR);
+        }
+
+        if (balanceAfter == UNREGISTERED) {
+            throw new AccountException(ErrorCode.ACCOUNT_ALREADY_DELETED);
+        }
+        if (balanceAfter == EXCEED_BALANCE) {
+            throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        }
+        if (balanceAfter == ALREADY_CANCELLED) {
+            throw new AccountException(ErrorCode.TRANSACTION_ALREADY_CANCELLED);
+        }
+        if (balanceAfter < 0) {
+            throw new AccountException(ErrorCode.ACCOUNT_NOT_FOUND);
+        }
+
+        return TransactionDto.builder()
+                .accountNumber(accountNumber)
+                .transactionType(type)
+                .transactionResultType(S)
+                .amount(amount)
+                .balanceSnapshot(balanceAfter)
+                .transactionId(transactionId)
+                .transactionAt(transactionAt)
+                .build();
+    }
+
+    private long eval(TransactionType type, String accountNumber, Long amount,
+                      String record, String originalTransactionId) {
+        if (type == USE) {
+            return useScript.eval(List.of(BALANCE_KEY_PREFIX + accountNumber, LOG_KEY),
+                    String.valueOf(amount), record);
+        }
+        return cancelScript.eval(
+                List.of(BALANCE_KEY_PREFIX + accountNumber, LOG_KEY,
+                        CANCELLED_KEY_PREFIX + originalTransactionId),
+                String.valueOf(amount), record, cancelMarkerSeconds);
+    }
+
+    private void load(Long accountId, String accountNumber) {
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+        loadScript.eval(List.of(BALANCE_KEY_PREFIX + accountNumber),
+                String.valueOf(account.getBalance()), account.getAccountStatus().name());
+    }
+
+    private CompletableFuture<TransactionDto> failed(AccountException e, String accountNumber, Long amount) {
+        log.error("Failed to apply balance. " + e.getErrorMessage());
+        failedTransactionWriter.write(accountNumber, amount);
+        return CompletableFuture.failedFuture(e);
+    }
+
+    // 계좌가 없거나 소유주가 다를 때, 사용자가 없으면 그 쪽을 먼저 알려준다. (lock 모드와 같은 순서)
+    private AccountException notOwned(Long userId, String accountNumber) {
+        if (!accountUserRepository.existsById(userId)) {
+            return new AccountException(ErrorCode.USER_NOT_FOUND);
+        }
+        if (accountLookupCache.findRef(accountNumber).isEmpty()) {
+            return new AccountException(ErrorCode.ACCOUNT_NOT_FOUND);
+        }
+        return new AccountException(ErrorCode.ACCOUNT_UNMATCHED);
+    }
+}
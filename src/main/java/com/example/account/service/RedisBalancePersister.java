@@ -0,0 +1,256 @@
+package com.example.account.service;
+
+import com.example.account.config.ConditionalOnBalanceMode;
+import com.example.account.domain.Transaction;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.AccountEventType;
+import com.example.account.type.BalanceMode;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.account.type.TransactionResultType.S;
+
+/**
+ * Redis 반영 기록 -> DB (account.balance-mode=redis)
+ *
+ * persist-millis 마다 반영 기록 list 의 앞에서 batch-size 건을 처리 중 list 로 옮기고(Lua 한 번),
+ * 한 트랜잭션으로 거래 row 를 batch insert 하고, 계좌마다 마지막 잔액을 한 번씩 UPDATE 하고, 계좌 이벤트를 남긴다.
+ * commit 된 다음에 처리 중 list 를 지운다.
+ * 실패하거나 중간에 죽으면 다음 주기에 처리 중 list 를 다시 한다. (이미 저장된 거래 id 는 건너뛴다.)
+ * DB 연결 같은 일시적인 오류가 아니면 한 건씩 다시 저장하고, 저장되지 않는 기록(계좌 없음, 형식 오류)은
+ * dead list 로 옮긴다. (account.redis-balance.dead) 한 건 때문에 나머지가 막히지 않게 한다.
+ * 여러 노드가 떠 있어도 Redis lock 을 잡은 한 곳만 옮긴다.
+ */
+@Slf4j
+@Component
+@ConditionalOnBalanceMode(BalanceMode.REDIS)
+public class RedisBalancePersister {
+    static final String PROCESSING_KEY = RedisBalanceEngine.LOG_KEY + ":processing";
+    static final String DEAD_KEY = RedisBalanceEngine.LOG_KEY + ":dead";
+    static final String LOCK_NAME = "account:balance-persister";
+
+    // KEYS[1] 반영 기록, KEYS[2] 처리 중 / ARGV[1] 최대 건수, 처리 중인 기록이 남아 있으면 그것부터 돌려준다.
+    private static final String TAKE_SCRIPT = """
+            if redis.call('LLEN', KEYS[2]) == 0 then
+              local records = redis.call('LRANGE', KEYS[1], 0, tonumber(ARGV[1]) - 1)
+              if #records == 0 then
+                return records
+              end
+              redis.call('LTRIM', KEYS[1], #records, -1)
+              redis.call('RPUSH', KEYS[2], unpack(records))
+            end
+            return redis.call('LRANGE', KEYS[2], 0, -1)
+            """;
+
+    private final RedissonClient redissonClient;
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionMetrics transactionMetrics;
+    private final AccountJournal accountJournal;
+    private final int batchSize;
+    private final long persistMillis;
+    private final RedisLuaScript takeScript;
+    private final Counter deadCounter;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "account-redis-balance-persist");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RedisBalancePersister(
+            RedissonClient redissonClient,
+            TransactionRepository transactionRepository,
+            AccountRepository accountRepository,
+            TransactionTemplate transactionTemplate,
+            TransactionMetrics transactionMetrics,
+            AccountJournal accountJournal,
+            MeterRegistry meterRegistry,
+            @Value("${account.redis-balance.batch-size:1000}") int batchSize,
+            @Value("${account.redis-balance.persist-millis:100}") long persistMillis) {
+        this.redissonClient = redissonClient;
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.transactionMetrics = transactionMetrics;
+        this.accountJournal = accountJournal;
+        this.batchSize = batchSize;
+        this.persistMillis = persistMillis;
+        this.takeScript = new RedisLuaScript(redissonClient, TAKE_SCRIPT, RScript.ReturnType.MULTI);
+        this.deadCounter = meterRegistry.counter("account.redis-balance.dead");
+    }
+
+    /**
+     * 반영 기록 : 종류:계좌 id:금액:거래 id:거래 시각(micros):원거래 id:거래 후 잔액
+     * 거래 후 잔액은 스크립트가 차감한 뒤에 붙인다.
+     */
+    static String recordPrefix(TransactionType type, Long accountId, Long amount, String transactionId,
+                               LocalDateTime transactionAt, String originalTransactionId) {
+        return type.name() + ":" + accountId + ":" + amount + ":" + transactionId + ":"
+                + LedgerRecord.toMicros(transactionAt) + ":"
+                + (originalTransactionId == null ? "" : originalTransactionId) + ":";
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(
+                this::run, persistMillis, persistMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        try {
+            // 밀려 있으면 따라잡을 때까지 이어서 한다.
+            while (persist() == batchSize) {
+                log.debug("Redis balance persist is behind.");
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to persist redis balance records.", e);
+        }
+    }
+
+    /**
+     * @return 옮긴 기록 건수 (다른 노드가 옮기고 있으면 0)
+     */
+    int persist() {
+        RLock lock = redissonClient.getLock(LOCK_NAME);
+        if (!lock.tryLock()) {
+            return 0;
+        }
+        try {
+            List<String> records = takeScript.eval(
+                    List.of(RedisBalanceEngine.LOG_KEY, PROCESSING_KEY), String.valueOf(batchSize));
+            if (records.isEmpty()) {
+                return 0;
+            }
+
+            List<Transaction> transactions;
+            try {
+                transactions = transactionTemplate.execute(status -> save(records));
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    throw e;
+                }
+                log.warn("Redis balance batch failed, retrying record by record.", e);
+                transactions = saveEach(records);
+            }
+            redissonClient.getKeys().delete(PROCESSING_KEY);
+            transactions.forEach(transactionMetrics::record);
+            return records.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 한 건씩 저장하고 저장되지 않는 기록은 dead list 로 옮긴다.
+     * 일시적인 오류면 그대로 던져 다음 주기에 처리 중 list 를 다시 한다. (이미 옮긴 기록이 dead list 에 한 번 더 들어갈 수 있다.)
+     */
+    private List<Transaction> saveEach(List<String> records) {
+        List<Transaction> transactions = new ArrayList<>(records.size());
+        for (String record : records) {
+            try {
+                transactions.addAll(transactionTemplate.execute(status -> save(List.of(record))));
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    throw e;
+                }
+                log.error("Moved redis balance record to dead list. record : {}", record, e);
+                redissonClient.<String>getList(DEAD_KEY, StringCodec.INSTANCE).add(record);
+                deadCounter.increment();
+            }
+        }
+        return transactions;
+    }
+
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private List<Transaction> save(List<String> records) {
+        List<String[]> parsed = records.stream()
+                .map(record -> record.split(":", -1))
+                .toList();
+        Set<String> existing = new HashSet<>(transactionRepository.findExistingTransactionIds(
+                parsed.stream().map(fields -> fields[3]).toList()));
+
+        List<Transaction> transactions = new ArrayList<>(records.size());
+        // 계좌 id -> 마지막 잔액, 이미 저장된 기록도 잔액은 다시 쓴다. (같은 값)
+        Map<Long, Long> balances = new HashMap<>();
+        // 계좌 id -> 새로 저장한 거래 건수
+        Map<Long, Long> events = new HashMap<>();
+        for (String[] fields : parsed) {
+            Long accountId = Long.parseLong(fields[1]);
+            Long balanceAfter = Long.parseLong(fields[6]);
+            balances.put(accountId, balanceAfter);
+            if (existing.contains(fields[3])) {
+                continue;
+            }
+            transactions.add(Transaction.builder()
+                    .transactionType(TransactionType.valueOf(fields[0]))
+                    .transactionResultType(S)
+                    .account(accountRepository.getReferenceById(accountId))
+                    .amount(Long.parseLong(fields[2]))
+                    .balanceSnapshot(balanceAfter)
+                    .transactionId(fields[3])
+                    .transactionAt(LedgerRecord.toLocalDateTime(Long.parseLong(fields[4])))
+                    .originalTransactionId(fields[5].isEmpty() ? null : fields[5])
+                    .build());
+            events.merge(accountId, 1L, Long::sum);
+        }
+
+        transactionRepository.saveAll(transactions);
+        LocalDateTime now = LocalDateTime.now();
+        // 계좌 id -> 새로 저장한 첫 이벤트 바로 앞의 순번
+        Map<Long, Long> sequences = new HashMap<>();
+        balances.forEach((accountId, balance) -> {
+            long count = events.getOrDefault(accountId, 0L);
+            accountRepository.updateBalance(accountId, balance, count, now);
+            if (count > 0) {
+                sequences.put(accountId, accountRepository.findEventSequenceById(accountId) - count);
+            }
+        });
+        for (Transaction transaction : transactions) {
+            Long accountId = transaction.getAccount().getId();
+            accountJournal.append(accountId,
+                    sequences.merge(accountId, 1L, Long::sum),
+                    AccountEventType.from(transaction.getTransactionType()),
+                    transaction.getAmount(),
+                    transaction.getBalanceSnapshot(),
+                    transaction.getTransactionId(),
+                    transaction.getTransactionAt());
+        }
+        return transactions;
+    }
+
+    /**
+     * 남은 기록은 Redis 에 그대로 있으므로 진행 중인 persist 만 기다린다.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
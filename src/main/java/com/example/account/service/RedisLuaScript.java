@@ -0,0 +1,43 @@
+package com.example.account.service;
+
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.List;
+
+/**
+ * Redis Lua 스크립트 (EVALSHA)
+ *
+ * 처음 실행할 때 스크립트를 올리고, 그 뒤로는 hash 만 보낸다.
+ * Redis 가 재시작되어 스크립트 캐시가 비면(NOSCRIPT) 다시 올리고 한 번 더 실행한다.
+ * 키 / 인자는 모두 문자열로 넘긴다.
+ */
+class RedisLuaScript {
+    private final RScript script;
+    private final String source;
+    private final RScript.ReturnType returnType;
+    private volatile String sha;
+
+    RedisLuaScript(RedissonClient redissonClient, String source, RScript.ReturnType returnType) {
+        this.script = redissonClient.getScript(StringCodec.INSTANCE);
+        this.source = source;
+        this.returnType = returnType;
+    }
+
+    <R> R eval(List<Object> keys, Object... values) {
+        if (sha == null) {
+            sha = script.scriptLoad(source);
+        }
+        try {
+            return script.evalSha(RScript.Mode.READ_WRITE, sha, returnType, keys, values);
+        } catch (RedisException e) {
+            if (e.getMessage() == null || !e.getMessage().contains("NOSCRIPT")) {
+                throw e;
+            }
+            sha = script.scriptLoad(source);
+            return script.evalSha(RScript.Mode.READ_WRITE, sha, returnType, keys, values);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.account.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 스케줄러로 응답 완료만 늦춘다.
+ * 계좌 lock 은 이미 해제된 뒤이고, 요청 스레드도 바로 반환된다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "account.processing-delay.enabled", havingValue = "true")
+public class ScheduledProcessingDelay implements ProcessingDelay {
+    private final long delayMillis;
+    private final ScheduledExecutorService scheduler;
+
+    public ScheduledProcessingDelay(
+            @Value("${account.processing-delay.millis:5000}") long delayMillis) {
+        this.delayMillis = delayMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "processing-delay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Simulated processing delay enabled : {}ms", delayMillis);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> delay(T result) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        scheduler.schedule(() -> future.complete(result), delayMillis, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
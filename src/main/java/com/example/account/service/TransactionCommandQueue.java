@@ -0,0 +1,134 @@
+package com.example.account.service;
+
+import com.example.account.config.ConditionalOnBalanceMode;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.type.BalanceMode;
+import com.example.account.type.ErrorCode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * 계좌별 단일 작성자(single-writer) 실행기
+ * 계좌번호를 해시해서 N개의 작업 스레드 중 하나에 배정한다.
+ * 같은 계좌의 명령은 항상 같은 스레드에서 순서대로 실행되므로 lock 이 필요 없다.
+ *
+ * 한 계좌의 요청이 한 노드로만 들어오는 배치(단일 노드 또는 계좌 단위 라우팅)에서만 사용한다.
+ */
+@Slf4j
+@Component
+@ConditionalOnBalanceMode(BalanceMode.SINGLE_WRITER)
+public class TransactionCommandQueue implements BalanceEngine {
+    private final TransactionService transactionService;
+    private final TransactionMetrics transactionMetrics;
+    private final ExecutorService[] workers;
+
+    public TransactionCommandQueue(
+            TransactionService transactionService,
+            TransactionMetrics transactionMetrics,
+            @Value("${account.single-writer.workers:8}") int workerCount,
+            @Value("${account.single-writer.queue-capacity:10000}") int queueCapacity) {
+        this.transactionService = transactionService;
+        this.transactionMetrics = transactionMetrics;
+        this.workers = new ExecutorService[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            String name = "account-writer-" + i;
+            workers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity),
+                    r -> new Thread(r, name));
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransactionDto> useBalance(
+            Long userId, String accountNumber, Long amount) {
+        return submit(accountNumber, () -> {
+            try {
+                return transactionService.useBalance(userId, accountNumber, amount);
+            } catch (AccountException e) {
+                log.error("Failed to use balance. " + e.getErrorMessage());
+                transactionService.saveFailedUseTransaction(accountNumber, amount);
+                throw e;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<TransactionDto> cancelBalance(
+            String transactionId, String accountNumber, Long amount) {
+        return submit(accountNumber, () -> {
+            try {
+                return transactionService.cancelBalance(transactionId, accountNumber, amount);
+            } catch (AccountException e) {
+                log.error("Failed to cancelBalance. " + e.getErrorMessage());
+                transactionService.saveFailedUseTransaction(accountNumber, amount);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * 계좌별로 나눠서 각 계좌의 작업 스레드에서 처리한다. (단건 요청과 같은 순서로 섞인다.)
+     * 결과는 요청과 같은 순서로, 실패 건(F)도 포함해서 돌려준다.
+     */
+    @Override
+    public List<TransactionDto> useBalanceBatch(List<UseBalance.Request> requests) {
+        transactionMetrics.recordBatchSize(requests.size());
+        Map<String, List<Integer>> indexesByAccount = TransactionService.indexesByAccount(requests);
+
+        Map<String, CompletableFuture<List<TransactionDto>>> futures = new HashMap<>();
+        indexesByAccount.forEach((accountNumber, indexes) -> {
+            List<UseBalance.Request> accountRequests = indexes.stream().map(requests::get).toList();
+            futures.put(accountNumber, submit(accountNumber,
+                    () -> transactionService.useBalanceAccountBatch(accountNumber, accountRequests)));
+        });
+
+        TransactionDto[] results = new TransactionDto[requests.size()];
+        indexesByAccount.forEach((accountNumber, indexes) -> {
+            try {
+                List<TransactionDto> accountResults = futures.get(accountNumber).join();
+                for (int k = 0; k < indexes.size(); k++) {
+                    results[indexes.get(k)] = accountResults.get(k);
+                }
+            } catch (CompletionException e) {
+                ErrorCode errorCode = e.getCause() instanceof AccountException accountException
+                        ? accountException.getErrorCode()
+                        : ErrorCode.INTERNAL_SERVER_ERROR;
+                indexes.forEach(i -> results[i] = TransactionService.failedTransactionDto(requests.get(i), errorCode));
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    int workerIndex(String accountNumber) {
+        int h = accountNumber.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), workers.length);
+    }
+
+    private <T> CompletableFuture<T> submit(String accountNumber, Supplier<T> command) {
+        try {
+            return CompletableFuture.supplyAsync(command, workers[workerIndex(accountNumber)]);
+        } catch (RejectedExecutionException e) {
+            log.error("Command queue is full. accountNumber : {}", accountNumber);
+            return CompletableFuture.failedFuture(
+                    new AccountException(ErrorCode.SERVER_BUSY));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+        for (ExecutorService worker : workers) {
+            worker.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
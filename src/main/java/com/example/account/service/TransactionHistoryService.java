@@ -0,0 +1,127 @@
+package com.example.account.service;
+
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistoryDto;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 계좌별 거래 내역
+ *
+ * 페이지 조회는 (transactionAt, id) keyset 으로, 마지막으로 본 거래 다음부터 읽는다.
+ * offset 을 쓰지 않으므로 뒤쪽 페이지도 첫 페이지와 같은 비용이다.
+ * 내보내기는 cursor(Stream) 로 한 row 씩 읽어서 바로 쓰고, 읽은 엔티티는 바로 detach 한다.
+ * 거래 내역이 아무리 길어도 메모리에는 fetch size 만큼만 남는다.
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionHistoryService {
+    static final int MAX_PAGE_SIZE = 100;
+
+    private final TransactionRepository transactionRepository;
+    private final AccountLookupCache accountLookupCache;
+    private final EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public TransactionHistoryDto getTransactions(String accountNumber, String cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new AccountException(ErrorCode.INVALIDED_REQUEST);
+        }
+        Long accountId = getAccountId(accountNumber);
+
+        // 한 건 더 읽어서 다음 페이지가 있는지 본다.
+        Limit limit = Limit.of(size + 1);
+        List<Transaction> transactions;
+        if (cursor == null || cursor.isEmpty()) {
+            transactions = transactionRepository.findLatestByAccountId(accountId, limit);
+        } else {
+            Cursor after = Cursor.decode(cursor);
+            transactions = transactionRepository.findByAccountIdBefore(
+                    accountId, after.transactionAt, after.id, limit);
+        }
+
+        String nextCursor = null;
+        if (transactions.size() > size) {
+            transactions = transactions.subList(0, size);
+            Transaction last = transactions.get(size - 1);
+            nextCursor = new Cursor(last.getTransactionAt(), last.getId()).encode();
+        }
+
+        return TransactionHistoryDto.builder()
+                .transactions(transactions.stream()
+                        .map(transaction -> TransactionDto.fromEntity(transaction, accountNumber))
+                        .collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * 계좌가 없으면 ACCOUNT_NOT_FOUND
+     * 내보내기는 응답을 쓰기 시작한 뒤에는 오류 응답을 줄 수 없으므로 먼저 확인한다.
+     */
+    public Long getAccountId(String accountNumber) {
+        return accountLookupCache.findRef(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND))
+                .getId();
+    }
+
+    /**
+     * 계좌의 전체 거래 내역을 오래된 순으로 writer 에 넘긴다.
+     */
+    @Transactional(readOnly = true)
+    public void exportTransactions(String accountNumber, Consumer<TransactionDto> writer) {
+        Long accountId = getAccountId(accountNumber);
+
+        try (Stream<Transaction> transactions = transactionRepository.streamByAccountId(accountId)) {
+            transactions.forEach(transaction -> {
+                writer.accept(TransactionDto.fromEntity(transaction, accountNumber));
+                entityManager.detach(transaction);
+            });
+        }
+    }
+
+    // "transactionAt,id" 를 base64(url) 로 감싼다.
+    static class Cursor {
+        private final LocalDateTime transactionAt;
+        private final Long id;
+
+        Cursor(LocalDateTime transactionAt, Long id) {
+            this.transactionAt = transactionAt;
+            this.id = id;
+        }
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (transactionAt + "," + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String[] values = new String(Base64.getUrlDecoder().decode(cursor),
+                        StandardCharsets.UTF_8).split(",");
+                if (values.length != 2) {
+                    throw new AccountException(ErrorCode.INVALIDED_REQUEST);
+                }
+                return new Cursor(LocalDateTime.parse(values[0]), Long.parseLong(values[1]));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new AccountException(ErrorCode.INVALIDED_REQUEST);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.account.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 거래 id 생성기 (Snowflake 방식)
+ *
+ * 64bit = 41bit 시간(ms, EPOCH 기준) | 10bit 노드 id | 12bit 순번
+ * 문자열은 Crockford base32 13자리 고정 길이라서, 문자열 순서 = 생성 순서이다.
+ * 그래서 transaction_id 인덱스에는 항상 뒤쪽에 추가된다.
+ *
+ * 같은 ms 에 순번 4096 개를 다 쓰면 다음 ms 를 미리 당겨 쓴다. (시계가 뒤로 가도 같은 방식으로 단조 증가)
+ */
+@Component
+public class TransactionIdGenerator {
+    // 2023-01-01T00:00:00Z
+    static final long EPOCH = 1672531200000L;
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int LENGTH = 13;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final long node;
+    // (EPOCH 기준 ms << SEQUENCE_BITS) | 순번
+    private final AtomicLong state = new AtomicLong();
+
+    public TransactionIdGenerator(@Value("${account.node-id:0}") long nodeId) {
+        if (nodeId < 0 || nodeId >= (1L << NODE_BITS)) {
+            throw new IllegalArgumentException("node-id must be 0 ~ 1023 : " + nodeId);
+        }
+        this.node = nodeId << SEQUENCE_BITS;
+    }
+
+    public String next() {
+        return format(nextId());
+    }
+
+    long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long prev;
+        long next;
+        do {
+            prev = state.get();
+            next = now > prev ? now : prev + 1;
+        } while (!state.compareAndSet(prev, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | node | sequence;
+    }
+
+    /**
+     * format() 의 반대, 이 형식의 거래 id 가 아니면 -1
+     */
+    static long parse(String transactionId) {
+        if (transactionId == null || transactionId.length() != LENGTH) {
+            return -1L;
+        }
+        long id = 0L;
+        for (int i = 0; i < LENGTH; i++) {
+            int digit = Arrays.binarySearch(ALPHABET, transactionId.charAt(i));
+            if (digit < 0) {
+                return -1L;
+            }
+            id = (id << 5) | digit;
+        }
+        return id;
+    }
+
+    static String format(long id) {
+        char[] chars = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+}
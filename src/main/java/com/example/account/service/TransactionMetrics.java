@@ -0,0 +1,80 @@
+package com.example.account.service;
+
+import com.example.account.domain.Transaction;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * 거래 건수 / 금액 / 일괄 거래 크기
+ *
+ * account.transactions{type, result}           : 저장한 거래 건수
+ * account.transaction.amount{type}             : 성공(S) 거래 금액
+ * account.transaction.batch.size               : 일괄 거래 요청 건수
+ *
+ * 태그 조합이 적어서 전부 미리 등록해 두고, 기록할 때는 배열에서 꺼내기만 한다.
+ * 트랜잭션 안에서 저장한 거래는 recordAfterCommit 으로 commit 된 다음에 센다.
+ */
+@Component
+public class TransactionMetrics {
+    private final Counter[][] transactions =
+            new Counter[TransactionType.values().length][TransactionResultType.values().length];
+    private final DistributionSummary[] amounts = new DistributionSummary[TransactionType.values().length];
+    private final DistributionSummary batchSize;
+
+    public TransactionMetrics(MeterRegistry meterRegistry) {
+        for (TransactionType type : TransactionType.values()) {
+            for (TransactionResultType result : TransactionResultType.values()) {
+                transactions[type.ordinal()][result.ordinal()] = meterRegistry.counter(
+                        "account.transactions", "type", type.name(), "result", result.name());
+            }
+            amounts[type.ordinal()] = DistributionSummary.builder("account.transaction.amount")
+                    .tag("type", type.name())
+                    .baseUnit("won")
+                    .register(meterRegistry);
+        }
+        batchSize = DistributionSummary.builder("account.transaction.batch.size")
+                .register(meterRegistry);
+    }
+
+    public void record(Transaction transaction) {
+        TransactionType type = transaction.getTransactionType();
+        TransactionResultType result = transaction.getTransactionResultType();
+        transactions[type.ordinal()][result.ordinal()].increment();
+        if (result == TransactionResultType.S) {
+            amounts[type.ordinal()].record(transaction.getAmount());
+        }
+    }
+
+    /**
+     * commit 된 다음에 센다. rollback 되거나 @Version 충돌로 다시 실행된 시도는 세지 않는다.
+     * 트랜잭션 밖이면 바로 센다.
+     */
+    public void recordAfterCommit(List<Transaction> transactions) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactions.forEach(this::record);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                transactions.forEach(TransactionMetrics.this::record);
+            }
+        });
+    }
+
+    public void recordAfterCommit(Transaction transaction) {
+        recordAfterCommit(List.of(transaction));
+    }
+
+    public void recordBatchSize(int size) {
+        batchSize.record(size);
+    }
+}
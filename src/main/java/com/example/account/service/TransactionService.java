@@ -6,21 +6,28 @@ import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
 import com.example.account.dto.AccountDto;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionWithCancel;
+import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRepository;
 import com.example.account.repository.TransactionRepository;
+import com.example.account.type.AccountEventType;
+import com.example.account.type.BalanceMode;
 import com.example.account.type.ErrorCode;
+import com.example.account.type.LockStrategyType;
 import com.example.account.type.TransactionResultType;
 import com.example.account.type.TransactionType;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
-import java.util.Objects;
-import java.util.UUID;
+import java.util.*;
 
 import static com.example.account.type.TransactionResultType.F;
 import static com.example.account.type.TransactionResultType.S;
@@ -34,6 +41,23 @@ public class TransactionService {
     private final TransactionRepository transactionRepository;
     private final AccountUserRepository accountUserRepository;
     private final AccountRepository accountRepository;
+    private final LockStrategy lockStrategy;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountLookupCache accountLookupCache;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final TransactionMetrics transactionMetrics;
+    private final FailedTransactionWriter failedTransactionWriter;
+    private final AccountJournal accountJournal;
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
+
+    // 한 번의 commit 으로 묶어서 insert 하는 거래 건수
+    static final int BATCH_CHUNK_SIZE = 500;
+
+    @Value("${account.balance-mode:lock}")
+    private BalanceMode balanceMode = BalanceMode.LOCK;
+
+    @Value("${account.lock.strategy:redis}")
+    private LockStrategyType lockStrategyType = LockStrategyType.REDIS;
 
     /**
      * 사용자가 없는 경우, 사용자 아이디와 계좌 소유주가 다른 경우,
@@ -43,35 +67,358 @@ public class TransactionService {
     @Transactional
     public TransactionDto useBalance(
             Long userId, String accountNumber, Long amount) {
+        if (balanceMode == BalanceMode.ATOMIC) {
+            return useBalanceAtomic(userId, accountNumber, amount);
+        }
+
         AccountUser user = accountUserRepository.findById(userId)
                 .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
 
-        Account account = accountRepository.findByAccountNumber(accountNumber)
+        Account account = findAccountForWrite(accountNumber)
                 .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
 
         validateUseBalance(user, account, amount);
 
         account.useBalance(amount);
 
-        return TransactionDto.fromEntity(saveAndGetTransaction(S, amount, account, USE));
+        return TransactionDto.fromEntity(saveAndGetTransaction(buildTransaction(S, amount, account, USE)));
+    }
+
+    /**
+     * atomic 모드 : 계좌 lock 없이 조건부 UPDATE 한 번으로 차감한다.
+     * 계좌 row 를 엔티티로 읽지 않으므로 dirty checking 도 없다.
+     * UPDATE 가 잡은 row lock 은 commit 까지 유지되므로, 직후에 읽은 잔액이 이 거래의 잔액이다.
+     */
+    private TransactionDto useBalanceAtomic(
+            Long userId, String accountNumber, Long amount) {
+        AccountUser user = accountUserRepository.findById(userId)
+                .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
+
+        AccountLookupCache.AccountRef ref = accountLookupCache.findRef(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        if (!Objects.equals(user.getId(), ref.getOwnerId())) {
+            throw new AccountException(ErrorCode.ACCOUNT_UNMATCHED);
+        }
+
+        debitBalance(ref.getId(), amount);
+
+        Transaction transaction = transactionRepository.save(buildTransaction(
+                S, amount,
+                accountRepository.getReferenceById(ref.getId()),
+                accountRepository.findBalanceById(ref.getId()),
+                USE));
+        transactionMetrics.recordAfterCommit(transaction);
+        appendEvent(ref.getId(), transaction);
+
+        return TransactionDto.fromEntity(transaction, accountNumber);
+    }
+
+    // 조건부 UPDATE 로 차감하고, 차감되지 않았으면 이유를 찾는다.
+    private void debitBalance(Long accountId, Long amount) {
+        if (accountRepository.debitBalance(accountId, amount, LocalDateTime.now()) == 0) {
+            Account account = accountRepository.findById(accountId)
+                    .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+            if (account.getAccountStatus() == AccountStatus.UNREGISTERED) {
+                throw new AccountException(ErrorCode.ACCOUNT_ALREADY_DELETED);
+            }
+            throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        }
+    }
+
+    /**
+     * 여러 건의 잔액 사용 요청을 한 번에 처리한다.
+     * 계좌별로 묶어서 lock 은 계좌당 한 번만 잡고, 요청 순서대로 차감한다.
+     * 거래 내역은 BATCH_CHUNK_SIZE 건씩 batch insert 하고 chunk 마다 commit 한다.
+     * 결과는 요청과 같은 순서로, 실패 건(F)도 포함해서 돌려준다.
+     * single-writer 모드에서는 TransactionCommandQueue 를 거쳐야 한다. (계좌별 작업 스레드가 순서를 보장한다.)
+     */
+    public List<TransactionDto> useBalanceBatch(List<UseBalance.Request> requests) {
+        TransactionDto[] results = new TransactionDto[requests.size()];
+        transactionMetrics.recordBatchSize(requests.size());
+
+        indexesByAccount(requests).forEach((accountNumber, indexes) ->
+                useBalanceAccount(accountNumber, requests, indexes, results));
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 한 계좌의 요청만 처리한다. single-writer 모드에서 그 계좌의 작업 스레드가 호출한다.
+     */
+    List<TransactionDto> useBalanceAccountBatch(String accountNumber, List<UseBalance.Request> requests) {
+        TransactionDto[] results = new TransactionDto[requests.size()];
+        List<Integer> indexes = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            indexes.add(i);
+        }
+        useBalanceAccount(accountNumber, requests, indexes, results);
+        return Arrays.asList(results);
+    }
+
+    static Map<String, List<Integer>> indexesByAccount(List<UseBalance.Request> requests) {
+        Map<String, List<Integer>> indexesByAccount = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            indexesByAccount
+                    .computeIfAbsent(requests.get(i).getAccountNumber(), k -> new ArrayList<>())
+                    .add(i);
+        }
+        return indexesByAccount;
+    }
+
+    private void useBalanceAccount(
+            String accountNumber,
+            List<UseBalance.Request> requests,
+            List<Integer> indexes,
+            TransactionDto[] results) {
+        // 단건 요청과 같이 lock 모드에서만 lock 을 잡는다.
+        // (single-writer 는 작업 스레드가, atomic 은 조건부 UPDATE 가, optimistic 은 @Version 이 순서를 보장한다.)
+        if (balanceMode != BalanceMode.LOCK) {
+            useBalanceChunks(accountNumber, requests, indexes, results);
+            return;
+        }
+
+        try {
+            lockStrategy.lock(accountNumber);
+        } catch (AccountException e) {
+            indexes.forEach(i -> results[i] = failedTransactionDto(requests.get(i), e.getErrorCode()));
+            return;
+        }
+
+        try {
+            useBalanceChunks(accountNumber, requests, indexes, results);
+        } finally {
+            lockStrategy.unlock(accountNumber);
+        }
+    }
+
+    private void useBalanceChunks(
+            String accountNumber,
+            List<UseBalance.Request> requests,
+            List<Integer> indexes,
+            TransactionDto[] results) {
+        for (int from = 0; from < indexes.size(); from += BATCH_CHUNK_SIZE) {
+            List<Integer> chunk = indexes.subList(
+                    from, Math.min(from + BATCH_CHUNK_SIZE, indexes.size()));
+            try {
+                if (balanceMode == BalanceMode.OPTIMISTIC) {
+                    // @Version 충돌이면 chunk 를 새 트랜잭션에서 다시 읽고 처음부터 다시 한다.
+                    optimisticRetryExecutor.execute(() -> transactionTemplate.execute(status -> {
+                        useBalanceChunk(accountNumber, requests, chunk, results);
+                        return null;
+                    }));
+                    continue;
+                }
+                transactionTemplate.execute(status -> {
+                    if (balanceMode == BalanceMode.ATOMIC) {
+                        useBalanceChunkAtomic(accountNumber, requests, chunk, results);
+                    } else {
+                        useBalanceChunk(accountNumber, requests, chunk, results);
+                    }
+                    return null;
+                });
+            } catch (AccountException e) {
+                // 재시도를 다 쓴 경우
+                chunk.forEach(i -> results[i] = failedTransactionDto(requests.get(i), e.getErrorCode()));
+            } catch (RuntimeException e) {
+                log.error("Failed to use balance batch. accountNumber : {}", accountNumber, e);
+                chunk.forEach(i -> results[i] = failedTransactionDto(
+                        requests.get(i), ErrorCode.INTERNAL_SERVER_ERROR));
+            }
+        }
+    }
+
+    private void useBalanceChunk(
+            String accountNumber,
+            List<UseBalance.Request> requests,
+            List<Integer> chunk,
+            TransactionDto[] results) {
+        Optional<Account> optionalAccount = findAccountForWrite(accountNumber);
+        if (optionalAccount.isEmpty()) {
+            chunk.forEach(i -> results[i] = failedTransactionDto(
+                    requests.get(i), ErrorCode.ACCOUNT_NOT_FOUND));
+            return;
+        }
+        Account account = optionalAccount.get();
+
+        Map<Long, Optional<AccountUser>> users = new HashMap<>();
+        List<Transaction> transactions = new ArrayList<>(chunk.size());
+        for (int i : chunk) {
+            UseBalance.Request request = requests.get(i);
+            Optional<AccountUser> user = users.computeIfAbsent(
+                    request.getUserId(), accountUserRepository::findById);
+
+            ErrorCode errorCode = null;
+            try {
+                validateUseBalance(
+                        user.orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND)),
+                        account, request.getAmount());
+                account.useBalance(request.getAmount());
+            } catch (AccountException e) {
+                errorCode = e.getErrorCode();
+            }
+
+            Transaction transaction = buildTransaction(
+                    errorCode == null ? S : F, request.getAmount(), account, USE);
+            transaction.setErrorCode(errorCode);
+            transactions.add(transaction);
+        }
+
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+        transactionMetrics.recordAfterCommit(saved);
+        appendEvents(account, saved.stream()
+                .filter(transaction -> transaction.getTransactionResultType() == S)
+                .toList());
+        for (int k = 0; k < chunk.size(); k++) {
+            results[chunk.get(k)] = TransactionDto.fromEntity(saved.get(k));
+        }
+    }
+
+    /**
+     * atomic 모드 : 단건과 같이 계좌 엔티티를 읽지 않고 요청마다 조건부 UPDATE 로 차감한다.
+     * UPDATE 가 잡은 row lock 이 chunk 의 commit 까지 유지되므로, 차감 직후에 읽은 잔액 / 이벤트 순번이 그 거래의 값이다.
+     */
+    private void useBalanceChunkAtomic(
+            String accountNumber,
+            List<UseBalance.Request> requests,
+            List<Integer> chunk,
+            TransactionDto[] results) {
+        Optional<AccountLookupCache.AccountRef> optionalRef = accountLookupCache.findRef(accountNumber);
+        if (optionalRef.isEmpty()) {
+            chunk.forEach(i -> results[i] = failedTransactionDto(
+                    requests.get(i), ErrorCode.ACCOUNT_NOT_FOUND));
+            return;
+        }
+        AccountLookupCache.AccountRef ref = optionalRef.get();
+        Account account = accountRepository.getReferenceById(ref.getId());
+
+        Map<Long, Optional<AccountUser>> users = new HashMap<>();
+        List<Transaction> transactions = new ArrayList<>(chunk.size());
+        for (int i : chunk) {
+            UseBalance.Request request = requests.get(i);
+            Optional<AccountUser> user = users.computeIfAbsent(
+                    request.getUserId(), accountUserRepository::findById);
+
+            ErrorCode errorCode = null;
+            try {
+                AccountUser found = user.orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
+                if (!Objects.equals(found.getId(), ref.getOwnerId())) {
+                    throw new AccountException(ErrorCode.ACCOUNT_UNMATCHED);
+                }
+                debitBalance(ref.getId(), request.getAmount());
+            } catch (AccountException e) {
+                errorCode = e.getErrorCode();
+            }
+
+            Transaction transaction = buildTransaction(
+                    errorCode == null ? S : F, request.getAmount(), account,
+                    accountRepository.findBalanceById(ref.getId()), USE);
+            transaction.setErrorCode(errorCode);
+            if (errorCode == null) {
+                appendEvent(ref.getId(), transaction);
+            }
+            transactions.add(transaction);
+        }
+
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+        transactionMetrics.recordAfterCommit(saved);
+        for (int k = 0; k < chunk.size(); k++) {
+            results[chunk.get(k)] = TransactionDto.fromEntity(saved.get(k), accountNumber);
+        }
+    }
+
+    /**
+     * 잔액을 바꿀 계좌를 읽는다.
+     * database lock 이면 여기서 row lock 을 잡고, 나머지는 @AccountLock 이 이미 lock 을 잡은 상태다.
+     */
+    private Optional<Account> findAccountForWrite(String accountNumber) {
+        if (lockStrategyType == LockStrategyType.DATABASE) {
+            return accountLookupCache.findAccountForUpdate(accountNumber);
+        }
+        return accountLookupCache.findAccount(accountNumber);
+    }
+
+    static TransactionDto failedTransactionDto(UseBalance.Request request, ErrorCode errorCode) {
+        return TransactionDto.builder()
+                .accountNumber(request.getAccountNumber())
+                .transactionType(USE)
+                .transactionResultType(F)
+                .errorCode(errorCode)
+                .amount(request.getAmount())
+                .build();
+    }
+
+    private Transaction saveAndGetTransaction(Transaction transaction) {
+        Transaction saved = transactionRepository.save(transaction);
+        transactionMetrics.recordAfterCommit(saved);
+        if (saved.getTransactionResultType() == S) {
+            appendEvents(transaction.getAccount(), List.of(saved));
+        }
+        return saved;
+    }
+
+    /**
+     * 계좌 엔티티를 고친 거래들의 이벤트, 순번은 계좌에서 하나씩 올린다.
+     * 거래 후 잔액(balanceSnapshot)이 이 이벤트까지 반영한 잔액이다.
+     *
+     * optimistic 모드는 순번을 지키는 계좌 lock 이 없다.
+     * flush 순서대로면 이벤트 INSERT 가 계좌 UPDATE 보다 먼저 나가서, 같은 순번을 쓴 동시 요청이 이벤트 unique 제약에 걸린다.
+     * 순번을 다 올린 뒤 계좌 UPDATE 를 먼저 flush 해서 @Version 충돌(재시도 대상)로 실패하게 한다.
+     */
+    private void appendEvents(Account account, List<Transaction> transactions) {
+        long[] sequenceNumbers = new long[transactions.size()];
+        for (int i = 0; i < sequenceNumbers.length; i++) {
+            sequenceNumbers[i] = account.nextEventSequence();
+        }
+        if (balanceMode == BalanceMode.OPTIMISTIC) {
+            accountRepository.flush();
+        }
+        for (int i = 0; i < sequenceNumbers.length; i++) {
+            Transaction transaction = transactions.get(i);
+            accountJournal.append(account.getId(),
+                    sequenceNumbers[i],
+                    AccountEventType.from(transaction.getTransactionType()),
+                    transaction.getAmount(),
+                    transaction.getBalanceSnapshot(),
+                    transaction.getTransactionId(),
+                    transaction.getTransactionAt());
+        }
+    }
+
+    // 계좌 row 를 UPDATE 문으로 고친 경우 (atomic), 순번은 UPDATE 가 올린 값을 읽는다.
+    private void appendEvent(Long accountId, Transaction transaction) {
+        accountJournal.append(accountId,
+                accountRepository.findEventSequenceById(accountId),
+                AccountEventType.from(transaction.getTransactionType()),
+                transaction.getAmount(),
+                transaction.getBalanceSnapshot(),
+                transaction.getTransactionId(),
+                transaction.getTransactionAt());
+    }
+
+    private Transaction buildTransaction(
+            TransactionResultType resultType,
+            Long amount,
+            Account account,
+            TransactionType type) {
+        return buildTransaction(resultType, amount, account, account.getBalance(), type);
     }
 
-    private Transaction saveAndGetTransaction(
+    private Transaction buildTransaction(
             TransactionResultType resultType,
             Long amount,
             Account account,
+            Long balanceSnapshot,
             TransactionType type) {
-        return transactionRepository.save(
-                Transaction.builder()
-                        .transactionType(type)
-                        .transactionResultType(resultType)
-                        .account(account)
-                        .amount(amount)
-                        .balanceSnapshot(account.getBalance())
-                        .transactionId(UUID.randomUUID().toString().replace("-", ""))
-                        .transactionAt(LocalDateTime.now())
-                        .build()
-        );
+        return Transaction.builder()
+                .transactionType(type)
+                .transactionResultType(resultType)
+                .account(account)
+                .amount(amount)
+                .balanceSnapshot(balanceSnapshot)
+                .transactionId(transactionIdGenerator.next())
+                .transactionAt(LocalDateTime.now())
+                .build();
     }
 
     private void validateUseBalance(AccountUser user, Account account, Long amount) {
@@ -86,28 +433,61 @@ public class TransactionService {
         }
     }
 
-    @Transactional
+    /**
+     * 실패(F) 거래 내역은 FailedTransactionWriter 가 모아서 따로 저장한다.
+     * 요청 스레드에서는 조회 / insert 없이 큐에 넣기만 한다.
+     */
     public void saveFailedUseTransaction(String accountNumber, Long amount) {
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
-
-        saveAndGetTransaction(F, amount, account, USE);
-
+        failedTransactionWriter.write(accountNumber, amount);
     }
 
+    /**
+     * 원거래와 그 취소 거래를 한 번에 읽어서, 이미 취소된 거래면 실패 응답
+     * 취소 거래는 원거래 id(유니크 인덱스)를 가지므로, lock 없이 동시에 들어온 취소도 하나만 저장된다.
+     */
     @Transactional
     public TransactionDto cancelBalance(
             String transactionId, String accountNumber, Long amount) {
-        Transaction transaction = transactionRepository.findByTransactionId(transactionId)
+        TransactionWithCancel found = transactionRepository.findWithCancelByTransactionId(transactionId)
                 .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
-        Account account = accountRepository.findByAccountNumber(accountNumber)
+        if (found.isCancelled()) {
+            throw new AccountException(ErrorCode.TRANSACTION_ALREADY_CANCELLED);
+        }
+        Transaction transaction = found.getTransaction();
+        Account account = findAccountForWrite(accountNumber)
                 .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
 
         validateCancelBalance(transaction, account, amount);
 
+        if (balanceMode == BalanceMode.ATOMIC) {
+            // lock 없이 동시에 들어온 차감(UPDATE)을 덮어쓰지 않도록 DB 에서 더한다.
+            accountRepository.creditBalance(account.getId(), amount, LocalDateTime.now());
+            Transaction cancel = saveCancel(buildTransaction(
+                    S, amount, account, accountRepository.findBalanceById(account.getId()), CANCEL),
+                    transactionId);
+            transactionMetrics.recordAfterCommit(cancel);
+            appendEvent(account.getId(), cancel);
+            return TransactionDto.fromEntity(cancel);
+        }
+
         account.cancelBalance(amount);
 
-        return TransactionDto.fromEntity(saveAndGetTransaction(S, amount, account, CANCEL));
+        Transaction cancel = buildTransaction(S, amount, account, CANCEL);
+        // 이벤트 순번까지 올린 뒤에 flush 해야 계좌 UPDATE 가 한 번으로 끝난다.
+        appendEvents(account, List.of(cancel));
+        Transaction saved = saveCancel(cancel, transactionId);
+        transactionMetrics.recordAfterCommit(saved);
+        return TransactionDto.fromEntity(saved);
+    }
+
+    // 유니크 인덱스 위반은 commit 전에 알 수 있도록 바로 insert 한다.
+    private Transaction saveCancel(Transaction cancel, String originalTransactionId) {
+        cancel.setOriginalTransactionId(originalTransactionId);
+        try {
+            return transactionRepository.saveAndFlush(cancel);
+        } catch (DataIntegrityViolationException e) {
+            throw new AccountException(ErrorCode.TRANSACTION_ALREADY_CANCELLED);
+        }
     }
 
     private void validateCancelBalance(Transaction transaction, Account account, Long amount) {
@@ -122,10 +502,10 @@ public class TransactionService {
         }
     }
 
+    @Transactional(readOnly = true)
     public TransactionDto queryTransaction(String transactionId) {
-        return TransactionDto.fromEntity(
-                transactionRepository.findByTransactionId(transactionId)
-                .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND)));
+        return transactionRepository.findDtoByTransactionId(transactionId)
+                .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
     }
 
 }
@@ -0,0 +1,71 @@
+package com.example.account.service;
+
+import com.example.account.config.ConditionalOnBalanceMode;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.type.BalanceMode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * lock / atomic / optimistic 모드 : 요청 스레드에서 TransactionService 를 바로 호출한다.
+ *
+ * lock 모드의 계좌 lock 은 컨트롤러의 @AccountLock 이 잡는다.
+ * optimistic 모드의 @Version 충돌은 트랜잭션 밖에서 다시 실행한다. (OptimisticRetryExecutor, 다른 모드는 한 번만)
+ * 비동기 요청은 AsyncTransactionService 가 lock 을 비동기로 잡고 별도 실행기에서 처리한다.
+ */
+@Slf4j
+@Component
+@ConditionalOnBalanceMode({BalanceMode.LOCK, BalanceMode.ATOMIC, BalanceMode.OPTIMISTIC})
+@RequiredArgsConstructor
+public class TransactionServiceBalanceEngine implements BalanceEngine {
+    private final TransactionService transactionService;
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
+    private final AsyncTransactionService asyncTransactionService;
+
+    @Override
+    public CompletableFuture<TransactionDto> useBalance(Long userId, String accountNumber, Long amount) {
+        try {
+            return CompletableFuture.completedFuture(optimisticRetryExecutor.execute(() ->
+                    transactionService.useBalance(userId, accountNumber, amount)));
+        } catch (AccountException e) {
+            log.error("Failed to use balance. " + e.getErrorMessage());
+            transactionService.saveFailedUseTransaction(accountNumber, amount);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransactionDto> cancelBalance(
+            String transactionId, String accountNumber, Long amount) {
+        try {
+            return CompletableFuture.completedFuture(optimisticRetryExecutor.execute(() ->
+                    transactionService.cancelBalance(transactionId, accountNumber, amount)));
+        } catch (AccountException e) {
+            log.error("Failed to cancelBalance. " + e.getErrorMessage());
+            transactionService.saveFailedUseTransaction(accountNumber, amount);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public List<TransactionDto> useBalanceBatch(List<UseBalance.Request> requests) {
+        return transactionService.useBalanceBatch(requests);
+    }
+
+    @Override
+    public CompletableFuture<TransactionDto> useBalanceAsync(Long userId, String accountNumber, Long amount) {
+        return asyncTransactionService.useBalance(userId, accountNumber, amount);
+    }
+
+    @Override
+    public CompletableFuture<TransactionDto> cancelBalanceAsync(
+            String transactionId, String accountNumber, Long amount) {
+        return asyncTransactionService.cancelBalance(transactionId, accountNumber, amount);
+    }
+}
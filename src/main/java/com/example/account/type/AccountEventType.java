@@ -0,0 +1,29 @@
+package com.example.account.type;
+
+/**
+ * 계좌 이벤트 종류 (AccountJournal)
+ * 잔액은 이벤트를 순서대로 apply 해서 다시 만든다.
+ */
+public enum AccountEventType {
+    // 계좌 개설, 금액 = 초기 잔액
+    ACCOUNT_CREATED,
+    // 잔액 사용 (성공 거래만)
+    BALANCE_USED,
+    // 잔액 사용 취소
+    BALANCE_CANCELLED,
+    // 계좌 해지, 잔액은 그대로 (0 이어야 해지된다.)
+    ACCOUNT_UNREGISTERED;
+
+    public long apply(long balance, long amount) {
+        return switch (this) {
+            case ACCOUNT_CREATED -> amount;
+            case BALANCE_USED -> balance - amount;
+            case BALANCE_CANCELLED -> balance + amount;
+            case ACCOUNT_UNREGISTERED -> balance;
+        };
+    }
+
+    public static AccountEventType from(TransactionType transactionType) {
+        return transactionType == TransactionType.USE ? BALANCE_USED : BALANCE_CANCELLED;
+    }
+}
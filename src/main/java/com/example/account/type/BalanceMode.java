@@ -0,0 +1,19 @@
+package com.example.account.type;
+
+/**
+ * 잔액 변경 방식 (account.balance-mode)
+ */
+public enum BalanceMode {
+    // 계좌 lock(@AccountLock) 을 잡고 읽고 -> 검증 -> 쓰기
+    LOCK,
+    // 계좌별 작업 스레드 하나가 순서대로 처리 (lock 없음)
+    SINGLE_WRITER,
+    // UPDATE ... WHERE balance >= ? 한 번으로 차감 (lock 없음)
+    ATOMIC,
+    // lock 없이 @Version 으로 충돌을 감지하고 재시도
+    OPTIMISTIC,
+    // 메모리 원장에서 차감하고 write-ahead log 에 남긴 뒤, DB 에는 주기적으로 checkpoint (LedgerEngine)
+    LEDGER,
+    // Redis hash 잔액을 Lua 스크립트 한 번으로 확인 + 차감하고, DB 에는 Redis list 를 거쳐 뒤따라 반영 (RedisBalanceEngine)
+    REDIS
+}
@@ -18,9 +18,14 @@ public enum ErrorCode {
     TRANSACTION_NOT_FOUND("거래 내역을 찾을 수 없습니다."),
     TRANSACTION_UNMATCHED("접근할 수 없는 거래 내역입니다."),
     CANCEL_MUST_FULLY("부분 취소는 허용되지 않습니다."),
+    TRANSACTION_ALREADY_CANCELLED("이미 취소된 거래입니다."),
     TOO_OLD_ORDER_TO_CANCEL("1년이 지난 거래는 취소할 수 없습니다."),
     INVALIDED_REQUEST("잘못된 요청입니다."),
-    ACCOUNT_TRANSACTION_LOCK_FAILED("해당 계좌는 사용중입니다.");
+    ACCOUNT_TRANSACTION_LOCK_FAILED("해당 계좌는 사용중입니다."),
+    LOCK_UNAVAILABLE("계좌 lock 서버에 연결할 수 없습니다."),
+    SERVER_BUSY("요청이 많아 처리할 수 없습니다. 잠시 후 다시 시도해 주세요."),
+    IDEMPOTENCY_KEY_IN_PROGRESS("같은 Idempotency-Key 의 요청을 처리하고 있습니다."),
+    IDEMPOTENCY_KEY_REUSED("같은 Idempotency-Key 로 다른 요청을 보낼 수 없습니다.");
 
 
     private final String description;
@@ -0,0 +1,13 @@
+package com.example.account.type;
+
+/**
+ * @AccountLock 이 쓰는 lock 종류 (account.lock.strategy)
+ */
+public enum LockStrategyType {
+    // JVM 내부 lock + Redis 분산 lock
+    REDIS,
+    // JVM 내부 lock 만 (단일 노드)
+    LOCAL,
+    // 서비스 트랜잭션 안에서 계좌 row 를 SELECT ... FOR UPDATE (단일 DB)
+    DATABASE
+}
@@ -1,3 +1,5 @@
 insert into account_user(id, name, created_at, updated_at) values (1, 'Pororo', now(), now());
 insert into account_user(id, name, created_at, updated_at) values (2, 'Lupi', now(), now());
-insert into account_user(id, name, created_at, updated_at) values (3, 'Eddie', now(), now());
\ No newline at end of file
+insert into account_user(id, name, created_at, updated_at) values (3, 'Eddie', now(), now());
+
+create sequence if not exists account_number_seq start with 1 increment by 1;
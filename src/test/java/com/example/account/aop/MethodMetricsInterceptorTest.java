@@ -0,0 +1,66 @@
+package com.example.account.aop;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MethodMetricsInterceptorTest {
+    private SimpleMeterRegistry meterRegistry;
+    private MethodMetricsInterceptor interceptor;
+    private SampleService proxy;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        interceptor = new MethodMetricsInterceptor(
+                () -> meterRegistry, "account.service", "service", SampleService.class);
+
+        ProxyFactory proxyFactory = new ProxyFactory(new SampleService());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        proxy = (SampleService) proxyFactory.getProxy();
+    }
+
+    @Test
+    void preRegisterPublicMethods() {
+        // when
+        interceptor.afterSingletonsInstantiated();
+
+        // then
+        assertEquals(0L, meterRegistry.get("account.service")
+                .tags("service", "SampleService", "method", "hello", "outcome", "success")
+                .timer().count());
+        assertEquals(0L, meterRegistry.get("account.service")
+                .tags("service", "SampleService", "method", "fail", "outcome", "error")
+                .timer().count());
+    }
+
+    @Test
+    void recordSuccessAndError() {
+        // when
+        proxy.hello();
+        proxy.hello();
+        assertThrows(IllegalStateException.class, () -> proxy.fail());
+
+        // then
+        assertEquals(2L, meterRegistry.get("account.service")
+                .tags("method", "hello", "outcome", "success").timer().count());
+        assertEquals(1L, meterRegistry.get("account.service")
+                .tags("method", "fail", "outcome", "error").timer().count());
+        assertEquals(0L, meterRegistry.get("account.service")
+                .tags("method", "fail", "outcome", "success").timer().count());
+    }
+
+    static class SampleService {
+        public String hello() {
+            return "hello";
+        }
+
+        public void fail() {
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.account.config;
+
+import com.example.account.type.BalanceMode;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OnBalanceModeConditionTest {
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withUserConfiguration(SingleWriterConfig.class);
+
+    @Test
+    void matchesBoundEnum() {
+        for (String value : new String[]{"single-writer", "SINGLE_WRITER", "single_writer"}) {
+            runner.withPropertyValues("account.balance-mode=" + value)
+                    .run(context -> assertTrue(context.containsBean("singleWriterOnly"), value));
+        }
+    }
+
+    @Test
+    void otherModeOrMissing() {
+        runner.withPropertyValues("account.balance-mode=lock")
+                .run(context -> assertFalse(context.containsBean("singleWriterOnly")));
+        runner.run(context -> assertFalse(context.containsBean("singleWriterOnly")));
+    }
+
+    @Test
+    void unknownModeFailsStartup() {
+        runner.withPropertyValues("account.balance-mode=single-writr")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+    }
+
+    @Test
+    void matchesAnyOfModes() {
+        for (String value : new String[]{"lock", "atomic"}) {
+            runner.withPropertyValues("account.balance-mode=" + value)
+                    .run(context -> assertTrue(context.containsBean("lockOrAtomic"), value));
+        }
+        runner.run(context -> assertTrue(context.containsBean("lockOrAtomic")));
+        runner.withPropertyValues("account.balance-mode=ledger")
+                .run(context -> assertFalse(context.containsBean("lockOrAtomic")));
+    }
+
+    @Configuration
+    static class SingleWriterConfig {
+        @Bean
+        @ConditionalOnBalanceMode(BalanceMode.SINGLE_WRITER)
+        String singleWriterOnly() {
+            return "single-writer";
+        }
+
+        @Bean
+        @ConditionalOnBalanceMode({BalanceMode.LOCK, BalanceMode.ATOMIC})
+        String lockOrAtomic() {
+            return "lock-or-atomic";
+        }
+    }
+}
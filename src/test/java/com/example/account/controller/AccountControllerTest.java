@@ -7,44 +7,69 @@ import com.example.account.dto.AccountInfo;
 import com.example.account.dto.CreateAccount;
 import com.example.account.dto.DeleteAccount;
 import com.example.account.exception.AccountException;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistoryDto;
+import com.example.account.service.AccountJournal;
 import com.example.account.service.AccountService;
+import com.example.account.service.TransactionHistoryService;
 import com.example.account.type.ErrorCode;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.mockito.BDDMockito;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(AccountController.class)
+@Import(SimpleMeterRegistry.class)
 class AccountControllerTest {
     @MockBean
     private AccountService accountService;
 
+    @MockBean
+    private TransactionHistoryService transactionHistoryService;
+
+    @MockBean
+    private AccountJournal accountJournal;
+
     @Autowired
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     void successCreateAccount() throws Exception {
         // given
@@ -126,28 +151,30 @@ class AccountControllerTest {
                 .andExpect(jsonPath("$.errorCode").value("ACCOUNT_NOT_FOUND"))
                 .andExpect(jsonPath("$.errorMessage").value("계좌가 없습니다."))
                 .andExpect(status().isOk());
+        assertEquals(1.0, meterRegistry.get("account.errors")
+                .tag("code", "ACCOUNT_NOT_FOUND").counter().count());
     }
 
     @Test
     void successGetAccountByUserId() throws Exception {
         // given
-        List<AccountDto> accountDtoList = Arrays.asList(
-                AccountDto.builder()
+        List<AccountInfo> accountInfoList = Arrays.asList(
+                AccountInfo.builder()
                         .accountNumber("1231231231")
                         .balance(1000L)
                         .build(),
-                AccountDto.builder()
+                AccountInfo.builder()
                         .accountNumber("1111111111")
                         .balance(2000L)
                         .build(),
-                AccountDto.builder()
+                AccountInfo.builder()
                         .accountNumber("2222222222")
                         .balance(3000L)
                         .build()
         );
 
         given(accountService.getAccountsByUserId(anyLong()))
-                .willReturn(accountDtoList);
+                .willReturn(accountInfoList);
 
 
         // when
@@ -162,4 +189,84 @@ class AccountControllerTest {
                 .andExpect(jsonPath("$[2].accountNumber").value("2222222222"))
                 .andExpect(jsonPath("$[2].balance").value(3000L));
     }
-}
\ No newline at end of file
+
+    @Test
+    void successGetBalanceAt() throws Exception {
+        // given
+        given(accountJournal.getBalance("1000000000", LocalDateTime.of(2024, 1, 1, 0, 0)))
+                .willReturn(3000L);
+
+        // when
+        // then
+        mockMvc.perform(get("/account/1000000000/balance")
+                        .param("at", "2024-01-01T00:00:00"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountNumber").value("1000000000"))
+                .andExpect(jsonPath("$.balance").value(3000L))
+                .andExpect(jsonPath("$.at").value("2024-01-01T00:00:00"));
+    }
+
+    @Test
+    void successGetTransactions() throws Exception {
+        // given
+        given(transactionHistoryService.getTransactions(eq("1000000000"), isNull(), eq(20)))
+                .willReturn(TransactionHistoryDto.builder()
+                        .transactions(List.of(TransactionDto.builder()
+                                .accountNumber("1000000000")
+                                .transactionId("transactionId")
+                                .amount(1000L)
+                                .build()))
+                        .nextCursor("next")
+                        .build());
+
+        // when
+        // then
+        mockMvc.perform(get("/account/1000000000/transactions"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactions[0].transactionId").value("transactionId"))
+                .andExpect(jsonPath("$.transactions[0].amount").value(1000))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void successExportTransactions() throws Exception {
+        // given
+        willAnswer(invocation -> {
+            Consumer<TransactionDto> writer = invocation.getArgument(1);
+            writer.accept(TransactionDto.builder().transactionId("tx1").amount(100L).build());
+            writer.accept(TransactionDto.builder().transactionId("tx2").amount(200L).build());
+            return null;
+        }).given(transactionHistoryService).exportTransactions(eq("1000000000"), any());
+
+        // when
+        MvcResult result = mockMvc.perform(get("/account/1000000000/transactions/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"accountNumber\":null,\"transactionType\":null,\"transactionResultType\":null,"
+                                + "\"transactionId\":\"tx1\",\"amount\":100,\"transactionAt\":null}\n"
+                                + "{\"accountNumber\":null,\"transactionType\":null,\"transactionResultType\":null,"
+                                + "\"transactionId\":\"tx2\",\"amount\":200,\"transactionAt\":null}\n"));
+    }
+
+    @Test
+    void exportTransactionsAccountNotFound() throws Exception {
+        // given
+        given(transactionHistoryService.getAccountId(anyString()))
+                .willThrow(new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        // when
+        // then
+        mockMvc.perform(get("/account/1000000000/transactions/export"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errorCode").value("ACCOUNT_NOT_FOUND"));
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.account.controller;
+
+import com.example.account.dto.CancelBalance;
+import com.example.account.dto.CreateAccount;
+import com.example.account.dto.UseBalance;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * API 하나가 DB 에 보내는 SQL 수 (Hibernate statistics)
+ *
+ * 연관 엔티티를 지연 로딩하면서 필요한 곳만 join fetch 로 읽는지,
+ * 조회 API 는 엔티티 없이 필요한 컬럼만 읽는지 확인한다.
+ * 계좌 캐시와 id sequence 는 setUp 에서 미리 채워둔다.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "account.lock.strategy=local",
+        "account.redis.enabled=false"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryCountTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private String accountNumber;
+
+    @BeforeAll
+    void setUp() throws Exception {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        accountNumber = objectMapper.readValue(mockMvc.perform(post("/account")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CreateAccount.Request(2L, 100_000L))))
+                .andReturn().getResponse().getContentAsString(), CreateAccount.Response.class)
+                .getAccountNumber();
+        // pooled sequence 는 처음 두 번 next value 를 읽는다.
+        useBalance();
+        useBalance();
+    }
+
+    // 계좌 이벤트는 스냅샷 주기(100)에 걸리지 않는 범위에서만 센다.
+    @Test
+    void useBalance_userAccountInsertUpdate() throws Exception {
+        // when
+        long statements = countStatements(this::useBalance);
+
+        // then
+        // select user, select account, insert transaction, insert account_event, update account
+        assertEquals(5, statements);
+    }
+
+    @Test
+    void cancelBalance_transactionAccountInsertUpdate() throws Exception {
+        // given
+        String transactionId = useBalance();
+
+        // when
+        long statements = countStatements(() -> perform(post("/transaction/cancel")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(
+                        new CancelBalance.Request(transactionId, accountNumber, 100L)))));
+
+        // then
+        // select transaction + 취소 거래 (계좌는 id 만 비교), select account, insert transaction, insert account_event, update account
+        assertEquals(5, statements);
+    }
+
+    @Test
+    void queryTransaction_singleJoin() throws Exception {
+        // given
+        String transactionId = useBalance();
+
+        // when
+        long statements = countStatements(() -> mockMvc.perform(get("/transaction/" + transactionId))
+                .andExpect(jsonPath("$.accountNumber").value(accountNumber)));
+
+        // then
+        assertEquals(1, statements);
+        // 엔티티 대신 필요한 컬럼만 읽는다.
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getAccount_singleJoin() throws Exception {
+        // given
+        long accountId = entityManagerFactory.createEntityManager()
+                .createQuery("select a.id from Account a where a.accountNumber = :accountNumber", Long.class)
+                .setParameter("accountNumber", accountNumber)
+                .getSingleResult();
+
+        // when
+        long statements = countStatements(() -> mockMvc.perform(get("/account/" + accountId))
+                .andExpect(jsonPath("$.accountUser.id").value(2L)));
+
+        // then
+        assertEquals(1, statements);
+    }
+
+    @Test
+    void getAccountsByUserId_userAndAccounts() throws Exception {
+        // when
+        long statements = countStatements(() -> mockMvc.perform(get("/account?user_id=2"))
+                .andExpect(status().isOk()));
+
+        // then
+        // 사용자 존재 확인, 계좌번호 / 잔액 select
+        assertEquals(2, statements);
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getTransactions_singlePage() throws Exception {
+        // when
+        long statements = countStatements(() -> mockMvc.perform(
+                        get("/account/" + accountNumber + "/transactions"))
+                .andExpect(status().isOk()));
+
+        // then
+        // 계좌 id 는 캐시에서, 거래 내역 페이지 select 한 번
+        assertEquals(1, statements);
+    }
+
+    private String useBalance() throws Exception {
+        MvcResult result = perform(post("/transaction/use")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(
+                        new UseBalance.Request(2L, accountNumber, 100L))));
+        UseBalance.Response response = objectMapper.readValue(
+                result.getResponse().getContentAsString(), UseBalance.Response.class);
+        assertNotNull(response.getTransactionId());
+        return response.getTransactionId();
+    }
+
+    // 비동기(CompletableFuture) 응답까지 기다린다.
+    private MvcResult perform(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        return mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn();
+    }
+
+    private long countStatements(Request request) throws Exception {
+        statistics.clear();
+        request.perform();
+        return statistics.getPrepareStatementCount();
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        void perform() throws Exception;
+    }
+}
@@ -4,37 +4,55 @@ import com.example.account.dto.AccountDto;
 import com.example.account.dto.CancelBalance;
 import com.example.account.dto.TransactionDto;
 import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
+import com.example.account.exception.AccountException;
 import com.example.account.repository.TransactionRepository;
+import com.example.account.service.AsyncTransactionService;
+import com.example.account.service.NoProcessingDelay;
+import com.example.account.service.OptimisticRetryExecutor;
 import com.example.account.service.TransactionService;
+import com.example.account.service.TransactionServiceBalanceEngine;
+import com.example.account.type.ErrorCode;
 import com.example.account.type.TransactionType;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.mockito.ArgumentMatchers;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import static com.example.account.type.TransactionResultType.F;
 import static com.example.account.type.TransactionResultType.S;
 import static com.example.account.type.TransactionType.USE;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(TransactionController.class)
+@Import({NoProcessingDelay.class, OptimisticRetryExecutor.class, TransactionServiceBalanceEngine.class, SimpleMeterRegistry.class})
 class TransactionControllerTest {
     @MockBean
     private TransactionService transactionService;
@@ -42,6 +60,9 @@ class TransactionControllerTest {
     @MockBean
     private TransactionRepository transactionRepository;
 
+    @MockBean
+    private AsyncTransactionService asyncTransactionService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -66,7 +87,7 @@ class TransactionControllerTest {
 
         // then
 
-        mockMvc.perform(post("/transaction/use")
+        MvcResult result = mockMvc.perform(post("/transaction/use")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(
                                 new UseBalance.Request(
@@ -74,7 +95,12 @@ class TransactionControllerTest {
                                         "2000000000",
                                         1000L
                                 )
-                        ))).andDo(print())
+                        )))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.accountNumber").value("1000000000"))
                 .andExpect(jsonPath("$.transactionResultType").value("S"))
@@ -84,6 +110,75 @@ class TransactionControllerTest {
 
     }
 
+    @Test
+    void useBalanceWithoutProcessingDelay() throws Exception {
+        // given
+        given(transactionService.useBalance(anyLong(), anyString(), anyLong()))
+                .willReturn(TransactionDto.builder()
+                        .accountNumber("1000000000")
+                        .transactionAt(LocalDateTime.now())
+                        .amount(12345L)
+                        .transactionId("transactionId")
+                        .transactionResultType(S)
+                        .build());
+
+        // when
+        long start = System.nanoTime();
+        MvcResult result = mockMvc.perform(post("/transaction/use")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalance.Request(
+                                        1L,
+                                        "2000000000",
+                                        1000L
+                                )
+                        )))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // then
+        // 지연이 꺼져 있으면 응답은 1초 안에 끝나야 한다.
+        assertTrue(elapsedMillis < 1000L, "elapsed : " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void successUseBalanceBatch() throws Exception {
+        // given
+        given(transactionService.useBalanceBatch(anyList()))
+                .willReturn(Arrays.asList(
+                        TransactionDto.builder()
+                                .accountNumber("1000000000")
+                                .transactionAt(LocalDateTime.now())
+                                .amount(1000L)
+                                .transactionId("transactionId")
+                                .transactionResultType(S)
+                                .build(),
+                        TransactionDto.builder()
+                                .accountNumber("1000000000")
+                                .amount(2000L)
+                                .transactionResultType(F)
+                                .errorCode(ErrorCode.AMOUNT_EXCEED_BALANCE)
+                                .build()));
+
+        // when
+        // then
+        mockMvc.perform(post("/transaction/use/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalanceBatch.Request(Arrays.asList(
+                                        new UseBalance.Request(1L, "1000000000", 1000L),
+                                        new UseBalance.Request(1L, "1000000000", 2000L)
+                                ))
+                        ))).andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].transactionResultType").value("S"))
+                .andExpect(jsonPath("$.results[0].transactionId").value("transactionId"))
+                .andExpect(jsonPath("$.results[1].transactionResultType").value("F"))
+                .andExpect(jsonPath("$.results[1].errorCode").value("AMOUNT_EXCEED_BALANCE"));
+    }
+
     @Test
     void successCancelBalance() throws Exception {
         // given
@@ -102,7 +197,7 @@ class TransactionControllerTest {
 
         // then
 
-        mockMvc.perform(post("/transaction/cancel")
+        MvcResult result = mockMvc.perform(post("/transaction/cancel")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(
                                 new CancelBalance.Request(
@@ -110,7 +205,12 @@ class TransactionControllerTest {
                                         "2000000000",
                                         1000L
                                 )
-                        ))).andDo(print())
+                        )))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.accountNumber").value("1000000000"))
                 .andExpect(jsonPath("$.transactionResultType").value("S"))
@@ -147,4 +247,110 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.amount").value(12345L));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void successUseBalanceAsync() throws Exception {
+        // given
+        given(asyncTransactionService.useBalance(anyLong(), anyString(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(TransactionDto.builder()
+                        .accountNumber("1000000000")
+                        .transactionAt(LocalDateTime.now())
+                        .amount(12345L)
+                        .transactionId("transactionId")
+                        .transactionResultType(S)
+                        .build()));
+
+        // when
+        MvcResult result = mockMvc.perform(post("/transaction/async/use")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalance.Request(1L, "1000000000", 12345L))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountNumber").value("1000000000"))
+                .andExpect(jsonPath("$.transactionResultType").value("S"))
+                .andExpect(jsonPath("$.amount").value(12345L));
+        verify(transactionService, times(0)).useBalance(anyLong(), anyString(), anyLong());
+    }
+
+    @Test
+    void useBalanceAsyncLockFailed() throws Exception {
+        // given
+        given(asyncTransactionService.useBalance(anyLong(), anyString(), anyLong()))
+                .willReturn(CompletableFuture.failedFuture(
+                        new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED)));
+
+        // when
+        MvcResult result = mockMvc.perform(post("/transaction/async/use")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalance.Request(1L, "1000000000", 12345L))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errorCode").value("ACCOUNT_TRANSACTION_LOCK_FAILED"));
+    }
+
+    @Test
+    void successCancelBalanceAsync() throws Exception {
+        // given
+        given(asyncTransactionService.cancelBalance(anyString(), anyString(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(TransactionDto.builder()
+                        .accountNumber("1000000000")
+                        .transactionAt(LocalDateTime.now())
+                        .amount(54321L)
+                        .transactionId("transactionIdForCancel")
+                        .transactionResultType(S)
+                        .build()));
+
+        // when
+        MvcResult result = mockMvc.perform(post("/transaction/async/cancel")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new CancelBalance.Request("transactionId", "1000000000", 54321L))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactionId").value("transactionIdForCancel"))
+                .andExpect(jsonPath("$.amount").value(54321L));
+    }
+
+    @Test
+    void successQueryTransactionAsync() throws Exception {
+        // given
+        given(asyncTransactionService.queryTransaction("12345"))
+                .willReturn(CompletableFuture.completedFuture(TransactionDto.builder()
+                        .accountNumber("1000000000")
+                        .transactionType(USE)
+                        .transactionAt(LocalDateTime.now())
+                        .amount(12345L)
+                        .transactionId("12345")
+                        .transactionResultType(S)
+                        .build()));
+
+        // when
+        MvcResult result = mockMvc.perform(get("/transaction/async/12345"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactionId").value("12345"))
+                .andExpect(jsonPath("$.transactionType").value("USE"));
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.account.controller;
+
+import com.example.account.dto.AccountInfo;
+import com.example.account.dto.CreateAccount;
+import com.example.account.dto.UseBalance;
+import com.example.account.type.TransactionResultType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * /transaction/use 부하 테스트
+ *
+ * 동시에 CONCURRENCY 개의 요청을 계속 보내고 처리량을 로그로 남긴다.
+ * platform thread : ./gradlew loadTest
+ * virtual thread  : ./gradlew loadTest -Dspring.profiles.active=virtual (Java 21)
+ * 성공(S) 건수와 계좌 잔액이 줄어든 금액이 맞는지도 확인한다.
+ * 처리량은 비교용으로 남기기만 하고 검사하지 않는다. (실행 환경마다 다르다.)
+ * vCPU 1개, JDK 21.0.1 에서 두 번씩 돌린 결과 platform 103 / 106, virtual 113 / 126 req/s 로,
+ * 실행마다 차이가 커서 virtual thread 의 이득은 확인되지 않았다.
+ *
+ * 계좌당 CONCURRENCY / 계좌 수(약 13)개의 요청이 같은 lock 을 기다리므로, 처리량을 재는 동안 lock 대기 시간 초과로
+ * 실패하지 않도록 대기 시간을 늘려서 돌린다.
+ */
+@Tag("load")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.jpa.properties.hibernate.show_sql=false",
+                "spring.jpa.properties.hibernate.format_sql=false",
+                "logging.level.root=WARN",
+                "logging.level.com.example.account.controller.TransactionLoadTest=INFO",
+                "account.lock.wait-millis=30000"
+        })
+class TransactionLoadTest {
+    private static final Logger log = LoggerFactory.getLogger(TransactionLoadTest.class);
+    private static final long[] USER_IDS = {1L, 2L, 3L};
+    private static final int ACCOUNTS_PER_USER = 10;
+    private static final long INITIAL_BALANCE = 100_000_000L;
+    private static final long AMOUNT = 100L;
+    private static final int WARMUP_REQUESTS = 1_000;
+    private static final int REQUESTS = 10_000;
+    private static final int CONCURRENCY = 400;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Environment environment;
+
+    @Test
+    void useBalanceThroughput() throws Exception {
+        // given
+        List<UseBalance.Request> targets = new ArrayList<>();
+        for (long userId : USER_IDS) {
+            for (int i = 0; i < ACCOUNTS_PER_USER; i++) {
+                CreateAccount.Response account = restTemplate.postForObject("/account",
+                        new CreateAccount.Request(userId, INITIAL_BALANCE), CreateAccount.Response.class);
+                targets.add(new UseBalance.Request(userId, account.getAccountNumber(), AMOUNT));
+            }
+        }
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        run(client, targets, WARMUP_REQUESTS);
+
+        // when
+        long start = System.nanoTime();
+        int success = run(client, targets, REQUESTS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // then
+        log.info("[load] java={} profiles={} requests={} concurrency={} success={} elapsed={}ms throughput={} req/s",
+                Runtime.version(), Arrays.toString(environment.getActiveProfiles()), REQUESTS, CONCURRENCY,
+                success, elapsedMillis, Math.round(REQUESTS * 1000.0 / Math.max(elapsedMillis, 1L)));
+
+        long used = 0L;
+        for (long userId : USER_IDS) {
+            for (AccountInfo info : restTemplate.getForObject(
+                    "/account?user_id=" + userId, AccountInfo[].class)) {
+                used += INITIAL_BALANCE - info.getBalance();
+            }
+        }
+        int warmupSuccess = (int) (used / AMOUNT) - success;
+        assertTrue(warmupSuccess >= 0 && warmupSuccess <= WARMUP_REQUESTS);
+        assertTrue(success > REQUESTS * 0.99, "success : " + success);
+    }
+
+    /**
+     * @return 성공(S) 응답 건수
+     */
+    private int run(HttpClient client, List<UseBalance.Request> targets, int requests) throws Exception {
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        AtomicInteger success = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(requests);
+
+        for (int i = 0; i < requests; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/transaction/use"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            objectMapper.writeValueAsString(targets.get(i % targets.size()))))
+                    .build();
+
+            inFlight.acquire();
+            futures.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .thenAccept(response -> {
+                        if (response.statusCode() == 200 && isSuccess(response.body())) {
+                            success.incrementAndGet();
+                        }
+                    })
+                    .whenComplete((ignored, e) -> inFlight.release()));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.MINUTES);
+        return success.get();
+    }
+
+    private boolean isSuccess(String body) {
+        try {
+            return objectMapper.readValue(body, UseBalance.Response.class)
+                    .getTransactionResultType() == TransactionResultType.S;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
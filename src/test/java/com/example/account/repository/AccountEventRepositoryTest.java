@@ -0,0 +1,95 @@
+package com.example.account.repository;
+
+import com.example.account.domain.AccountEvent;
+import com.example.account.domain.AccountSnapshot;
+import com.example.account.type.AccountEventType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.example.account.type.AccountEventType.ACCOUNT_CREATED;
+import static com.example.account.type.AccountEventType.BALANCE_USED;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class AccountEventRepositoryTest {
+    @Autowired
+    private AccountEventRepository accountEventRepository;
+
+    @Autowired
+    private AccountSnapshotRepository accountSnapshotRepository;
+
+    private final LocalDateTime baseTime = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        // 계좌 1 : 이벤트 1 ~ 5 (1분 간격), 3번에서 스냅샷 / 계좌 2 : 이벤트 1
+        accountEventRepository.save(event(1L, 1L, ACCOUNT_CREATED, 0));
+        for (long sequence = 2; sequence <= 5; sequence++) {
+            accountEventRepository.save(event(1L, sequence, BALANCE_USED, sequence - 1));
+        }
+        accountEventRepository.save(event(2L, 1L, ACCOUNT_CREATED, 0));
+        accountSnapshotRepository.save(AccountSnapshot.builder()
+                .accountId(1L)
+                .sequenceNumber(3L)
+                .balance(8000L)
+                .takenAt(baseTime.plusMinutes(2))
+                .build());
+        accountEventRepository.flush();
+    }
+
+    @Test
+    void findTailAfterSnapshot() {
+        // when
+        List<AccountEvent> tail = accountEventRepository.findTail(1L, 3L);
+
+        // then
+        assertEquals(List.of(4L, 5L), tail.stream().map(AccountEvent::getSequenceNumber).toList());
+    }
+
+    @Test
+    void findTailUntilTime() {
+        // when
+        List<AccountEvent> tail = accountEventRepository.findTailUntil(1L, 0L, baseTime.plusMinutes(3));
+
+        // then
+        assertEquals(List.of(1L, 2L, 3L, 4L), tail.stream().map(AccountEvent::getSequenceNumber).toList());
+    }
+
+    @Test
+    void findSnapshotBeforeTime() {
+        // when
+        // then
+        assertTrue(accountSnapshotRepository
+                .findFirstByAccountIdAndTakenAtLessThanEqualOrderBySequenceNumberDesc(1L, baseTime.plusMinutes(1))
+                .isEmpty());
+        assertEquals(3L, accountSnapshotRepository
+                .findFirstByAccountIdAndTakenAtLessThanEqualOrderBySequenceNumberDesc(1L, baseTime.plusMinutes(2))
+                .orElseThrow().getSequenceNumber());
+        assertEquals(3L, accountSnapshotRepository.findFirstByAccountIdOrderBySequenceNumberDesc(1L)
+                .orElseThrow().getSequenceNumber());
+    }
+
+    @Test
+    void rejectDuplicateSequence() {
+        // when
+        // then
+        assertThrows(DataIntegrityViolationException.class,
+                () -> accountEventRepository.saveAndFlush(event(1L, 5L, BALANCE_USED, 10)));
+    }
+
+    private AccountEvent event(Long accountId, Long sequenceNumber, AccountEventType type, long minutes) {
+        return AccountEvent.builder()
+                .accountId(accountId)
+                .sequenceNumber(sequenceNumber)
+                .eventType(type)
+                .amount(type == ACCOUNT_CREATED ? 10000L : 1000L)
+                .occurredAt(baseTime.plusMinutes(minutes))
+                .build();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.account.repository;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountStatus;
+import com.example.account.dto.AccountInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class AccountRepositoryTest {
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        account = accountRepository.saveAndFlush(Account.builder()
+                .accountUser(accountUserRepository.findById(1L).get())
+                .accountNumber("1000000000")
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(1000L)
+                .registeredAt(LocalDateTime.now())
+                .build());
+    }
+
+    @Test
+    void debitBalance() {
+        // when
+        int updated = accountRepository.debitBalance(account.getId(), 300L, LocalDateTime.now());
+
+        // then
+        assertEquals(1, updated);
+        assertEquals(700L, accountRepository.findBalanceById(account.getId()));
+    }
+
+    @Test
+    void debitBalanceExceed() {
+        // when
+        int updated = accountRepository.debitBalance(account.getId(), 1001L, LocalDateTime.now());
+
+        // then
+        assertEquals(0, updated);
+        assertEquals(1000L, accountRepository.findBalanceById(account.getId()));
+    }
+
+    @Test
+    void debitBalanceUnregistered() {
+        // given
+        account.setAccountStatus(AccountStatus.UNREGISTERED);
+        accountRepository.saveAndFlush(account);
+
+        // when
+        int updated = accountRepository.debitBalance(account.getId(), 100L, LocalDateTime.now());
+
+        // then
+        assertEquals(0, updated);
+        assertEquals(1000L, accountRepository.findBalanceById(account.getId()));
+    }
+
+    @Test
+    void creditBalance() {
+        // when
+        int updated = accountRepository.creditBalance(account.getId(), 500L, LocalDateTime.now());
+
+        // then
+        assertEquals(1, updated);
+        assertEquals(1500L, accountRepository.findBalanceById(account.getId()));
+    }
+
+    @Test
+    void findForUpdate() {
+        // when
+        Optional<Account> byNumber = accountRepository.findByAccountNumberForUpdate("1000000000");
+        Optional<Account> byId = accountRepository.findByIdForUpdate(account.getId());
+
+        // then
+        assertEquals(account.getId(), byNumber.get().getId());
+        assertEquals(1000L, byId.get().getBalance());
+        assertTrue(accountRepository.findByAccountNumberForUpdate("9999999999").isEmpty());
+    }
+
+    @Test
+    void findAccountInfosByAccountUserId() {
+        // when
+        List<AccountInfo> accountInfos = accountRepository.findAccountInfosByAccountUserId(1L);
+
+        // then
+        assertEquals(1, accountInfos.size());
+        assertEquals("1000000000", accountInfos.get(0).getAccountNumber());
+        assertEquals(1000L, accountInfos.get(0).getBalance());
+        assertTrue(accountRepository.findAccountInfosByAccountUserId(2L).isEmpty());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.account.repository;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 백만 건을 넣은 H2 에서 계좌번호 / 거래 id 조회가 인덱스를 타는지 확인한다.
+ * 데이터 적재에 1분 가까이 걸리므로 ./gradlew scalingTest 로 따로 실행한다.
+ */
+@Tag("scaling")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+// 메모리 DB 는 테스트 힙을 넘기므로 파일 DB 를 쓴다.
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:file:./build/h2/scaling;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false"
+})
+class RepositoryScalingTest {
+    private static final int ROWS = 1_000_000;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private boolean seeded;
+
+    @BeforeEach
+    void seed() {
+        if (seeded) {
+            return;
+        }
+        seeded = true;
+
+        jdbcTemplate.update("insert into account_user (id, name, created_at, updated_at)"
+                + " values (1, 'Pororo', now(), now())");
+        jdbcTemplate.update("insert into account"
+                + " (id, account_user_id, account_number, account_status, balance, registered_at, created_at, updated_at)"
+                + " select x, 1, lpad(x, 10, '0'), 'IN_USE', 10000, now(), now(), now()"
+                + " from system_range(1, " + ROWS + ")");
+        jdbcTemplate.update("insert into transaction"
+                + " (id, account_id, transaction_type, transaction_result_type, amount, balance_snapshot,"
+                + " transaction_id, transaction_at, created_at, updated_at)"
+                + " select x, x, 'USE', 'S', 100, 9900, 'tx' || x,"
+                + " dateadd('SECOND', x, timestamp '2023-01-01 00:00:00'), now(), now()"
+                + " from system_range(1, " + ROWS + ")");
+    }
+
+    @Test
+    void findByAccountNumberUsesUniqueIndex() {
+        // when
+        String plan = explain("select * from account where account_number = '0000500000'");
+        long start = System.nanoTime();
+        Optional<Account> account = accountRepository.findByAccountNumber("0000500000");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // then
+        assertTrue(plan.contains("UX_ACCOUNT_ACCOUNT_NUMBER"), plan);
+        assertEquals(500_000L, account.get().getId());
+        assertTrue(elapsedMillis < 500L, "elapsed : " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void findByTransactionIdUsesUniqueIndex() {
+        // when
+        String plan = explain("select * from transaction where transaction_id = 'tx777777'");
+        long start = System.nanoTime();
+        Optional<Transaction> transaction = transactionRepository.findByTransactionId("tx777777");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // then
+        assertTrue(plan.contains("UX_TRANSACTION_TRANSACTION_ID"), plan);
+        assertEquals(777_777L, transaction.get().getId());
+        assertTrue(elapsedMillis < 500L, "elapsed : " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void accountHistoryUsesCompositeIndex() {
+        // when
+        String plan = explain("select * from transaction where account_id = 42"
+                + " and transaction_at < timestamp '2024-01-01 00:00:00'"
+                + " order by transaction_at desc");
+
+        // then
+        assertTrue(plan.contains("IX_TRANSACTION_ACCOUNT_TRANSACTION_AT"), plan);
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("explain " + sql, String.class);
+    }
+}
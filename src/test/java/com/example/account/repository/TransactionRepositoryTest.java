@@ -0,0 +1,176 @@
+package com.example.account.repository;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountStatus;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionWithCancel;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class TransactionRepositoryTest {
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Account account;
+
+    // 같은 시각 2건씩, 다른 계좌 거래 1건
+    private final LocalDateTime baseTime = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        account = saveAccount("1000000000");
+        Account other = saveAccount("1000000001");
+
+        for (int i = 0; i < 5; i++) {
+            saveTransaction(account, "tx" + i, baseTime.plusMinutes(i / 2));
+        }
+        saveTransaction(other, "other", baseTime);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findByKeyset() {
+        // when
+        List<Transaction> first = transactionRepository.findLatestByAccountId(account.getId(), Limit.of(2));
+        Transaction last = first.get(1);
+        List<Transaction> second = transactionRepository.findByAccountIdBefore(
+                account.getId(), last.getTransactionAt(), last.getId(), Limit.of(2));
+        last = second.get(1);
+        List<Transaction> third = transactionRepository.findByAccountIdBefore(
+                account.getId(), last.getTransactionAt(), last.getId(), Limit.of(2));
+
+        // then
+        assertEquals(List.of("tx4", "tx3"), transactionIds(first));
+        // tx2, tx3 은 같은 시각, id 로 이어진다.
+        assertEquals(List.of("tx2", "tx1"), transactionIds(second));
+        assertEquals(List.of("tx0"), transactionIds(third));
+    }
+
+    @Test
+    void findDtoByTransactionId() {
+        // when
+        TransactionDto transactionDto = transactionRepository.findDtoByTransactionId("tx1").get();
+
+        // then
+        assertEquals("1000000000", transactionDto.getAccountNumber());
+        assertEquals(USE, transactionDto.getTransactionType());
+        assertEquals(S, transactionDto.getTransactionResultType());
+        assertEquals(100L, transactionDto.getAmount());
+        assertEquals(900L, transactionDto.getBalanceSnapshot());
+        assertTrue(transactionRepository.findDtoByTransactionId("none").isEmpty());
+    }
+
+    @Test
+    void streamByAccountId() {
+        // when
+        List<String> transactionIds;
+        try (Stream<Transaction> transactions = transactionRepository.streamByAccountId(account.getId())) {
+            transactionIds = transactions.map(Transaction::getTransactionId).collect(Collectors.toList());
+        }
+
+        // then
+        assertEquals(List.of("tx0", "tx1", "tx2", "tx3", "tx4"), transactionIds);
+    }
+
+    @Test
+    void findWithCancelByTransactionId() {
+        // given
+        saveCancel("cancel1", "tx1");
+        entityManager.flush();
+        entityManager.clear();
+
+        // when
+        TransactionWithCancel cancelled = transactionRepository.findWithCancelByTransactionId("tx1").get();
+        TransactionWithCancel notCancelled = transactionRepository.findWithCancelByTransactionId("tx2").get();
+
+        // then
+        assertEquals("tx1", cancelled.getTransaction().getTransactionId());
+        assertEquals("cancel1", cancelled.getCancel().getTransactionId());
+        assertFalse(notCancelled.isCancelled());
+        assertTrue(transactionRepository.findWithCancelByTransactionId("none").isEmpty());
+        assertTrue(transactionRepository.existsByOriginalTransactionId("tx1"));
+        assertFalse(transactionRepository.existsByOriginalTransactionId("tx2"));
+    }
+
+    @Test
+    void cancelOnlyOnce() {
+        // given
+        saveCancel("cancel1", "tx1");
+        entityManager.flush();
+
+        // when
+        // then
+        assertThrows(DataIntegrityViolationException.class, () -> {
+            saveCancel("cancel2", "tx1");
+            transactionRepository.flush();
+        });
+    }
+
+    private Account saveAccount(String accountNumber) {
+        return accountRepository.save(Account.builder()
+                .accountUser(accountUserRepository.findById(1L).get())
+                .accountNumber(accountNumber)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(1000L)
+                .registeredAt(LocalDateTime.now())
+                .build());
+    }
+
+    private void saveTransaction(Account account, String transactionId, LocalDateTime transactionAt) {
+        transactionRepository.save(Transaction.builder()
+                .account(account)
+                .transactionType(USE)
+                .transactionResultType(S)
+                .amount(100L)
+                .balanceSnapshot(900L)
+                .transactionId(transactionId)
+                .transactionAt(transactionAt)
+                .build());
+    }
+
+    private void saveCancel(String transactionId, String originalTransactionId) {
+        transactionRepository.save(Transaction.builder()
+                .account(account)
+                .transactionType(CANCEL)
+                .transactionResultType(S)
+                .amount(100L)
+                .balanceSnapshot(1000L)
+                .transactionId(transactionId)
+                .transactionAt(baseTime.plusMinutes(10))
+                .originalTransactionId(originalTransactionId)
+                .build());
+    }
+
+    private List<String> transactionIds(List<Transaction> transactions) {
+        return transactions.stream()
+                .map(Transaction::getTransactionId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountEvent;
+import com.example.account.domain.AccountSnapshot;
+import com.example.account.repository.AccountEventRepository;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountSnapshotRepository;
+import com.example.account.type.AccountEventType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.account.type.AccountEventType.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountJournalTest {
+    @Mock
+    private AccountEventRepository accountEventRepository;
+    @Mock
+    private AccountSnapshotRepository accountSnapshotRepository;
+    @Mock
+    private AccountRepository accountRepository;
+
+    private AccountJournal accountJournal;
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        accountJournal = new AccountJournal(
+                accountEventRepository,
+                accountSnapshotRepository,
+                new AccountLookupCache(accountRepository, 100, Duration.ofMinutes(1)),
+                3);
+    }
+
+    @Test
+    void appendAssignsNextSequenceFromProjection() {
+        // given
+        Account account = Account.builder().id(7L).balance(9000L).eventSequence(1L).build();
+
+        // when
+        accountJournal.append(account, BALANCE_USED, 1000L, 9000L, "tx", T0);
+
+        // then
+        ArgumentCaptor<AccountEvent> captor = ArgumentCaptor.forClass(AccountEvent.class);
+        verify(accountEventRepository).save(captor.capture());
+        assertEquals(7L, captor.getValue().getAccountId());
+        assertEquals(2L, captor.getValue().getSequenceNumber());
+        assertEquals(BALANCE_USED, captor.getValue().getEventType());
+        assertEquals("tx", captor.getValue().getTransactionId());
+        assertEquals(2L, account.getEventSequence());
+        verify(accountSnapshotRepository, never()).save(any());
+    }
+
+    @Test
+    void snapshotEveryInterval() {
+        // given
+        // when
+        accountJournal.append(7L, 3L, BALANCE_CANCELLED, 1000L, 10000L, "tx", T0);
+
+        // then
+        ArgumentCaptor<AccountSnapshot> captor = ArgumentCaptor.forClass(AccountSnapshot.class);
+        verify(accountSnapshotRepository).save(captor.capture());
+        assertEquals(3L, captor.getValue().getSequenceNumber());
+        assertEquals(10000L, captor.getValue().getBalance());
+        assertEquals(T0, captor.getValue().getTakenAt());
+    }
+
+    @Test
+    void rebuildFromSnapshotAndTail() {
+        // given
+        given(accountSnapshotRepository.findFirstByAccountIdOrderBySequenceNumberDesc(7L))
+                .willReturn(Optional.of(snapshot(3L, 10000L, T0)));
+        given(accountEventRepository.findTail(7L, 3L))
+                .willReturn(List.of(
+                        event(4L, BALANCE_USED, 3000L, T0.plusMinutes(1)),
+                        event(5L, BALANCE_CANCELLED, 3000L, T0.plusMinutes(2)),
+                        event(6L, BALANCE_USED, 500L, T0.plusMinutes(3))));
+
+        // when
+        long balance = accountJournal.rebuildBalance(7L);
+
+        // then
+        assertEquals(9500L, balance);
+    }
+
+    @Test
+    void rebuildWithoutSnapshot() {
+        // given
+        given(accountSnapshotRepository.findFirstByAccountIdOrderBySequenceNumberDesc(7L))
+                .willReturn(Optional.empty());
+        given(accountEventRepository.findTail(7L, 0L))
+                .willReturn(List.of(
+                        event(1L, ACCOUNT_CREATED, 5000L, T0),
+                        event(2L, BALANCE_USED, 5000L, T0.plusMinutes(1)),
+                        event(3L, ACCOUNT_UNREGISTERED, 0L, T0.plusMinutes(2))));
+
+        // when
+        long balance = accountJournal.rebuildBalance(7L);
+
+        // then
+        assertEquals(0L, balance);
+    }
+
+    @Test
+    void balanceAtReplaysUntilTime() {
+        // given
+        LocalDateTime at = T0.plusMinutes(90);
+        given(accountSnapshotRepository
+                .findFirstByAccountIdAndTakenAtLessThanEqualOrderBySequenceNumberDesc(7L, at))
+                .willReturn(Optional.of(snapshot(3L, 10000L, T0)));
+        given(accountEventRepository.findTailUntil(7L, 3L, at))
+                .willReturn(List.of(event(4L, BALANCE_USED, 3000L, T0.plusMinutes(60))));
+
+        // when
+        long balance = accountJournal.balanceAt(7L, at);
+
+        // then
+        assertEquals(7000L, balance);
+    }
+
+    private static AccountSnapshot snapshot(long sequenceNumber, long balance, LocalDateTime takenAt) {
+        return AccountSnapshot.builder()
+                .accountId(7L)
+                .sequenceNumber(sequenceNumber)
+                .balance(balance)
+                .takenAt(takenAt)
+                .build();
+    }
+
+    private static AccountEvent event(long sequenceNumber, AccountEventType type,
+                                      long amount, LocalDateTime occurredAt) {
+        return AccountEvent.builder()
+                .accountId(7L)
+                .sequenceNumber(sequenceNumber)
+                .eventType(type)
+                .amount(amount)
+                .occurredAt(occurredAt)
+                .build();
+    }
+}
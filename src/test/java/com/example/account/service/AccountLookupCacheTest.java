@@ -0,0 +1,127 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountStatus;
+import com.example.account.domain.AccountUser;
+import com.example.account.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AccountLookupCacheTest {
+    @Mock
+    private AccountRepository accountRepository;
+
+    private AccountLookupCache accountLookupCache;
+
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        accountLookupCache = new AccountLookupCache(accountRepository, 100, Duration.ofMinutes(1));
+        account = Account.builder()
+                .id(7L)
+                .accountUser(AccountUser.builder().id(1L).name("Pobi").build())
+                .accountStatus(AccountStatus.IN_USE)
+                .accountNumber("1000000000")
+                .balance(1000L)
+                .build();
+    }
+
+    @Test
+    void readThroughThenFindById() {
+        // given
+        given(accountRepository.findByAccountNumber("1000000000"))
+                .willReturn(Optional.of(account));
+        given(accountRepository.findById(7L))
+                .willReturn(Optional.of(account));
+
+        // when
+        accountLookupCache.findAccount("1000000000");
+        Optional<Account> cached = accountLookupCache.findAccount("1000000000");
+
+        // then
+        assertEquals(7L, cached.get().getId());
+        verify(accountRepository, times(1)).findByAccountNumber("1000000000");
+        verify(accountRepository, times(1)).findById(7L);
+    }
+
+    @Test
+    void invalidate() {
+        // given
+        given(accountRepository.findByAccountNumber("1000000000"))
+                .willReturn(Optional.of(account));
+
+        // when
+        accountLookupCache.findAccount("1000000000");
+        accountLookupCache.invalidate("1000000000");
+        accountLookupCache.findAccount("1000000000");
+
+        // then
+        verify(accountRepository, times(2)).findByAccountNumber("1000000000");
+    }
+
+    @Test
+    void notFoundIsNotCached() {
+        // given
+        given(accountRepository.findByAccountNumber("1000000000"))
+                .willReturn(Optional.empty());
+
+        // when
+        accountLookupCache.findAccount("1000000000");
+        Optional<Account> result = accountLookupCache.findAccount("1000000000");
+
+        // then
+        assertTrue(result.isEmpty());
+        verify(accountRepository, times(2)).findByAccountNumber("1000000000");
+    }
+
+    @Test
+    void lookupRacingDeleteDoesNotCacheStaleStatus() throws Exception {
+        // given : 해지 commit 전에 row 를 읽은 조회가 invalidate 뒤에 캐시에 넣으려 한다.
+        Account unregistered = Account.builder()
+                .id(7L)
+                .accountUser(account.getAccountUser())
+                .accountStatus(AccountStatus.UNREGISTERED)
+                .accountNumber("1000000000")
+                .balance(0L)
+                .build();
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch deleted = new CountDownLatch(1);
+        given(accountRepository.findByAccountNumber("1000000000"))
+                .willAnswer(invocation -> {
+                    read.countDown();
+                    assertTrue(deleted.await(5, TimeUnit.SECONDS));
+                    return Optional.of(account);
+                })
+                .willReturn(Optional.of(unregistered));
+
+        // when
+        CompletableFuture<Optional<AccountLookupCache.AccountRef>> lookup =
+                CompletableFuture.supplyAsync(() -> accountLookupCache.findRef("1000000000"));
+        assertTrue(read.await(5, TimeUnit.SECONDS));
+        accountLookupCache.invalidate("1000000000");
+        deleted.countDown();
+        Optional<AccountLookupCache.AccountRef> raced = lookup.get(5, TimeUnit.SECONDS);
+        Optional<AccountLookupCache.AccountRef> next = accountLookupCache.findRef("1000000000");
+
+        // then
+        assertEquals(AccountStatus.IN_USE, raced.get().getAccountStatus());
+        assertEquals(AccountStatus.UNREGISTERED, next.get().getAccountStatus());
+        verify(accountRepository, times(2)).findByAccountNumber("1000000000");
+    }
+}
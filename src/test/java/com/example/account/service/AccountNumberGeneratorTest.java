@@ -0,0 +1,69 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountNumberGeneratorTest {
+
+    @Test
+    void generateUniqueNumbersWithCheckDigit() {
+        // given
+        AtomicLong blocks = new AtomicLong();
+        AccountNumberGenerator generator =
+                new AccountNumberGenerator(blocks::incrementAndGet, 100);
+
+        // when
+        Set<String> numbers = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            String accountNumber = generator.next();
+
+            assertEquals(10, accountNumber.length());
+            assertTrue(AccountNumberGenerator.isValid(accountNumber), accountNumber);
+            numbers.add(accountNumber);
+        }
+
+        // then
+        assertEquals(10_000, numbers.size());
+        assertEquals(100L, blocks.get());
+    }
+
+    @Test
+    void separateBlocksNeverOverlap() {
+        // given
+        // 두 노드가 같은 시퀀스에서 구간을 나눠 받는 상황
+        AtomicLong sequence = new AtomicLong();
+        AccountNumberGenerator node1 =
+                new AccountNumberGenerator(sequence::incrementAndGet, 10);
+        AccountNumberGenerator node2 =
+                new AccountNumberGenerator(sequence::incrementAndGet, 10);
+
+        // when
+        Set<String> numbers = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            numbers.add(node1.next());
+            numbers.add(node2.next());
+        }
+
+        // then
+        assertEquals(2_000, numbers.size());
+    }
+
+    @Test
+    void detectTypo() {
+        // given
+        String accountNumber = AccountNumberGenerator.format(42L);
+        char wrong = accountNumber.charAt(3) == '9' ? '0' : (char) (accountNumber.charAt(3) + 1);
+
+        // when
+        String typo = accountNumber.substring(0, 3) + wrong + accountNumber.substring(4);
+
+        // then
+        assertTrue(AccountNumberGenerator.isValid(accountNumber));
+        assertFalse(AccountNumberGenerator.isValid(typo));
+    }
+}
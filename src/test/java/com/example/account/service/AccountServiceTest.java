@@ -4,6 +4,7 @@ import com.example.account.domain.Account;
 import com.example.account.domain.AccountStatus;
 import com.example.account.domain.AccountUser;
 import com.example.account.dto.AccountDto;
+import com.example.account.dto.AccountInfo;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRepository;
@@ -13,12 +14,17 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -26,6 +32,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -37,9 +44,31 @@ class AccountServiceTest {
     @Mock
     private AccountUserRepository accountUserRepository;
 
-    @InjectMocks
+    @Mock
+    private AccountNumberGenerator accountNumberGenerator;
+
+    @Mock
+    private AccountJournal accountJournal;
+
+    private AccountLookupCache accountLookupCache;
+
     private AccountService accountService;
 
+    @BeforeEach
+    void setUp() {
+        // 캐시는 실제 객체를 쓴다. 처음 조회는 항상 accountRepository 로 간다.
+        accountLookupCache = new AccountLookupCache(accountRepository, 100, Duration.ofMinutes(1));
+        accountService = new AccountService(
+                accountRepository,
+                accountUserRepository,
+                accountNumberGenerator,
+                accountLookupCache,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                accountJournal,
+                Optional.empty(),
+                Optional.empty());
+    }
+
     @Test
     @DisplayName("계좌 생성")
     void createAccountSuccess() {
@@ -52,11 +81,8 @@ class AccountServiceTest {
         given(accountUserRepository.findById(anyLong()))
                 .willReturn(Optional.of(account));
 
-        given(accountRepository.findFirstByOrderByIdDesc())
-                .willReturn(Optional.of(Account.builder()
-                        .accountUser(account)
-                        .accountNumber("1000000012")
-                        .build()));
+        given(accountNumberGenerator.next())
+                .willReturn("1000000013");
 
         // save 로직에 대한 테스트
         given(accountRepository.save(any()))
@@ -77,6 +103,58 @@ class AccountServiceTest {
         assertEquals("1000000013", captor.getValue().getAccountNumber());
     }
 
+    @Test
+    @DisplayName("계좌번호 중복 시 재시도")
+    void createAccountRetryOnDuplicateAccountNumber() {
+        // given
+        AccountUser user = AccountUser.builder()
+                .id(12L)
+                .name("Pobi")
+                .build();
+
+        given(accountUserRepository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountNumberGenerator.next())
+                .willReturn("1000000013", "1000000014");
+        given(accountRepository.save(any()))
+                .willThrow(new DataIntegrityViolationException("ux_account_account_number"))
+                .willReturn(Account.builder()
+                        .accountUser(user)
+                        .accountNumber("1000000014")
+                        .build());
+
+        // when
+        AccountDto accountDto = accountService.createAccount(1L, 10000L);
+
+        // then
+        verify(accountRepository, times(2)).save(any());
+        assertEquals("1000000014", accountDto.getAccountNumber());
+    }
+
+    @Test
+    @DisplayName("계좌번호 중복이 계속되면 실패")
+    void createAccountRetryExhausted() {
+        // given
+        AccountUser user = AccountUser.builder()
+                .id(12L)
+                .name("Pobi")
+                .build();
+
+        given(accountUserRepository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountNumberGenerator.next())
+                .willReturn("1000000013");
+        given(accountRepository.save(any()))
+                .willThrow(new DataIntegrityViolationException("ux_account_account_number"));
+
+        // when
+        assertThrows(DataIntegrityViolationException.class,
+                () -> accountService.createAccount(1L, 10000L));
+
+        // then
+        verify(accountRepository, times(AccountService.MAX_CREATE_ATTEMPTS)).save(any());
+    }
+
     @Test
     @DisplayName("계좌 해지")
     void deleteAccountSuccess() {
@@ -110,6 +188,88 @@ class AccountServiceTest {
         assertEquals(AccountStatus.UNREGISTERED, captor.getValue().getAccountStatus());
     }
 
+    @Test
+    @DisplayName("계좌 해지 - 캐시는 commit 후에 비운다")
+    void deleteAccountInvalidatesAfterCommit() {
+        // given
+        AccountUser user = AccountUser.builder()
+                .id(12L)
+                .name("Pobi")
+                .build();
+        Account account = Account.builder()
+                .id(7L)
+                .accountUser(user)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(0L)
+                .accountNumber("1000000012")
+                .build();
+
+        given(accountUserRepository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountRepository.findByAccountNumber("1000000012"))
+                .willReturn(Optional.of(account));
+        given(accountRepository.findById(7L))
+                .willReturn(Optional.of(account));
+
+        // when
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            accountService.deleteAccount(12L, "1000000012");
+            // commit 전에는 캐시에 남아 있다.
+            accountLookupCache.findAccount("1000000012");
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        accountLookupCache.findAccount("1000000012");
+
+        // then
+        verify(accountRepository, times(1)).findById(7L);
+        verify(accountRepository, times(2)).findByAccountNumber("1000000012");
+    }
+
+    @Test
+    @DisplayName("계좌 해지 - 원장 모드는 원장 잔액으로 확인")
+    void deleteAccountChecksLedgerBalance() {
+        // given
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        accountService = new AccountService(
+                accountRepository,
+                accountUserRepository,
+                accountNumberGenerator,
+                accountLookupCache,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                accountJournal,
+                Optional.empty(),
+                Optional.of(ledgerEngine));
+        AccountUser user = AccountUser.builder()
+                .id(12L)
+                .name("Pobi")
+                .build();
+
+        given(accountUserRepository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        // checkpoint 전이라 DB 잔액은 남아있다.
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(Account.builder()
+                        .id(7L)
+                        .accountUser(user)
+                        .accountStatus(AccountStatus.IN_USE)
+                        .balance(1000L)
+                        .accountNumber("1000000012")
+                        .build()));
+        given(ledgerEngine.unregister(7L)).willReturn(0L);
+
+        // when
+        AccountDto accountDto = accountService.deleteAccount(12L, "1000000012");
+
+        // then
+        assertEquals("1000000012", accountDto.getAccountNumber());
+        verify(ledgerEngine, times(1)).unregister(7L);
+        verify(accountRepository, times(1)).save(any(Account.class));
+    }
+
     @Test
     @DisplayName("유저와 계좌의 소유주 불일치")
     void deleteAccountUserUnMatch() {
@@ -268,7 +428,7 @@ class AccountServiceTest {
     @DisplayName("계좌 조회 성공")
     void getAccountSuccess() {
         // given
-        given(accountRepository.findById(anyLong()))
+        given(accountRepository.findWithAccountUserById(anyLong()))
                 .willReturn(Optional.of(Account.builder()
                         .accountStatus(AccountStatus.UNREGISTERED)
                         .accountNumber("65789")
@@ -278,8 +438,8 @@ class AccountServiceTest {
         Account account = accountService.getAccount(4555L);
 
         // then
-        // accountRepository 객체의 findById 메서드가 1번 호출되었는지 검증
-        verify(accountRepository, times(1)).findById(anyLong());
+        // 계좌와 소유주를 한 번에 읽는 메서드가 1번 호출되었는지 검증
+        verify(accountRepository, times(1)).findWithAccountUserById(anyLong());
         assertEquals("65789", account.getAccountNumber());
         assertEquals(AccountStatus.UNREGISTERED, account.getAccountStatus());
     }
@@ -299,38 +459,32 @@ class AccountServiceTest {
     @DisplayName("유저 아이디로 계좌 불러오기")
     void successGetAccountsByUserId() {
         // given
-        AccountUser pobi = AccountUser.builder()
-                .id(12L)
-                .name("Pobi")
-                .build();
-
-        List<Account> accountList = Arrays.asList(
-                Account.builder()
-                        .accountUser(pobi)
+        List<AccountInfo> accountInfoList = Arrays.asList(
+                AccountInfo.builder()
                         .accountNumber("1111111111")
                         .balance(1000L)
                         .build(),
-                Account.builder()
-                        .accountUser(pobi)
+                AccountInfo.builder()
                         .accountNumber("2222222222")
                         .balance(2000L)
                         .build(),
-                Account.builder()
-                        .accountUser(pobi)
+                AccountInfo.builder()
                         .accountNumber("3333333333")
                         .balance(3000L)
                         .build()
         );
 
-        given(accountUserRepository.findById(anyLong()))
-                .willReturn(Optional.of(pobi));
-        given(accountRepository.findByAccountUser(any()))
-                .willReturn(accountList);
+        given(accountUserRepository.existsById(anyLong()))
+                .willReturn(true);
+        given(accountRepository.findAccountInfosByAccountUserId(12L))
+                .willReturn(accountInfoList);
 
         // when
-        List<AccountDto> accountsByUserId = accountService.getAccountsByUserId(pobi.getId());
+        List<AccountInfo> accountsByUserId = accountService.getAccountsByUserId(12L);
 
         // then
+        // 사용자 엔티티를 읽지 않고 있는지만 확인한다.
+        verify(accountUserRepository, times(0)).findById(anyLong());
         assertEquals(3, accountsByUserId.size());
         assertEquals("1111111111", accountsByUserId.get(0).getAccountNumber());
         assertEquals(1000L, accountsByUserId.get(0).getBalance());
@@ -344,8 +498,8 @@ class AccountServiceTest {
     @DisplayName("유저를 찾을 수 없음")
     void failedToGetAccounts() {
         // given
-        given(accountUserRepository.findById(anyLong()))
-                .willReturn(Optional.empty());
+        given(accountUserRepository.existsById(anyLong()))
+                .willReturn(false);
 
         // when
         AccountException exception = assertThrows(AccountException.class, () -> accountService.getAccountsByUserId(12L));
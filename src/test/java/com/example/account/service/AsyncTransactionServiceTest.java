@@ -0,0 +1,148 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import com.example.account.type.BalanceMode;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+class AsyncTransactionServiceTest {
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final OptimisticRetryExecutor optimisticRetryExecutor = new OptimisticRetryExecutor(BalanceMode.LOCK, 1, 1, 1);
+
+    private AsyncTransactionService asyncTransactionService;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        asyncTransactionService.shutdown();
+    }
+
+    private AsyncLockStrategy asyncLock() {
+        LockStrategy lockStrategy = mock(LockStrategy.class, withSettings().extraInterfaces(AsyncLockStrategy.class));
+        asyncTransactionService = new AsyncTransactionService(
+                transactionService, lockStrategy, optimisticRetryExecutor, 2, 10);
+        return (AsyncLockStrategy) lockStrategy;
+    }
+
+    @Test
+    void useBalanceWithAsyncLock() throws Exception {
+        // given
+        AsyncLockStrategy lock = asyncLock();
+        given(lock.lockAsync(anyString(), anyLong(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(-1L));
+        given(lock.unlockAsync(anyString(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(null));
+        given(transactionService.useBalance(anyLong(), anyString(), anyLong()))
+                .willReturn(TransactionDto.builder()
+                        .accountNumber("1000000000")
+                        .amount(1000L)
+                        .build());
+
+        // when
+        TransactionDto transactionDto = asyncTransactionService
+                .useBalance(1L, "1000000000", 1000L).get(5, TimeUnit.SECONDS);
+
+        // then
+        assertEquals(1000L, transactionDto.getAmount());
+        verify(lock, times(1)).lockAsync("1000000000", 5000L, LockStrategy.DEFAULT_TIME);
+        verify(lock, timeout(1000).times(1)).unlockAsync("1000000000", -1L);
+    }
+
+    @Test
+    void useBalanceFailedSavesFailedTransaction() {
+        // given
+        AsyncLockStrategy lock = asyncLock();
+        given(lock.lockAsync(anyString(), anyLong(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(-1L));
+        given(lock.unlockAsync(anyString(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(null));
+        given(transactionService.useBalance(anyLong(), anyString(), anyLong()))
+                .willThrow(new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE));
+
+        // when
+        ExecutionException e = assertThrows(ExecutionException.class, () -> asyncTransactionService
+                .useBalance(1L, "1000000000", 1000L).get(5, TimeUnit.SECONDS));
+
+        // then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, ((AccountException) e.getCause()).getErrorCode());
+        verify(transactionService, times(1)).saveFailedUseTransaction("1000000000", 1000L);
+        verify(lock, timeout(1000).times(1)).unlockAsync("1000000000", -1L);
+    }
+
+    @Test
+    void lockFailedDoesNotCallService() {
+        // given
+        AsyncLockStrategy lock = asyncLock();
+        given(lock.lockAsync(anyString(), anyLong(), anyLong()))
+                .willReturn(CompletableFuture.failedFuture(
+                        new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED)));
+
+        // when
+        ExecutionException e = assertThrows(ExecutionException.class, () -> asyncTransactionService
+                .cancelBalance("transactionId", "1000000000", 1000L).get(5, TimeUnit.SECONDS));
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED, ((AccountException) e.getCause()).getErrorCode());
+        verify(transactionService, times(0)).cancelBalance(anyString(), anyString(), anyLong());
+        verify(lock, times(0)).unlockAsync(anyString(), anyLong());
+    }
+
+    @Test
+    void blockingLockStrategyOnExecutor() throws Exception {
+        // given
+        LockStrategy lockStrategy = mock(LockStrategy.class);
+        asyncTransactionService = new AsyncTransactionService(
+                transactionService, lockStrategy, optimisticRetryExecutor, 2, 10);
+        given(transactionService.cancelBalance(anyString(), anyString(), anyLong()))
+                .willReturn(TransactionDto.builder()
+                        .accountNumber("1000000000")
+                        .amount(1000L)
+                        .build());
+
+        // when
+        asyncTransactionService.cancelBalance("transactionId", "1000000000", 1000L)
+                .get(5, TimeUnit.SECONDS);
+
+        // then
+        verify(lockStrategy, times(1)).lock("1000000000", 5000L, LockStrategy.DEFAULT_TIME);
+        verify(lockStrategy, times(1)).unlock("1000000000");
+    }
+
+    @Test
+    void executorFullIsServerBusy() throws Exception {
+        // given
+        asyncTransactionService = new AsyncTransactionService(
+                transactionService, mock(LockStrategy.class), optimisticRetryExecutor, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        given(transactionService.queryTransaction(eq("blocked")))
+                .willAnswer(invocation -> {
+                    release.await();
+                    return TransactionDto.builder().build();
+                });
+        CompletableFuture<TransactionDto> running = asyncTransactionService.queryTransaction("blocked");
+        CompletableFuture<TransactionDto> queued = asyncTransactionService.queryTransaction("blocked");
+
+        // when
+        CompletableFuture<TransactionDto> rejected = asyncTransactionService.queryTransaction("blocked");
+
+        // then
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertEquals(ErrorCode.SERVER_BUSY, ((AccountException) e.getCause()).getErrorCode());
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.account.service;
+
+import com.example.account.AccountApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * account.balance-mode 마다 BalanceEngine 이 하나만 뜨는지 확인한다.
+ * (ledger / redis 는 각 통합 테스트가 띄운다.)
+ * Redis 없이 띄우고, 모드마다 다른 메모리 DB 를 쓴다.
+ */
+class BalanceEngineSelectionTest {
+    private static final Map<String, Class<? extends BalanceEngine>> ENGINES = Map.of(
+            "lock", TransactionServiceBalanceEngine.class,
+            "atomic", TransactionServiceBalanceEngine.class,
+            "optimistic", TransactionServiceBalanceEngine.class,
+            "single-writer", TransactionCommandQueue.class);
+
+    @Test
+    void oneEnginePerMode() {
+        ENGINES.forEach((mode, engine) -> {
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(AccountApplication.class)
+                    .web(WebApplicationType.NONE)
+                    // application.yml 보다 앞서도록 명령행 인자로 넘긴다.
+                    .run("--account.balance-mode=" + mode,
+                            "--account.redis.enabled=false",
+                            "--account.lock.strategy=local",
+                            "--spring.datasource.url=jdbc:h2:mem:engine-" + mode,
+                            "--spring.jpa.properties.hibernate.show_sql=false")) {
+                Map<String, BalanceEngine> beans = context.getBeansOfType(BalanceEngine.class);
+                assertEquals(1, beans.size(), mode + " : " + beans.keySet());
+                assertInstanceOf(engine, beans.values().iterator().next(), mode);
+            }
+        });
+    }
+}
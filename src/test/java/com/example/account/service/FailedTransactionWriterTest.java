@@ -0,0 +1,184 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountStatus;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.Transaction;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.account.type.TransactionResultType.F;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+class FailedTransactionWriterTest {
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private FailedTransactionWriter failedTransactionWriter;
+
+    @BeforeEach
+    void setUp() {
+        Account account = Account.builder()
+                .id(7L)
+                .accountUser(AccountUser.builder().id(1L).build())
+                .accountStatus(AccountStatus.IN_USE)
+                .accountNumber("1000000000")
+                .balance(5000L)
+                .build();
+        given(accountRepository.findByAccountNumber("1000000000"))
+                .willReturn(Optional.of(account));
+        given(accountRepository.findAllById(any()))
+                .willReturn(List.of(account));
+        given(transactionRepository.saveAll(anyList()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> invocation
+                        .<TransactionCallback<?>>getArgument(0)
+                        .doInTransaction(null));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        failedTransactionWriter.shutdown();
+    }
+
+    private FailedTransactionWriter writer(int queueCapacity, int batchSize, long flushMillis) {
+        failedTransactionWriter = new FailedTransactionWriter(
+                transactionRepository,
+                accountRepository,
+                new AccountLookupCache(accountRepository, 100, Duration.ofMinutes(1)),
+                transactionTemplate,
+                new TransactionIdGenerator(0),
+                new TransactionMetrics(meterRegistry),
+                meterRegistry,
+                queueCapacity, batchSize, flushMillis);
+        return failedTransactionWriter;
+    }
+
+    @Test
+    void flushWhenBatchIsFull() {
+        // given
+        FailedTransactionWriter writer = writer(100, 3, 60_000L);
+        writer.start();
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            writer.write("1000000000", 1000L + i);
+        }
+
+        // then
+        List<Transaction> saved = savedBatch();
+        assertEquals(3, saved.size());
+        assertEquals(F, saved.get(0).getTransactionResultType());
+        assertEquals(USE, saved.get(0).getTransactionType());
+        assertEquals(1000L, saved.get(0).getAmount());
+        assertEquals(5000L, saved.get(0).getBalanceSnapshot());
+        assertNotNull(saved.get(0).getTransactionId());
+        // 계좌는 batch 안에서 한 번만 읽는다.
+        verify(accountRepository, times(1)).findByAccountNumber("1000000000");
+        assertEquals(3.0, meterRegistry.get("account.transactions")
+                .tag("type", "USE").tag("result", "F").counter().count());
+    }
+
+    @Test
+    void flushAfterInterval() {
+        // given
+        FailedTransactionWriter writer = writer(100, 100, 50L);
+        writer.start();
+
+        // when
+        writer.write("1000000000", 1000L);
+
+        // then
+        assertEquals(1, savedBatch().size());
+    }
+
+    @Test
+    void dropWhenQueueIsFull() {
+        // given
+        // 기록 스레드를 시작하지 않아서 큐가 비워지지 않는다.
+        FailedTransactionWriter writer = writer(2, 100, 50L);
+
+        // when
+        boolean first = writer.write("1000000000", 1000L);
+        boolean second = writer.write("1000000000", 1000L);
+        boolean third = writer.write("1000000000", 1000L);
+
+        // then
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertEquals(2, writer.queueSize());
+        assertEquals(1.0, meterRegistry.get("account.failed.dropped")
+                .tag("reason", "queue-full").counter().count());
+        verify(transactionRepository, times(0)).saveAll(anyList());
+    }
+
+    @Test
+    void drainOnShutdown() throws InterruptedException {
+        // given
+        FailedTransactionWriter writer = writer(100, 100, 60_000L);
+        writer.start();
+        for (int i = 0; i < 5; i++) {
+            writer.write("1000000000", 1000L);
+        }
+
+        // when
+        writer.shutdown();
+
+        // then
+        assertEquals(5, savedBatch().size());
+        assertEquals(0, writer.queueSize());
+        assertFalse(writer.write("1000000000", 1000L));
+        assertEquals(1.0, meterRegistry.get("account.failed.dropped")
+                .tag("reason", "shutdown").counter().count());
+        assertEquals(0.0, meterRegistry.get("account.failed.dropped")
+                .tag("reason", "queue-full").counter().count());
+    }
+
+    @Test
+    void skipUnknownAccount() throws InterruptedException {
+        // given
+        given(accountRepository.findByAccountNumber("9999999999"))
+                .willReturn(Optional.empty());
+        FailedTransactionWriter writer = writer(100, 2, 60_000L);
+        writer.start();
+
+        // when
+        writer.write("9999999999", 1000L);
+        writer.write("1000000000", 1000L);
+
+        // then
+        List<Transaction> saved = savedBatch();
+        assertEquals(1, saved.size());
+        assertEquals(7L, saved.get(0).getAccount().getId());
+        // flush 가 끝날 때까지 기다린다.
+        writer.shutdown();
+        assertEquals(1.0, meterRegistry.get("account.failed.dropped")
+                .tag("reason", "unknown-account").counter().count());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Transaction> savedBatch() {
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+        verify(transactionRepository, timeout(5000).times(1)).saveAll(captor.capture());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.account.service;
+
+import com.example.account.aop.Idempotent;
+import com.example.account.controller.TransactionController;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+class IdempotencyAspectTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final ProceedingJoinPoint proceedingJoinPoint = mock(ProceedingJoinPoint.class);
+    private final MockHttpServletRequest httpRequest = new MockHttpServletRequest();
+    private final UseBalance.Request request = UseBalance.Request.builder()
+            .userId(1L)
+            .accountNumber("1000000000")
+            .amount(1000L)
+            .build();
+
+    private IdempotencyAspect idempotencyAspect;
+    private Idempotent idempotent;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        idempotencyAspect = new IdempotencyAspect(new IdempotencyStore(Optional.empty(), objectMapper,
+                100, Duration.ofHours(1), Duration.ofMinutes(1)), objectMapper);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(httpRequest));
+
+        var method = TransactionController.class.getMethod("useBalance", UseBalance.Request.class);
+        idempotent = method.getAnnotation(Idempotent.class);
+        MethodSignature signature = mock(MethodSignature.class);
+        given(signature.getMethod()).willReturn(method);
+        given(proceedingJoinPoint.getSignature()).willReturn(signature);
+        given(proceedingJoinPoint.getArgs()).willReturn(new Object[]{request});
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private static CompletableFuture<UseBalance.Response> response(String transactionId) {
+        return CompletableFuture.completedFuture(UseBalance.Response.builder()
+                .accountNumber("1000000000")
+                .transactionResultType(TransactionResultType.S)
+                .transactionId(transactionId)
+                .amount(1000L)
+                .transactionAt(LocalDateTime.now())
+                .build());
+    }
+
+    @Test
+    void proceedWithoutHeader() throws Throwable {
+        // given
+        given(proceedingJoinPoint.proceed()).willReturn(response("t1"), response("t2"));
+
+        // when
+        idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent);
+        idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent);
+
+        // then
+        verify(proceedingJoinPoint, times(2)).proceed();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replaySameKey() throws Throwable {
+        // given
+        httpRequest.addHeader(IdempotencyAspect.HEADER, "key-1");
+        given(proceedingJoinPoint.proceed()).willReturn(response("t1"), response("t2"));
+
+        // when
+        CompletableFuture<UseBalance.Response> first = (CompletableFuture<UseBalance.Response>)
+                idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent);
+        CompletableFuture<UseBalance.Response> second = (CompletableFuture<UseBalance.Response>)
+                idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent);
+
+        // then
+        verify(proceedingJoinPoint, times(1)).proceed();
+        assertEquals("t1", first.join().getTransactionId());
+        assertEquals("t1", second.join().getTransactionId());
+        assertEquals(first.join().getTransactionAt(), second.join().getTransactionAt());
+    }
+
+    @Test
+    void replayBusinessFailure() throws Throwable {
+        // given
+        httpRequest.addHeader(IdempotencyAspect.HEADER, "key-1");
+        given(proceedingJoinPoint.proceed())
+                .willReturn(CompletableFuture.failedFuture(new AccountException(ErrorCode.NOT_ENOUGH_BALANCE)));
+        ((CompletableFuture<?>) idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent))
+                .exceptionally(e -> null)
+                .join();
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent));
+
+        // then
+        assertEquals(ErrorCode.NOT_ENOUGH_BALANCE, exception.getErrorCode());
+        verify(proceedingJoinPoint, times(1)).proceed();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void retryAfterLockFailure() throws Throwable {
+        // given
+        httpRequest.addHeader(IdempotencyAspect.HEADER, "key-1");
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED))
+                .willReturn(response("t1"));
+        assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent));
+
+        // when
+        Object result = idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent);
+
+        // then
+        assertEquals("t1", ((CompletableFuture<UseBalance.Response>) result).join().getTransactionId());
+        verify(proceedingJoinPoint, times(2)).proceed();
+    }
+
+    @Test
+    void inProgress() throws Throwable {
+        // given
+        httpRequest.addHeader(IdempotencyAspect.HEADER, "key-1");
+        given(proceedingJoinPoint.proceed()).willReturn(new CompletableFuture<>());
+        idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent);
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent));
+
+        // then
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS, exception.getErrorCode());
+    }
+
+    @Test
+    void reusedWithDifferentRequest() throws Throwable {
+        // given
+        httpRequest.addHeader(IdempotencyAspect.HEADER, "key-1");
+        given(proceedingJoinPoint.proceed()).willReturn(response("t1"));
+        idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent);
+        request.setAmount(2000L);
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent));
+
+        // then
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED, exception.getErrorCode());
+    }
+
+    @Test
+    void invalidKey() throws Throwable {
+        // given
+        httpRequest.addHeader(IdempotencyAspect.HEADER, "k".repeat(IdempotencyAspect.MAX_KEY_LENGTH + 1));
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent));
+
+        // then
+        assertEquals(ErrorCode.INVALIDED_REQUEST, exception.getErrorCode());
+        verify(proceedingJoinPoint, never()).proceed();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.account.service;
+
+import com.example.account.controller.TransactionController;
+import com.example.account.domain.Account;
+import com.example.account.dto.UseBalance;
+import com.example.account.repository.AccountRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 같은 Idempotency-Key 로 두 번 사용하면 한 번만 빠지고 같은 응답을 받는지 (embedded Redis)
+ */
+@SpringBootTest
+class IdempotencyIntegrationTest {
+    @Autowired
+    private TransactionController transactionController;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void useBalanceOnceWithSameKey() {
+        // given
+        String accountNumber = accountService.createAccount(1L, 10_000L).getAccountNumber();
+        MockHttpServletRequest httpRequest = new MockHttpServletRequest();
+        httpRequest.addHeader(IdempotencyAspect.HEADER, "integration-" + accountNumber);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(httpRequest));
+        UseBalance.Request request = UseBalance.Request.builder()
+                .userId(1L)
+                .accountNumber(accountNumber)
+                .amount(1000L)
+                .build();
+
+        // when
+        UseBalance.Response first = transactionController.useBalance(request).join();
+        UseBalance.Response second = transactionController.useBalance(request).join();
+
+        // then
+        assertEquals(first.getTransactionId(), second.getTransactionId());
+        assertEquals(9_000L, accountRepository.findByAccountNumber(accountNumber)
+                .map(Account::getBalance).orElseThrow());
+        assertTrue(redissonClient.getMapCache(IdempotencyStore.MAP_NAME, StringCodec.INSTANCE)
+                .containsKey("use:integration-" + accountNumber));
+    }
+}
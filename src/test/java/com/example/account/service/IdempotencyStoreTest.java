@@ -0,0 +1,154 @@
+package com.example.account.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+class IdempotencyStoreTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private IdempotencyStore localStore() {
+        return new IdempotencyStore(Optional.empty(), objectMapper,
+                100, Duration.ofHours(1), Duration.ofMinutes(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private RMapCache<String, String> remote(RedissonClient client) {
+        RMapCache<String, String> remote = mock(RMapCache.class);
+        given(client.<String, String>getMapCache(eq(IdempotencyStore.MAP_NAME), eq(StringCodec.INSTANCE)))
+                .willReturn(remote);
+        return remote;
+    }
+
+    @Test
+    void beginTwice() {
+        // given
+        IdempotencyStore store = localStore();
+
+        // when
+        Optional<IdempotencyStore.Entry> first = store.begin("use:k1", "f1");
+        Optional<IdempotencyStore.Entry> second = store.begin("use:k1", "f1");
+
+        // then
+        assertTrue(first.isEmpty());
+        assertEquals(IdempotencyStore.Status.PENDING, second.get().getStatus());
+        assertEquals("f1", second.get().getFingerprint());
+    }
+
+    @Test
+    void completeThenBegin() {
+        // given
+        IdempotencyStore store = localStore();
+        store.begin("use:k1", "f1");
+
+        // when
+        store.complete("use:k1", new IdempotencyStore.Entry(
+                IdempotencyStore.Status.DONE, "f1", "{}"));
+        Optional<IdempotencyStore.Entry> entry = store.begin("use:k1", "f1");
+
+        // then
+        assertEquals(IdempotencyStore.Status.DONE, entry.get().getStatus());
+        assertEquals("{}", entry.get().getBody());
+    }
+
+    @Test
+    void releaseThenBegin() {
+        // given
+        IdempotencyStore store = localStore();
+        store.begin("use:k1", "f1");
+
+        // when
+        store.release("use:k1");
+
+        // then
+        assertTrue(store.begin("use:k1", "f1").isEmpty());
+    }
+
+    @Test
+    void beginFoundInRemote() {
+        // given
+        RedissonClient client = mock(RedissonClient.class);
+        RMapCache<String, String> remote = remote(client);
+        given(remote.putIfAbsent(eq("use:k1"), anyString(), eq(60_000L), eq(TimeUnit.MILLISECONDS)))
+                .willReturn("{\"status\":\"DONE\",\"fingerprint\":\"f1\",\"body\":\"{}\"}");
+        IdempotencyStore store = new IdempotencyStore(Optional.of(client), objectMapper,
+                100, Duration.ofHours(1), Duration.ofMinutes(1));
+
+        // when
+        Optional<IdempotencyStore.Entry> entry = store.begin("use:k1", "f1");
+        Optional<IdempotencyStore.Entry> again = store.begin("use:k1", "f1");
+
+        // then
+        assertEquals(IdempotencyStore.Status.DONE, entry.get().getStatus());
+        assertEquals(IdempotencyStore.Status.DONE, again.get().getStatus());
+        // 두 번째는 노드 안 캐시에서 찾는다.
+        verify(remote, times(1)).putIfAbsent(anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void beginPendingInRemoteIsNotCached() {
+        // given
+        RedissonClient client = mock(RedissonClient.class);
+        RMapCache<String, String> remote = remote(client);
+        given(remote.putIfAbsent(eq("use:k1"), anyString(), anyLong(), any()))
+                .willReturn("{\"status\":\"PENDING\",\"fingerprint\":\"f1\"}");
+        IdempotencyStore store = new IdempotencyStore(Optional.of(client), objectMapper,
+                100, Duration.ofHours(1), Duration.ofMinutes(1));
+
+        // when
+        store.begin("use:k1", "f1");
+        store.begin("use:k1", "f1");
+
+        // then
+        verify(remote, times(2)).putIfAbsent(anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void beginWhenRemoteFails() {
+        // given
+        RedissonClient client = mock(RedissonClient.class);
+        RMapCache<String, String> remote = remote(client);
+        given(remote.putIfAbsent(anyString(), anyString(), anyLong(), any()))
+                .willThrow(new IllegalStateException("redis down"));
+        IdempotencyStore store = new IdempotencyStore(Optional.of(client), objectMapper,
+                100, Duration.ofHours(1), Duration.ofMinutes(1));
+
+        // when
+        Optional<IdempotencyStore.Entry> first = store.begin("use:k1", "f1");
+        Optional<IdempotencyStore.Entry> second = store.begin("use:k1", "f1");
+
+        // then
+        assertTrue(first.isEmpty());
+        assertEquals(IdempotencyStore.Status.PENDING, second.get().getStatus());
+    }
+
+    @Test
+    void completeAndReleaseWriteRemote() {
+        // given
+        RedissonClient client = mock(RedissonClient.class);
+        RMapCache<String, String> remote = remote(client);
+        IdempotencyStore store = new IdempotencyStore(Optional.of(client), objectMapper,
+                100, Duration.ofHours(1), Duration.ofMinutes(1));
+
+        // when
+        store.complete("use:k1", new IdempotencyStore.Entry(
+                IdempotencyStore.Status.FAILED, "f1", "NOT_ENOUGH_BALANCE"));
+        store.release("use:k2");
+
+        // then
+        verify(remote, times(1)).fastPut(eq("use:k1"),
+                contains("NOT_ENOUGH_BALANCE"), eq(3_600_000L), eq(TimeUnit.MILLISECONDS));
+        verify(remote, times(1)).fastRemove("use:k2");
+    }
+}
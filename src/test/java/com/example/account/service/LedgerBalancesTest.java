@@ -0,0 +1,35 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerBalancesTest {
+    @Test
+    void putAndGet() {
+        // given
+        LedgerBalances balances = new LedgerBalances(4);
+
+        // when
+        for (long id = 1; id <= 1000; id++) {
+            balances.put(id, id * 10);
+        }
+        balances.put(7L, 0L);
+
+        // then
+        assertEquals(1000, balances.size());
+        assertEquals(0L, balances.get(7L));
+        assertEquals(10_000L, balances.get(1000L));
+        assertEquals(LedgerBalances.MISSING, balances.get(1001L));
+    }
+
+    @Test
+    void rejectNonPositiveId() {
+        // given
+        LedgerBalances balances = new LedgerBalances(4);
+
+        // when
+        // then
+        assertThrows(IllegalArgumentException.class, () -> balances.put(0L, 100L));
+    }
+}
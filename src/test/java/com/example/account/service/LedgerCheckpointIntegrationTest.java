@@ -0,0 +1,91 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.LedgerCheckpoint;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.LedgerCheckpointRepository;
+import com.example.account.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 원장 모드에서 checkpoint 가 실제 DB 에 거래 / 잔액 / lsn 을 쓰는지 확인한다.
+ * 주기 checkpoint 는 끄고(checkpoint-millis 를 길게) 직접 호출한다.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "account.balance-mode=ledger",
+        "account.ledger.checkpoint-millis=3600000",
+        "account.lock.strategy=local",
+        "account.redis.enabled=false"
+})
+class LedgerCheckpointIntegrationTest {
+    @TempDir
+    static Path dir;
+
+    @DynamicPropertySource
+    static void ledgerDir(DynamicPropertyRegistry registry) {
+        registry.add("account.ledger.dir", () -> dir.toString());
+    }
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private LedgerCheckpointer ledgerCheckpointer;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private LedgerCheckpointRepository ledgerCheckpointRepository;
+
+    @Autowired
+    private AccountJournal accountJournal;
+
+    @Test
+    void checkpointWritesTransactionsAndBalance() throws IOException {
+        // given
+        String accountNumber = accountService.createAccount(1L, 10_000L).getAccountNumber();
+        TransactionDto use = ledgerEngine.useBalance(1L, accountNumber, 1000L).join();
+        TransactionDto cancel = ledgerEngine.cancelBalance(use.getTransactionId(), accountNumber, 1000L).join();
+        ledgerEngine.useBalance(1L, accountNumber, 3000L).join();
+        // checkpoint 전에는 DB 잔액이 그대로다.
+        assertEquals(10_000L, accountRepository.findByAccountNumber(accountNumber)
+                .map(Account::getBalance).orElseThrow());
+
+        // when
+        ledgerCheckpointer.checkpoint();
+
+        // then
+        assertEquals(7_000L, accountRepository.findByAccountNumber(accountNumber)
+                .map(Account::getBalance).orElseThrow());
+        Transaction saved = transactionRepository.findByTransactionId(cancel.getTransactionId())
+                .orElseThrow();
+        assertEquals(10_000L, saved.getBalanceSnapshot());
+        assertEquals(cancel.getTransactionAt(), saved.getTransactionAt());
+        assertEquals(ledgerEngine.committedLsn(), ledgerCheckpointRepository.findById(LedgerCheckpoint.ID)
+                .map(LedgerCheckpoint::getLsn).orElseThrow());
+        assertTrue(ledgerEngine.findTransaction(use.getTransactionId()).isEmpty());
+        // 계좌 이벤트로 다시 계산한 잔액이 계좌 row(projection)와 같다.
+        assertEquals(7_000L, accountJournal.getBalance(accountNumber, null));
+        assertEquals(10_000L, accountJournal.getBalance(accountNumber, cancel.getTransactionAt()));
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountStatus;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.LedgerCheckpoint;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.repository.LedgerCheckpointRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.AccountEventType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+class LedgerCheckpointerTest {
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final LedgerCheckpointRepository ledgerCheckpointRepository = mock(LedgerCheckpointRepository.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final AccountJournal accountJournal = mock(AccountJournal.class);
+
+    @TempDir
+    Path dir;
+
+    private LedgerEngine engine;
+    private LedgerCheckpointer checkpointer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Account account = Account.builder()
+                .id(7L)
+                .accountUser(AccountUser.builder().id(1L).build())
+                .accountStatus(AccountStatus.IN_USE)
+                .accountNumber("1000000000")
+                .balance(10000L)
+                .build();
+        given(accountRepository.findByAccountNumber("1000000000")).willReturn(Optional.of(account));
+        given(accountRepository.findBalanceById(7L)).willReturn(10000L);
+        given(accountRepository.getReferenceById(7L)).willReturn(account);
+        given(accountRepository.findEventSequenceById(7L)).willReturn(4L);
+        given(ledgerCheckpointRepository.findById(LedgerCheckpoint.ID)).willReturn(Optional.empty());
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> invocation
+                        .<TransactionCallback<?>>getArgument(0)
+                        .doInTransaction(null));
+
+        engine = new LedgerEngine(
+                mock(AccountUserRepository.class),
+                accountRepository,
+                transactionRepository,
+                ledgerCheckpointRepository,
+                new AccountLookupCache(accountRepository, 100, Duration.ofMinutes(1)),
+                new TransactionIdGenerator(0),
+                mock(FailedTransactionWriter.class),
+                dir, 2, true, 64, 1000, 1000);
+        engine.start();
+        checkpointer = new LedgerCheckpointer(
+                engine,
+                transactionRepository,
+                accountRepository,
+                ledgerCheckpointRepository,
+                transactionTemplate,
+                new TransactionMetrics(new SimpleMeterRegistry()),
+                accountJournal,
+                60_000L, 3);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        checkpointer.shutdown();
+        engine.shutdown();
+    }
+
+    @Test
+    void checkpointCommittedRecords() throws IOException {
+        // given
+        TransactionDto first = engine.useBalance(1L, "1000000000", 1000L).join();
+        for (int i = 0; i < 3; i++) {
+            engine.useBalance(1L, "1000000000", 1000L).join();
+        }
+
+        // when
+        int checkpointed = checkpointer.checkpoint();
+
+        // then
+        assertEquals(3, checkpointed);
+        List<Transaction> saved = savedTransactions();
+        assertEquals(3, saved.size());
+        assertEquals(first.getTransactionId(), saved.get(0).getTransactionId());
+        assertEquals(first.getTransactionAt(), saved.get(0).getTransactionAt());
+        assertEquals(USE, saved.get(0).getTransactionType());
+        assertEquals(S, saved.get(0).getTransactionResultType());
+        assertEquals(9000L, saved.get(0).getBalanceSnapshot());
+        // 계좌 잔액은 구간의 마지막 잔액으로 한 번만 쓴다.
+        verify(accountRepository, times(1)).updateBalance(eq(7L), eq(7000L), eq(3L), any());
+        // 개설 이벤트(1) 다음부터 2, 3, 4 번 이벤트
+        verify(accountJournal).append(eq(7L), eq(2L), eq(AccountEventType.BALANCE_USED),
+                eq(1000L), eq(9000L), eq(first.getTransactionId()), eq(first.getTransactionAt()));
+        verify(accountJournal).append(eq(7L), eq(4L), eq(AccountEventType.BALANCE_USED),
+                eq(1000L), eq(7000L), anyString(), any());
+        ArgumentCaptor<LedgerCheckpoint> checkpoint = ArgumentCaptor.forClass(LedgerCheckpoint.class);
+        verify(ledgerCheckpointRepository).save(checkpoint.capture());
+        assertEquals(3L, checkpoint.getValue().getLsn());
+        assertEquals(3L, engine.checkpointedLsn());
+        assertEquals(1, engine.pendingCount());
+        assertTrue(engine.findTransaction(first.getTransactionId()).isEmpty());
+    }
+
+    @Test
+    void retrySameRangeAfterFailure() throws IOException {
+        // given
+        engine.useBalance(1L, "1000000000", 1000L).join();
+        given(transactionRepository.saveAll(anyList()))
+                .willThrow(new IllegalStateException("db down"))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        assertThrows(IllegalStateException.class, () -> checkpointer.checkpoint());
+        int checkpointed = checkpointer.checkpoint();
+
+        // then
+        assertEquals(1, checkpointed);
+        assertEquals(1L, engine.checkpointedLsn());
+        assertEquals(0, engine.pendingCount());
+    }
+
+    @Test
+    void nothingToCheckpoint() throws IOException {
+        // given
+        // when
+        int checkpointed = checkpointer.checkpoint();
+
+        // then
+        assertEquals(0, checkpointed);
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Transaction> savedTransactions() {
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+        verify(transactionRepository).saveAll(captor.capture());
+        return captor.getValue();
+    }
+}
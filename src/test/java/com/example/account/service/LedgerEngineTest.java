@@ -0,0 +1,410 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountStatus;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.LedgerCheckpoint;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.repository.LedgerCheckpointRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.example.account.type.TransactionResultType.F;
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+class LedgerEngineTest {
+    private final AccountUserRepository accountUserRepository = mock(AccountUserRepository.class);
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final LedgerCheckpointRepository ledgerCheckpointRepository = mock(LedgerCheckpointRepository.class);
+    private final FailedTransactionWriter failedTransactionWriter = mock(FailedTransactionWriter.class);
+
+    @TempDir
+    Path dir;
+
+    private final List<LedgerEngine> engines = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Account account = Account.builder()
+                .id(7L)
+                .accountUser(AccountUser.builder().id(1L).build())
+                .accountStatus(AccountStatus.IN_USE)
+                .accountNumber("1000000000")
+                .balance(10000L)
+                .build();
+        given(accountRepository.findByAccountNumber("1000000000")).willReturn(Optional.of(account));
+        given(accountRepository.findById(7L)).willReturn(Optional.of(account));
+        given(accountRepository.findBalanceById(7L)).willReturn(10000L);
+        given(accountUserRepository.existsById(1L)).willReturn(true);
+        given(accountUserRepository.existsById(2L)).willReturn(true);
+        given(ledgerCheckpointRepository.findById(LedgerCheckpoint.ID)).willReturn(Optional.empty());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (LedgerEngine engine : engines) {
+            engine.shutdown();
+        }
+    }
+
+    private LedgerEngine start() throws IOException {
+        LedgerEngine engine = new LedgerEngine(
+                accountUserRepository,
+                accountRepository,
+                transactionRepository,
+                ledgerCheckpointRepository,
+                new AccountLookupCache(accountRepository, 100, Duration.ofMinutes(1)),
+                new TransactionIdGenerator(0),
+                failedTransactionWriter,
+                dir, 1024, true, 64, 1000, 1000);
+        engine.start();
+        engines.add(engine);
+        return engine;
+    }
+
+    @Test
+    void useBalanceSuccess() throws IOException {
+        // given
+        LedgerEngine engine = start();
+
+        // when
+        TransactionDto first = engine.useBalance(1L, "1000000000", 1000L).join();
+        TransactionDto second = engine.useBalance(1L, "1000000000", 2000L).join();
+
+        // then
+        assertEquals("1000000000", first.getAccountNumber());
+        assertEquals(USE, first.getTransactionType());
+        assertEquals(S, first.getTransactionResultType());
+        assertEquals(9000L, first.getBalanceSnapshot());
+        assertEquals(7000L, second.getBalanceSnapshot());
+        // DB 잔액은 처음 한 번만 읽는다.
+        verify(accountRepository, times(1)).findBalanceById(7L);
+        assertEquals(2L, engine.committedLsn());
+        assertEquals(2, engine.pendingCount());
+        assertEquals(7000L, engine.findTransaction(second.getTransactionId())
+                .orElseThrow().getBalanceSnapshot());
+    }
+
+    @Test
+    void useBalanceFailed_AmountExceedBalance() throws IOException {
+        // given
+        LedgerEngine engine = start();
+
+        // when
+        CompletableFuture<TransactionDto> future = engine.useBalance(1L, "1000000000", 10001L);
+
+        // then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, errorCode(future));
+        verify(failedTransactionWriter, timeout(1000)).write("1000000000", 10001L);
+        assertEquals(0L, engine.committedLsn());
+    }
+
+    @Test
+    void useBalanceFailed_UserUnMatch() throws IOException {
+        // given
+        LedgerEngine engine = start();
+
+        // when
+        // then
+        assertEquals(ErrorCode.ACCOUNT_UNMATCHED,
+                errorCode(engine.useBalance(2L, "1000000000", 1000L)));
+        assertEquals(ErrorCode.USER_NOT_FOUND,
+                errorCode(engine.useBalance(3L, "1000000000", 1000L)));
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND,
+                errorCode(engine.useBalance(1L, "2000000000", 1000L)));
+    }
+
+    @Test
+    void cancelPendingUse() throws IOException {
+        // given
+        LedgerEngine engine = start();
+        TransactionDto use = engine.useBalance(1L, "1000000000", 1000L).join();
+
+        // when
+        TransactionDto cancel = engine.cancelBalance(use.getTransactionId(), "1000000000", 1000L).join();
+
+        // then
+        assertEquals(CANCEL, cancel.getTransactionType());
+        assertEquals(10000L, cancel.getBalanceSnapshot());
+        verify(transactionRepository, never()).findByTransactionId(anyString());
+    }
+
+    @Test
+    void cancelFailed_NotFully() throws IOException {
+        // given
+        LedgerEngine engine = start();
+        TransactionDto use = engine.useBalance(1L, "1000000000", 1000L).join();
+
+        // when
+        CompletableFuture<TransactionDto> future =
+                engine.cancelBalance(use.getTransactionId(), "1000000000", 500L);
+
+        // then
+        assertEquals(ErrorCode.CANCEL_MUST_FULLY, errorCode(future));
+    }
+
+    @Test
+    void cancelOnlyOnce() throws IOException {
+        // given
+        LedgerEngine engine = start();
+        TransactionDto use = engine.useBalance(1L, "1000000000", 1000L).join();
+
+        // when
+        // 작성 스레드가 반영하기 전에 같이 들어온 취소
+        CompletableFuture<TransactionDto> first = engine.cancelBalance(use.getTransactionId(), "1000000000", 1000L);
+        CompletableFuture<TransactionDto> second = engine.cancelBalance(use.getTransactionId(), "1000000000", 1000L);
+        first.exceptionally(e -> null).join();
+        second.exceptionally(e -> null).join();
+
+        // then
+        assertEquals(1, (first.isCompletedExceptionally() ? 0 : 1) + (second.isCompletedExceptionally() ? 0 : 1));
+        assertEquals(ErrorCode.TRANSACTION_ALREADY_CANCELLED,
+                errorCode(first.isCompletedExceptionally() ? first : second));
+        assertEquals(ErrorCode.TRANSACTION_ALREADY_CANCELLED,
+                errorCode(engine.cancelBalance(use.getTransactionId(), "1000000000", 1000L)));
+        assertEquals(2L, engine.committedLsn());
+    }
+
+    @Test
+    void cancelledInDatabase() throws IOException {
+        // given
+        LedgerEngine engine = start();
+        TransactionDto use = engine.useBalance(1L, "1000000000", 1000L).join();
+        given(transactionRepository.existsByOriginalTransactionId(use.getTransactionId())).willReturn(true);
+
+        // when
+        CompletableFuture<TransactionDto> future =
+                engine.cancelBalance(use.getTransactionId(), "1000000000", 1000L);
+
+        // then
+        assertEquals(ErrorCode.TRANSACTION_ALREADY_CANCELLED, errorCode(future));
+    }
+
+    @Test
+    void useBalanceBatchKeepsOrderAndFailures() throws IOException {
+        // given
+        LedgerEngine engine = start();
+        List<UseBalance.Request> requests = List.of(
+                new UseBalance.Request(1L, "1000000000", 6000L),
+                new UseBalance.Request(1L, "1000000000", 6000L),
+                new UseBalance.Request(1L, "1000000000", 4000L));
+
+        // when
+        List<TransactionDto> results = engine.useBalanceBatch(requests);
+
+        // then
+        assertEquals(S, results.get(0).getTransactionResultType());
+        assertEquals(F, results.get(1).getTransactionResultType());
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, results.get(1).getErrorCode());
+        assertEquals(S, results.get(2).getTransactionResultType());
+        assertEquals(0L, results.get(2).getBalanceSnapshot());
+    }
+
+    @Test
+    void recoverFromLogOnRestart() throws IOException, InterruptedException {
+        // given
+        LedgerEngine engine = start();
+        TransactionDto use = engine.useBalance(1L, "1000000000", 1000L).join();
+        engine.useBalance(1L, "1000000000", 2000L).join();
+        engine.shutdown();
+        engines.remove(engine);
+        // DB 에는 checkpoint 되지 않은 잔액이 남아있다.
+        clearInvocations(accountRepository);
+
+        // when
+        LedgerEngine restarted = start();
+        TransactionDto next = restarted.useBalance(1L, "1000000000", 3000L).join();
+
+        // then
+        assertEquals(4000L, next.getBalanceSnapshot());
+        assertEquals(3L, restarted.committedLsn());
+        verify(accountRepository, never()).findBalanceById(anyLong());
+        TransactionDto recovered = restarted.findTransaction(use.getTransactionId()).orElseThrow();
+        assertEquals(9000L, recovered.getBalanceSnapshot());
+        assertEquals(use.getTransactionAt(), recovered.getTransactionAt());
+        assertEquals("1000000000", recovered.getAccountNumber());
+    }
+
+    @Test
+    void recoverAfterCheckpoint() throws IOException, InterruptedException {
+        // given
+        LedgerEngine engine = start();
+        engine.useBalance(1L, "1000000000", 1000L).join();
+        engine.useBalance(1L, "1000000000", 2000L).join();
+        engine.shutdown();
+        engines.remove(engine);
+        given(ledgerCheckpointRepository.findById(LedgerCheckpoint.ID))
+                .willReturn(Optional.of(new LedgerCheckpoint(LedgerCheckpoint.ID, 1L, null)));
+
+        // when
+        LedgerEngine restarted = start();
+
+        // then
+        assertEquals(1L, restarted.checkpointedLsn());
+        assertEquals(2L, restarted.committedLsn());
+        assertEquals(1, restarted.pendingCount());
+    }
+
+    @Test
+    void recoverCancelOnRestart() throws IOException, InterruptedException {
+        // given
+        LedgerEngine engine = start();
+        TransactionDto use = engine.useBalance(1L, "1000000000", 1000L).join();
+        TransactionDto cancel = engine.cancelBalance(use.getTransactionId(), "1000000000", 1000L).join();
+        engine.shutdown();
+        engines.remove(engine);
+
+        // when
+        LedgerEngine restarted = start();
+
+        // then
+        assertEquals(ErrorCode.TRANSACTION_ALREADY_CANCELLED,
+                errorCode(restarted.cancelBalance(use.getTransactionId(), "1000000000", 1000L)));
+        restarted.read(0L, 2L, record -> {
+            if (record.getLsn() == 2L) {
+                assertEquals(cancel.getTransactionId(), record.getTransactionId());
+                assertEquals(use.getTransactionId(), record.getOriginalTransactionId());
+            } else {
+                assertNull(record.getOriginalTransactionId());
+            }
+        });
+    }
+
+    @Test
+    void syncFailureKeepsAppliedAndStopsWrites() throws IOException, InterruptedException {
+        // given
+        AtomicBoolean failSync = new AtomicBoolean();
+        LedgerWriteAheadLog wal = new LedgerWriteAheadLog(dir, 1024, true) {
+            @Override
+            void sync() {
+                if (failSync.getAndSet(false)) {
+                    throw new UncheckedIOException(new IOException("injected"));
+                }
+                super.sync();
+            }
+        };
+        LedgerEngine engine = new LedgerEngine(
+                accountUserRepository,
+                accountRepository,
+                transactionRepository,
+                ledgerCheckpointRepository,
+                new AccountLookupCache(accountRepository, 100, Duration.ofMinutes(1)),
+                new TransactionIdGenerator(0),
+                failedTransactionWriter,
+                wal, 64, 1000, 1000);
+        engine.start();
+        engines.add(engine);
+
+        // when
+        failSync.set(true);
+        TransactionDto use = engine.useBalance(1L, "1000000000", 1000L).join();
+
+        // then
+        // 메모리 / 로그에 반영된 거래는 성공으로 응답하고, 그 뒤로는 받지 않는다.
+        assertEquals(S, use.getTransactionResultType());
+        assertEquals(9000L, use.getBalanceSnapshot());
+        assertEquals(1L, engine.committedLsn());
+        assertEquals(ErrorCode.INTERNAL_SERVER_ERROR,
+                errorCode(engine.useBalance(1L, "1000000000", 1000L)));
+
+        // 다시 시작하면 같은 거래가 복구된다.
+        engine.shutdown();
+        engines.remove(engine);
+        LedgerEngine restarted = start();
+        assertEquals(9000L, restarted.findTransaction(use.getTransactionId())
+                .orElseThrow().getBalanceSnapshot());
+        assertEquals(8000L, restarted.useBalance(1L, "1000000000", 1000L).join().getBalanceSnapshot());
+    }
+
+    @Test
+    void unregisterChecksLedgerBalance() throws IOException {
+        // given
+        LedgerEngine engine = start();
+        // DB 잔액은 10000 이지만 원장에서는 모두 썼다.
+        TransactionDto use = engine.useBalance(1L, "1000000000", 10000L).join();
+
+        // when
+        long balance = engine.unregister(7L);
+
+        // then
+        assertEquals(0L, balance);
+        assertEquals(ErrorCode.ACCOUNT_ALREADY_DELETED,
+                errorCode(engine.cancelBalance(use.getTransactionId(), "1000000000", 10000L)));
+        assertEquals(ErrorCode.ACCOUNT_ALREADY_DELETED,
+                assertThrows(AccountException.class, () -> engine.unregister(7L)).getErrorCode());
+    }
+
+    @Test
+    void unregisterFailed_HasBalance() throws IOException {
+        // given
+        LedgerEngine engine = start();
+        engine.useBalance(1L, "1000000000", 1000L).join();
+
+        // when
+        AccountException exception = assertThrows(AccountException.class, () -> engine.unregister(7L));
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_DELETE_HAS_BALANCE, exception.getErrorCode());
+        assertEquals(8000L, engine.useBalance(1L, "1000000000", 1000L).join().getBalanceSnapshot());
+    }
+
+    @Test
+    void reregisterAfterRollback() throws IOException {
+        // given
+        LedgerEngine engine = start();
+        TransactionDto use = engine.useBalance(1L, "1000000000", 10000L).join();
+        engine.unregister(7L);
+
+        // when
+        engine.reregister(7L);
+        TransactionDto cancel = engine.cancelBalance(use.getTransactionId(), "1000000000", 10000L).join();
+
+        // then
+        assertEquals(10000L, cancel.getBalanceSnapshot());
+    }
+
+    @Test
+    void rejectUnregisteredInDatabase() throws IOException {
+        // given
+        given(accountRepository.findStatusById(7L)).willReturn(AccountStatus.UNREGISTERED);
+        LedgerEngine engine = start();
+
+        // when
+        // 요청 스레드의 캐시에는 아직 사용 중으로 남아있다.
+        CompletableFuture<TransactionDto> future = engine.useBalance(1L, "1000000000", 1000L);
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_ALREADY_DELETED, errorCode(future));
+    }
+
+    private static ErrorCode errorCode(CompletableFuture<TransactionDto> future) {
+        CompletionException exception = assertThrows(CompletionException.class, future::join);
+        return ((AccountException) exception.getCause()).getErrorCode();
+    }
+}
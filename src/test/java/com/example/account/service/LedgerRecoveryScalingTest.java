@@ -0,0 +1,60 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 원장 로그 천만 건을 다시 읽어서 잔액을 복구하는 시간을 잰다.
+ * 로그 파일이 640MB 라서 ./gradlew scalingTest 로 따로 실행한다.
+ */
+@Tag("scaling")
+class LedgerRecoveryScalingTest {
+    private static final int RECORDS = 10_000_000;
+    private static final int ACCOUNTS = 100_000;
+    private static final long INITIAL_BALANCE = 1_000_000L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoverTenMillionRecords() throws IOException {
+        // given
+        LedgerWriteAheadLog wal = new LedgerWriteAheadLog(dir, 1 << 20, false);
+        wal.recover(0L, record -> {
+        });
+        long[] balances = new long[ACCOUNTS + 1];
+        Arrays.fill(balances, INITIAL_BALANCE);
+        for (int i = 0; i < RECORDS; i++) {
+            int accountId = i % ACCOUNTS + 1;
+            balances[accountId] -= 1;
+            wal.append(USE, accountId, 1L, balances[accountId], i, i, 0L);
+        }
+        wal.close();
+
+        // when
+        LedgerBalances recovered = new LedgerBalances(ACCOUNTS);
+        long startedAt = System.nanoTime();
+        long lastLsn = new LedgerWriteAheadLog(dir, 1 << 20, false).recover(0L,
+                record -> recovered.put(record.getAccountId(), record.getBalanceAfter()));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        // then
+        System.out.printf("recovered %d records, %d accounts in %d ms%n",
+                lastLsn, recovered.size(), elapsedMillis);
+        assertEquals(RECORDS, lastLsn);
+        assertEquals(ACCOUNTS, recovered.size());
+        assertEquals(INITIAL_BALANCE - RECORDS / ACCOUNTS, recovered.get(1L));
+        assertEquals(INITIAL_BALANCE - RECORDS / ACCOUNTS, recovered.get(ACCOUNTS));
+        // 재시작 시간 목표 (로그를 다시 읽는 데 30초 이내)
+        assertTrue(elapsedMillis < 30_000, "recovery took " + elapsedMillis + " ms");
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerWriteAheadLogTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoverAppendedRecords() throws IOException {
+        // given
+        LedgerWriteAheadLog wal = open();
+        wal.recover(0L, record -> fail());
+        wal.append(USE, 1L, 1000L, 9000L, 11L, 100L, 0L);
+        wal.append(CANCEL, 1L, 1000L, 10000L, 12L, 200L, 11L);
+        wal.sync();
+        wal.close();
+
+        // when
+        List<String> records = new ArrayList<>();
+        long lastLsn = open().recover(0L, record -> records.add(describe(record)));
+
+        // then
+        assertEquals(2L, lastLsn);
+        assertEquals(List.of("1 USE 1 1000 9000 11 100 0", "2 CANCEL 1 1000 10000 12 200 11"), records);
+    }
+
+    @Test
+    void recoverFromCheckpoint() throws IOException {
+        // given
+        LedgerWriteAheadLog wal = open();
+        wal.recover(0L, record -> {
+        });
+        for (int i = 0; i < 10; i++) {
+            wal.append(USE, 1L, 1L, 100L - i, i, i, 0L);
+        }
+        wal.close();
+
+        // when
+        List<Long> lsns = new ArrayList<>();
+        LedgerWriteAheadLog recovered = open();
+        recovered.recover(7L, record -> lsns.add(record.getLsn()));
+
+        // then
+        assertEquals(List.of(8L, 9L, 10L), lsns);
+        assertEquals(11L, recovered.append(USE, 1L, 1L, 90L, 10L, 10L, 0L));
+    }
+
+    @Test
+    void rollSegmentAndReadAcross() throws IOException {
+        // given
+        LedgerWriteAheadLog wal = open();
+        wal.recover(0L, record -> {
+        });
+
+        // when
+        for (int i = 1; i <= 10; i++) {
+            wal.append(USE, i, 1L, 0L, i, i, 0L);
+        }
+        wal.sync();
+
+        // then
+        assertEquals(3, wal.segmentCount());
+        List<Long> accountIds = new ArrayList<>();
+        wal.read(3L, 9L, record -> accountIds.add(record.getAccountId()));
+        assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L), accountIds);
+    }
+
+    @Test
+    void stopAtTornRecord() throws IOException {
+        // given
+        LedgerWriteAheadLog wal = open();
+        wal.recover(0L, record -> {
+        });
+        for (int i = 1; i <= 3; i++) {
+            wal.append(USE, 1L, 1L, 0L, i, i, 0L);
+        }
+        wal.close();
+        // 두 번째 기록의 금액이 반만 쓰인 것처럼 바꾼다.
+        try (RandomAccessFile file = new RandomAccessFile(segment(1L).toFile(), "rw")) {
+            file.seek(LedgerWriteAheadLog.RECORD_BYTES + 16);
+            file.writeByte(0x7F);
+        }
+
+        // when
+        LedgerWriteAheadLog recovered = open();
+        long lastLsn = recovered.recover(0L, record -> {
+        });
+        long lsn = recovered.append(USE, 2L, 1L, 0L, 4L, 4L, 0L);
+        recovered.close();
+
+        // then
+        assertEquals(1L, lastLsn);
+        assertEquals(2L, lsn);
+        // 세 번째 기록은 지워져서 다시 열어도 이어지지 않는다.
+        assertEquals(2L, open().recover(0L, record -> {
+        }));
+    }
+
+    @Test
+    void truncateCheckpointedSegments() throws IOException {
+        // given
+        LedgerWriteAheadLog wal = open();
+        wal.recover(0L, record -> {
+        });
+        for (int i = 1; i <= 10; i++) {
+            wal.append(USE, 1L, 1L, 0L, i, i, 0L);
+        }
+        wal.sync();
+
+        // when
+        wal.truncate(8L);
+
+        // then
+        // 1 ~ 4, 5 ~ 8 파일은 지우고, 9 ~ 10 파일은 남는다.
+        assertEquals(1, wal.segmentCount());
+        assertFalse(Files.exists(segment(1L)));
+        assertFalse(Files.exists(segment(5L)));
+        assertTrue(Files.exists(segment(9L)));
+        wal.close();
+        List<Long> lsns = new ArrayList<>();
+        open().recover(8L, record -> lsns.add(record.getLsn()));
+        assertEquals(List.of(9L, 10L), lsns);
+    }
+
+    @Test
+    void startAfterCheckpointWithoutLog() throws IOException {
+        // given
+        LedgerWriteAheadLog wal = open();
+
+        // when
+        long lastLsn = wal.recover(42L, record -> fail());
+
+        // then
+        assertEquals(0L, lastLsn);
+        assertEquals(43L, wal.append(USE, 1L, 1L, 0L, 1L, 1L, 0L));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    private LedgerWriteAheadLog open() throws IOException {
+        return new LedgerWriteAheadLog(dir, 4, true);
+    }
+
+    private Path segment(long firstLsn) {
+        return dir.resolve(String.format("ledger-%020d.wal", firstLsn));
+    }
+
+    private static String describe(LedgerRecord record) {
+        return record.getLsn() + " " + record.getTransactionType() + " " + record.getAccountId()
+                + " " + record.getAmount() + " " + record.getBalanceAfter()
+                + " " + record.getTransactionIdValue() + " " + record.getTransactionAtMicros()
+                + " " + record.getOriginalTransactionIdValue();
+    }
+}
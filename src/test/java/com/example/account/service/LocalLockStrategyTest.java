@@ -0,0 +1,52 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalLockStrategyTest {
+    private final LocalLockStrategy localLockStrategy = new LocalLockStrategy(16);
+
+    @Test
+    void lockAndUnlock() {
+        // when
+        localLockStrategy.lock("1000000000");
+
+        // then
+        assertTrue(localLockStrategy.getLock("1000000000").isHeldByCurrentThread());
+        localLockStrategy.unlock("1000000000");
+        assertFalse(localLockStrategy.getLock("1000000000").isLocked());
+    }
+
+    @Test
+    void failedLockHeldByOtherThread() throws InterruptedException {
+        // given
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            localLockStrategy.lock("1000000000");
+            locked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            } finally {
+                localLockStrategy.unlock("1000000000");
+            }
+        });
+        holder.start();
+        locked.await();
+
+        // when
+        AccountException e = assertThrows(AccountException.class,
+                () -> localLockStrategy.lock("1000000000"));
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED, e.getErrorCode());
+        release.countDown();
+        holder.join();
+    }
+}
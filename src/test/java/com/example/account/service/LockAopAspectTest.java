@@ -1,5 +1,6 @@
 package com.example.account.service;
 
+import com.example.account.aop.AccountLock;
 import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
 import com.example.account.type.ErrorCode;
@@ -12,6 +13,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.refEq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.times;
@@ -20,7 +22,7 @@ import static org.mockito.Mockito.verify;
 @ExtendWith(MockitoExtension.class)
 class LockAopAspectTest {
     @Mock
-    private LockService lockService;
+    private LockStrategy lockStrategy;
 
     @Mock
     private ProceedingJoinPoint proceedingJoinPoint;
@@ -43,11 +45,11 @@ class LockAopAspectTest {
                 .build();
 
         // when
-        lockAopAspect.aroundMethod(proceedingJoinPoint, request);
+        lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock(), request);
 
         // then
-        verify(lockService, times(1)).lock(lockArgumentCaptor.capture());
-        verify(lockService, times(1)).unlock(unlockArgumentCaptor.capture());
+        verify(lockStrategy, times(1)).lock(lockArgumentCaptor.capture(), eq(3000L), eq(2000L));
+        verify(lockStrategy, times(1)).unlock(unlockArgumentCaptor.capture());
         assertEquals("1000000000", lockArgumentCaptor.getValue());
         assertEquals("1000000000", unlockArgumentCaptor.getValue());
     }
@@ -71,13 +73,43 @@ class LockAopAspectTest {
 
         // when
         // AccountException가 던져진다면 통과
-        AccountException e = assertThrows(AccountException.class, () -> lockAopAspect.aroundMethod(proceedingJoinPoint, request));
+        AccountException e = assertThrows(AccountException.class, () -> lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock(), request));
 
         // then
-        verify(lockService, times(1)).lock(lockArgumentCaptor.capture());
-        verify(lockService, times(1)).unlock(unlockArgumentCaptor.capture());
+        verify(lockStrategy, times(1)).lock(lockArgumentCaptor.capture(), eq(3000L), eq(2000L));
+        verify(lockStrategy, times(1)).unlock(unlockArgumentCaptor.capture());
         assertEquals("1000000000", lockArgumentCaptor.getValue());
         assertEquals("1000000000", unlockArgumentCaptor.getValue());
     }
 
-}
\ No newline at end of file
+    @Test
+    void lockWithConfiguredTimesByDefault() throws Throwable {
+        // given
+        UseBalance.Request request = UseBalance.Request.builder()
+                .userId(1L)
+                .accountNumber("1000000000")
+                .amount(1000L)
+                .build();
+
+        // when
+        lockAopAspect.aroundMethod(proceedingJoinPoint,
+                getClass().getDeclaredMethod("annotatedWithDefaults").getAnnotation(AccountLock.class),
+                request);
+
+        // then
+        verify(lockStrategy, times(1)).lock("1000000000", LockStrategy.DEFAULT_TIME, LockStrategy.DEFAULT_TIME);
+        verify(lockStrategy, times(1)).unlock("1000000000");
+    }
+
+    @AccountLock(tryLockTime = 3000L, leaseTime = 2000L)
+    private void annotated() {
+    }
+
+    @AccountLock
+    private void annotatedWithDefaults() {
+    }
+
+    private AccountLock accountLock() throws NoSuchMethodException {
+        return getClass().getDeclaredMethod("annotated").getAnnotation(AccountLock.class);
+    }
+}
@@ -2,18 +2,31 @@ package com.example.account.service;
 
 import com.example.account.exception.AccountException;
 import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.redisson.Redisson;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.redisson.misc.CompletableFutureWrapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class LockServiceTest {
@@ -23,9 +36,16 @@ class LockServiceTest {
     @Mock
     private RLock lock;
 
-    @InjectMocks
+    private SimpleMeterRegistry meterRegistry;
+
     private LockService lockService;
 
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lockService = new LockService(redissonClient, meterRegistry, 16);
+    }
+
     @Test
     void successGetLock() throws InterruptedException {
         // given
@@ -52,6 +72,229 @@ class LockServiceTest {
 
         // then
         assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED, e.getErrorCode());
+        assertEquals(1.0, meterRegistry.get("account.lock.contention").tag("tier", "remote").counter().count());
     }
 
-}
\ No newline at end of file
+    @Test
+    void redisErrorFailsRequest() throws InterruptedException {
+        // given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(lock);
+        given(lock.tryLock(anyLong(), anyLong(), any()))
+                .willThrow(new IllegalStateException("connection refused"));
+
+        // when
+        AccountException e = assertThrows(AccountException.class, () -> lockService.lock("123"));
+
+        // then
+        assertEquals(ErrorCode.LOCK_UNAVAILABLE, e.getErrorCode());
+        assertFalse(lockService.getLocalLock("123").isLocked());
+        assertEquals(1.0, meterRegistry.get("account.lock.errors").counter().count());
+    }
+
+    @Test
+    void lockWithGivenWaitAndLease() throws InterruptedException {
+        // given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(lock);
+        given(lock.tryLock(anyLong(), anyLong(), any()))
+                .willReturn(true);
+
+        // when
+        lockService.lock("123", 300L, 2000L);
+        lockService.unlock("123");
+
+        // then
+        ArgumentCaptor<Long> waitCaptor = ArgumentCaptor.forClass(Long.class);
+        verify(lock, times(1)).tryLock(waitCaptor.capture(), eq(2000L), eq(TimeUnit.MILLISECONDS));
+        assertTrue(waitCaptor.getValue() <= 300L);
+        assertEquals(1L, meterRegistry.get("account.lock.hold").timer().count());
+    }
+
+    @Test
+    void leaseExpiredBeforeUnlock() throws InterruptedException {
+        // given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(lock);
+        given(lock.tryLock(anyLong(), anyLong(), any()))
+                .willReturn(true);
+        willThrow(new IllegalMonitorStateException()).given(lock).unlock();
+
+        // when
+        lockService.lock("123");
+        lockService.unlock("123");
+
+        // then
+        assertFalse(lockService.getLocalLock("123").isLocked());
+        assertEquals(1.0, meterRegistry.get("account.lock.lease.expired").counter().count());
+    }
+
+    @Test
+    void adaptiveLeaseFromHoldTime() {
+        // given
+        ReflectionTestUtils.setField(lockService, "adaptiveLease", true);
+        ReflectionTestUtils.setField(lockService, "adaptiveLeaseMinMillis", 500L);
+        Timer holdTimer = meterRegistry.get("account.lock.hold").timer();
+
+        // 표본이 적으면 설정된 lease
+        assertEquals(15000L, lockService.currentLeaseMillis());
+
+        for (int i = 0; i < LockService.ADAPTIVE_MIN_SAMPLES; i++) {
+            holdTimer.record(Duration.ofMillis(1000));
+        }
+        ReflectionTestUtils.setField(lockService, "adaptiveLeaseMillis", -1L);
+
+        // when
+        long lease = lockService.currentLeaseMillis();
+
+        // then
+        // p99(약 1초) * 3
+        assertTrue(lease >= 2500L && lease <= 4000L, "lease : " + lease);
+    }
+
+    @Test
+    void adaptiveLeaseCoversLongestHold() {
+        // given
+        ReflectionTestUtils.setField(lockService, "adaptiveLease", true);
+        ReflectionTestUtils.setField(lockService, "adaptiveLeaseMinMillis", 500L);
+        Timer holdTimer = meterRegistry.get("account.lock.hold").timer();
+        for (int i = 0; i < LockService.ADAPTIVE_MIN_SAMPLES; i++) {
+            holdTimer.record(Duration.ofMillis(10));
+        }
+        // 느린 커밋 한 번
+        holdTimer.record(Duration.ofMillis(4000));
+        ReflectionTestUtils.setField(lockService, "adaptiveLeaseMillis", -1L);
+
+        // when
+        long lease = lockService.currentLeaseMillis();
+
+        // then
+        // p99 는 짧아도 최장 보유 시간 * 2 아래로 내리지 않는다.
+        assertTrue(lease >= 8000L && lease <= 15000L, "lease : " + lease);
+    }
+
+    @Test
+    void adaptiveLeaseMinMillisByDefault() {
+        // given
+        ReflectionTestUtils.setField(lockService, "adaptiveLease", true);
+        Timer holdTimer = meterRegistry.get("account.lock.hold").timer();
+        for (int i = 0; i < LockService.ADAPTIVE_MIN_SAMPLES; i++) {
+            holdTimer.record(Duration.ofMillis(10));
+        }
+        ReflectionTestUtils.setField(lockService, "adaptiveLeaseMillis", -1L);
+
+        // when
+        long lease = lockService.currentLeaseMillis();
+
+        // then
+        assertEquals(5000L, lease);
+    }
+
+    @Test
+    void unlockReusesHeldLock() throws InterruptedException {
+        // given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(lock);
+        given(lock.tryLock(anyLong(), anyLong(), any()))
+                .willReturn(true);
+
+        // when
+        lockService.lock("123");
+        lockService.unlock("123");
+
+        // then
+        verify(redissonClient, times(1)).getLock(anyString());
+        verify(lock, times(1)).unlock();
+        assertFalse(lockService.getLocalLock("123").isLocked());
+        assertEquals(1L, meterRegistry.get("account.lock.wait").tag("tier", "local").timer().count());
+        assertEquals(1L, meterRegistry.get("account.lock.wait").tag("tier", "remote").timer().count());
+    }
+
+    @Test
+    void releaseLocalLockWhenRemoteFailed() throws InterruptedException {
+        // given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(lock);
+        given(lock.tryLock(anyLong(), anyLong(), any()))
+                .willReturn(false);
+
+        // when
+        assertThrows(AccountException.class, () -> lockService.lock("123"));
+
+        // then
+        assertFalse(lockService.getLocalLock("123").isLocked());
+    }
+
+    @Test
+    void failedGetLocalLock() throws InterruptedException {
+        // given
+        Thread holder = new Thread(() -> lockService.getLocalLock("123").lock());
+        holder.start();
+        holder.join();
+
+        // when
+        AccountException e = assertThrows(AccountException.class, () -> lockService.lock("123"));
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED, e.getErrorCode());
+        verify(redissonClient, times(0)).getLock(anyString());
+    }
+
+    @Test
+    void successGetLockAsync() throws Exception {
+        // given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(lock);
+        given(lock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(new CompletableFutureWrapper<>(true));
+        given(lock.unlockAsync(anyLong()))
+                .willReturn(new CompletableFutureWrapper<>((Void) null));
+
+        // when
+        long ownerId = lockService.lockAsync("123", 300L, 2000L).get();
+        lockService.unlockAsync("123", ownerId).get();
+
+        // then
+        assertTrue(ownerId < 0);
+        verify(lock, times(1)).tryLockAsync(eq(300L), eq(2000L), eq(TimeUnit.MILLISECONDS), eq(ownerId));
+        verify(lock, times(1)).unlockAsync(ownerId);
+        // 비동기 lock 은 스레드 소유인 로컬 lock 을 잡지 않는다.
+        assertFalse(lockService.getLocalLock("123").isLocked());
+        assertEquals(1L, meterRegistry.get("account.lock.hold").timer().count());
+    }
+
+    @Test
+    void failedGetLockAsync() {
+        // given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(lock);
+        given(lock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(new CompletableFutureWrapper<>(false));
+
+        // when
+        CompletableFuture<Long> future = lockService.lockAsync("123", 300L, 2000L);
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED, ((AccountException) e.getCause()).getErrorCode());
+        assertEquals(1.0, meterRegistry.get("account.lock.contention").tag("tier", "remote").counter().count());
+    }
+
+    @Test
+    void leaseExpiredBeforeUnlockAsync() throws Exception {
+        // given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(lock);
+        given(lock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(new CompletableFutureWrapper<>(true));
+        given(lock.unlockAsync(anyLong()))
+                .willReturn(new CompletableFutureWrapper<>(new IllegalMonitorStateException()));
+
+        // when
+        long ownerId = lockService.lockAsync("123", 300L, 2000L).get();
+        assertDoesNotThrow(() -> lockService.unlockAsync("123", ownerId).get());
+
+        // then
+        assertEquals(1.0, meterRegistry.get("account.lock.lease.expired").counter().count());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.BalanceMode;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimisticRetryExecutorTest {
+    private final OptimisticRetryExecutor executor = new OptimisticRetryExecutor(BalanceMode.OPTIMISTIC, 3, 1, 2);
+
+    @Test
+    void retryUntilSuccess() {
+        // given
+        AtomicInteger calls = new AtomicInteger();
+
+        // when
+        String result = executor.execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Account", 1L);
+            }
+            return "ok";
+        });
+
+        // then
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void retryExhausted() {
+        // given
+        AtomicInteger calls = new AtomicInteger();
+
+        // when
+        AccountException e = assertThrows(AccountException.class, () -> executor.execute(() -> {
+            calls.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Account", 1L);
+        }));
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED, e.getErrorCode());
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void otherExceptionIsNotRetried() {
+        // given
+        AtomicInteger calls = new AtomicInteger();
+
+        // when
+        assertThrows(AccountException.class, () -> executor.execute(() -> {
+            calls.incrementAndGet();
+            throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        }));
+
+        // then
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void noRetryOutsideOptimisticMode() {
+        // given
+        // lock 모드에서는 @AccountLock 을 잡은 채로 기다리지 않는다.
+        OptimisticRetryExecutor lockMode = new OptimisticRetryExecutor(BalanceMode.LOCK, 3, 1000, 1000);
+        AtomicInteger calls = new AtomicInteger();
+
+        // when
+        AccountException e = assertThrows(AccountException.class, () -> lockMode.execute(() -> {
+            calls.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Account", 1L);
+        }));
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK_FAILED, e.getErrorCode());
+        assertEquals(1, calls.get());
+    }
+}
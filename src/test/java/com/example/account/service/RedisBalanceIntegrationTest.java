@@ -0,0 +1,259 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.AccountInfo;
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RList;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Redis 잔액 모드에서 Lua 차감과 DB 반영이 맞는지 확인한다. (embedded Redis)
+ * 다른 테스트의 Redis 와 섞이지 않도록 다른 포트로 띄우고, 주기 반영은 끄고 직접 호출한다.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "spring.redis.port=6380",
+        "account.balance-mode=redis",
+        "account.redis-balance.persist-millis=3600000"
+})
+class RedisBalanceIntegrationTest {
+    private static final Long USER_ID = 3L;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private RedisBalanceEngine redisBalanceEngine;
+
+    @Autowired
+    private RedisBalancePersister redisBalancePersister;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountJournal accountJournal;
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long dbBalance(String accountNumber) {
+        return accountRepository.findByAccountNumber(accountNumber)
+                .map(Account::getBalance).orElseThrow();
+    }
+
+    private static ErrorCode errorCode(Runnable runnable) {
+        CompletionException exception = assertThrows(CompletionException.class, runnable::run);
+        return ((AccountException) exception.getCause()).getErrorCode();
+    }
+
+    @Test
+    void useThenPersist() {
+        // given
+        String accountNumber = accountService.createAccount(USER_ID, 10_000L).getAccountNumber();
+        redisBalanceEngine.useBalance(USER_ID, accountNumber, 1000L).join();
+        TransactionDto use = redisBalanceEngine.useBalance(USER_ID, accountNumber, 3000L).join();
+        // 반영 전에는 DB 잔액이 그대로고, 계좌 목록은 Redis 잔액을 보여준다.
+        assertEquals(6_000L, use.getBalanceSnapshot());
+        assertEquals(10_000L, dbBalance(accountNumber));
+        assertEquals(6_000L, accountService.getAccountsByUserId(USER_ID).stream()
+                .filter(info -> info.getAccountNumber().equals(accountNumber))
+                .map(AccountInfo::getBalance)
+                .findFirst().orElseThrow());
+
+        // when
+        redisBalancePersister.persist();
+
+        // then
+        assertEquals(6_000L, dbBalance(accountNumber));
+        Transaction saved = transactionRepository.findByTransactionId(use.getTransactionId()).orElseThrow();
+        assertEquals(6_000L, saved.getBalanceSnapshot());
+        assertEquals(use.getTransactionAt(), saved.getTransactionAt());
+        assertEquals(6_000L, accountJournal.getBalance(accountNumber, null));
+    }
+
+    @Test
+    void useFails() {
+        // given
+        String accountNumber = accountService.createAccount(USER_ID, 1000L).getAccountNumber();
+
+        // when
+        // then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, errorCode(
+                () -> redisBalanceEngine.useBalance(USER_ID, accountNumber, 1001L).join()));
+        assertEquals(ErrorCode.ACCOUNT_UNMATCHED, errorCode(
+                () -> redisBalanceEngine.useBalance(1L, accountNumber, 100L).join()));
+        assertEquals(1000L, redisBalanceEngine.findBalance(accountNumber).orElseThrow());
+    }
+
+    @Test
+    void cancelOnce() {
+        // given
+        String accountNumber = accountService.createAccount(USER_ID, 10_000L).getAccountNumber();
+        TransactionDto use = redisBalanceEngine.useBalance(USER_ID, accountNumber, 1000L).join();
+        // 취소할 원거래는 DB 로 옮겨진 뒤에 보인다.
+        assertEquals(ErrorCode.TRANSACTION_NOT_FOUND, errorCode(() -> redisBalanceEngine
+                .cancelBalance(use.getTransactionId(), accountNumber, 1000L).join()));
+        redisBalancePersister.persist();
+
+        // when
+        TransactionDto cancel = redisBalanceEngine
+                .cancelBalance(use.getTransactionId(), accountNumber, 1000L).join();
+
+        // then
+        assertEquals(CANCEL, cancel.getTransactionType());
+        assertEquals(10_000L, cancel.getBalanceSnapshot());
+        // 반영 전에는 Redis 의 취소 표시가, 반영 후에는 DB 인덱스가 막는다.
+        assertEquals(ErrorCode.TRANSACTION_ALREADY_CANCELLED, errorCode(() -> redisBalanceEngine
+                .cancelBalance(use.getTransactionId(), accountNumber, 1000L).join()));
+        redisBalancePersister.persist();
+        assertEquals(ErrorCode.TRANSACTION_ALREADY_CANCELLED, errorCode(() -> redisBalanceEngine
+                .cancelBalance(use.getTransactionId(), accountNumber, 1000L).join()));
+        assertEquals(10_000L, dbBalance(accountNumber));
+        assertEquals(use.getTransactionId(), transactionRepository.findByTransactionId(cancel.getTransactionId())
+                .map(Transaction::getOriginalTransactionId).orElseThrow());
+    }
+
+    @Test
+    void concurrentUseNeverOverdraws() throws Exception {
+        // given
+        String accountNumber = accountService.createAccount(USER_ID, 5000L).getAccountNumber();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+
+        // when
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 100; i++) {
+                results.add(executor.submit(() -> {
+                    try {
+                        redisBalanceEngine.useBalance(USER_ID, accountNumber, 100L).join();
+                        return true;
+                    } catch (CompletionException e) {
+                        return false;
+                    }
+                }));
+            }
+            long succeeded = 0;
+            for (Future<Boolean> result : results) {
+                succeeded += result.get() ? 1 : 0;
+            }
+
+            // then
+            assertEquals(50, succeeded);
+            assertEquals(0L, redisBalanceEngine.findBalance(accountNumber).orElseThrow());
+        } finally {
+            executor.shutdown();
+        }
+        redisBalancePersister.persist();
+        assertEquals(0L, dbBalance(accountNumber));
+        assertEquals(0L, accountJournal.getBalance(accountNumber, null));
+    }
+
+    @Test
+    void persistAgainSkipsSavedRecords() {
+        // given
+        String accountNumber = accountService.createAccount(USER_ID, 10_000L).getAccountNumber();
+        TransactionDto use = redisBalanceEngine.useBalance(USER_ID, accountNumber, 1000L).join();
+        RList<String> log = redissonClient.getList(RedisBalanceEngine.LOG_KEY, StringCodec.INSTANCE);
+        List<String> records = log.readAll();
+        redisBalancePersister.persist();
+
+        // when
+        // DB commit 뒤 처리 중 list 를 지우기 전에 죽은 경우
+        redissonClient.<String>getList(RedisBalancePersister.PROCESSING_KEY, StringCodec.INSTANCE)
+                .addAll(records);
+        int persisted = redisBalancePersister.persist();
+
+        // then
+        assertEquals(records.size(), persisted);
+        assertEquals(9_000L, dbBalance(accountNumber));
+        assertTrue(transactionRepository.findByTransactionId(use.getTransactionId()).isPresent());
+        assertEquals(9_000L, accountJournal.getBalance(accountNumber, null));
+    }
+
+    @Test
+    void badRecordMovesToDeadList() {
+        // given
+        String accountNumber = accountService.createAccount(USER_ID, 10_000L).getAccountNumber();
+        RList<String> log = redissonClient.getList(RedisBalanceEngine.LOG_KEY, StringCodec.INSTANCE);
+        // 없는 계좌, 형식 오류
+        String missingAccount = RedisBalancePersister.recordPrefix(
+                USE, 999_999L, 1000L, "missing-account", LocalDateTime.now(), null) + "9000";
+        String malformed = "USE:not-a-number";
+        log.add(missingAccount);
+        TransactionDto use = redisBalanceEngine.useBalance(USER_ID, accountNumber, 1000L).join();
+        log.add(malformed);
+        double dead = meterRegistry.get("account.redis-balance.dead").counter().count();
+
+        // when
+        redisBalancePersister.persist();
+
+        // then
+        assertEquals(9_000L, dbBalance(accountNumber));
+        assertTrue(transactionRepository.findByTransactionId(use.getTransactionId()).isPresent());
+        assertTrue(redissonClient.<String>getList(RedisBalancePersister.PROCESSING_KEY, StringCodec.INSTANCE)
+                .isEmpty());
+        List<String> deadRecords = redissonClient.<String>getList(RedisBalancePersister.DEAD_KEY, StringCodec.INSTANCE)
+                .readAll();
+        assertTrue(deadRecords.containsAll(List.of(missingAccount, malformed)));
+        assertEquals(dead + 2, meterRegistry.get("account.redis-balance.dead").counter().count());
+    }
+
+    @Test
+    void deleteAccountWithRedisBalance() {
+        // given
+        String accountNumber = accountService.createAccount(USER_ID, 1000L).getAccountNumber();
+        redisBalanceEngine.useBalance(USER_ID, accountNumber, 1000L).join();
+
+        // when
+        // DB 잔액은 아직 1000 이지만 Redis 잔액(0)으로 확인한다.
+        accountService.deleteAccount(USER_ID, accountNumber);
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_ALREADY_DELETED, errorCode(
+                () -> redisBalanceEngine.useBalance(USER_ID, accountNumber, 0L).join()));
+    }
+
+    @Test
+    void cancelOnDeletedAccountFails() {
+        // given
+        String accountNumber = accountService.createAccount(USER_ID, 1000L).getAccountNumber();
+        TransactionDto use = redisBalanceEngine.useBalance(USER_ID, accountNumber, 1000L).join();
+        redisBalancePersister.persist();
+        accountService.deleteAccount(USER_ID, accountNumber);
+
+        // when
+        // then
+        assertEquals(ErrorCode.ACCOUNT_ALREADY_DELETED, errorCode(() -> redisBalanceEngine
+                .cancelBalance(use.getTransactionId(), accountNumber, 1000L).join()));
+        assertEquals(0L, redisBalanceEngine.findBalance(accountNumber).orElseThrow());
+    }
+}
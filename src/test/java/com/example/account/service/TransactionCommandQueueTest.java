@@ -0,0 +1,159 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionCommandQueueTest {
+    @Mock
+    private TransactionService transactionService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TransactionCommandQueue commandQueue;
+
+    @BeforeEach
+    void setUp() {
+        commandQueue = new TransactionCommandQueue(transactionService, new TransactionMetrics(meterRegistry), 4, 100);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        commandQueue.shutdown();
+    }
+
+    @Test
+    void sameAccountRunsInOrderOnOneWorker() {
+        // given
+        List<Long> applied = Collections.synchronizedList(new ArrayList<>());
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        given(transactionService.useBalance(anyLong(), anyString(), anyLong()))
+                .willAnswer(invocation -> {
+                    applied.add(invocation.getArgument(2));
+                    threads.add(Thread.currentThread().getName());
+                    return TransactionDto.builder()
+                            .amount(invocation.getArgument(2))
+                            .build();
+                });
+
+        // when
+        List<CompletableFuture<TransactionDto>> futures = new ArrayList<>();
+        for (long amount = 1; amount <= 50; amount++) {
+            futures.add(commandQueue.useBalance(1L, "1000000000", amount));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        // then
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i + 1L, applied.get(i));
+        }
+        assertEquals(1L, threads.stream().distinct().count());
+    }
+
+    @Test
+    void failedUseBalanceSavesFailedTransaction() {
+        // given
+        given(transactionService.useBalance(anyLong(), anyString(), anyLong()))
+                .willThrow(new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE));
+
+        // when
+        CompletableFuture<TransactionDto> future =
+                commandQueue.useBalance(1L, "1000000000", 1000L);
+
+        // then
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE,
+                ((AccountException) e.getCause()).getErrorCode());
+        verify(transactionService, times(1))
+                .saveFailedUseTransaction("1000000000", 1000L);
+    }
+
+    @Test
+    void fullQueueIsServerBusy() throws InterruptedException {
+        // given
+        TransactionCommandQueue small = new TransactionCommandQueue(transactionService, new TransactionMetrics(meterRegistry), 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        given(transactionService.useBalance(anyLong(), anyString(), anyLong()))
+                .willAnswer(invocation -> {
+                    started.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return TransactionDto.builder().build();
+                });
+
+        try {
+            // when
+            // 하나는 실행 중, 하나는 큐에서 대기
+            small.useBalance(1L, "1000000000", 1L);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            small.useBalance(1L, "1000000000", 2L);
+            CompletableFuture<TransactionDto> rejected = small.useBalance(1L, "1000000000", 3L);
+
+            // then
+            ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+            assertEquals(ErrorCode.SERVER_BUSY, ((AccountException) e.getCause()).getErrorCode());
+        } finally {
+            release.countDown();
+            small.shutdown();
+        }
+    }
+
+    @Test
+    void useBalanceBatchRunsEachAccountOnItsWorker() {
+        // given
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        given(transactionService.useBalanceAccountBatch(anyString(), anyList()))
+                .willAnswer(invocation -> {
+                    threads.add(invocation.getArgument(0) + "@" + Thread.currentThread().getName());
+                    List<UseBalance.Request> requests = invocation.getArgument(1);
+                    return requests.stream()
+                            .map(request -> TransactionDto.builder()
+                                    .accountNumber(request.getAccountNumber())
+                                    .amount(request.getAmount())
+                                    .build())
+                            .toList();
+                });
+        List<UseBalance.Request> requests = List.of(
+                new UseBalance.Request(1L, "1000000000", 1L),
+                new UseBalance.Request(1L, "2000000000", 2L),
+                new UseBalance.Request(1L, "1000000000", 3L));
+
+        // when
+        List<TransactionDto> results = commandQueue.useBalanceBatch(requests);
+
+        // then
+        for (int i = 0; i < requests.size(); i++) {
+            assertEquals(requests.get(i).getAccountNumber(), results.get(i).getAccountNumber());
+            assertEquals(requests.get(i).getAmount(), results.get(i).getAmount());
+        }
+        assertEquals(Set.of(
+                        "1000000000@account-writer-" + commandQueue.workerIndex("1000000000"),
+                        "2000000000@account-writer-" + commandQueue.workerIndex("2000000000")),
+                Set.copyOf(threads));
+        assertEquals(3.0, meterRegistry.get("account.transaction.batch.size").summary().totalAmount());
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountStatus;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistoryDto;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionHistoryServiceTest {
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private EntityManager entityManager;
+    private TransactionHistoryService transactionHistoryService;
+
+    private final LocalDateTime baseTime = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        transactionHistoryService = new TransactionHistoryService(
+                transactionRepository,
+                new AccountLookupCache(accountRepository, 100, Duration.ofMinutes(1)),
+                entityManager);
+    }
+
+    @Test
+    void firstPageWithNextCursor() {
+        // given
+        givenAccount();
+        given(transactionRepository.findLatestByAccountId(eq(7L), any()))
+                .willReturn(transactions(3, 2, 1));
+
+        // when
+        TransactionHistoryDto history = transactionHistoryService.getTransactions("1000000000", null, 2);
+
+        // then
+        verify(transactionRepository, times(1)).findLatestByAccountId(7L, Limit.of(3));
+        assertEquals(List.of("tx3", "tx2"), history.getTransactions().stream()
+                .map(TransactionDto::getTransactionId)
+                .collect(Collectors.toList()));
+        assertEquals("1000000000", history.getTransactions().get(0).getAccountNumber());
+        assertNotNull(history.getNextCursor());
+    }
+
+    @Test
+    void nextPageFromCursor() {
+        // given
+        givenAccount();
+        String cursor = new TransactionHistoryService.Cursor(baseTime.plusMinutes(2), 2L).encode();
+        given(transactionRepository.findByAccountIdBefore(anyLong(), any(), anyLong(), any()))
+                .willReturn(transactions(1));
+
+        // when
+        TransactionHistoryDto history = transactionHistoryService.getTransactions("1000000000", cursor, 2);
+
+        // then
+        verify(transactionRepository, times(1))
+                .findByAccountIdBefore(7L, baseTime.plusMinutes(2), 2L, Limit.of(3));
+        assertEquals(1, history.getTransactions().size());
+        assertNull(history.getNextCursor());
+    }
+
+    @Test
+    void invalidCursor() {
+        // given
+        givenAccount();
+
+        // when
+        AccountException e = assertThrows(AccountException.class,
+                () -> transactionHistoryService.getTransactions("1000000000", "not-a-cursor", 2));
+
+        // then
+        assertEquals(ErrorCode.INVALIDED_REQUEST, e.getErrorCode());
+    }
+
+    @Test
+    void invalidPageSize() {
+        // when
+        AccountException e = assertThrows(AccountException.class,
+                () -> transactionHistoryService.getTransactions("1000000000", null,
+                        TransactionHistoryService.MAX_PAGE_SIZE + 1));
+
+        // then
+        assertEquals(ErrorCode.INVALIDED_REQUEST, e.getErrorCode());
+    }
+
+    @Test
+    void accountNotFound() {
+        // given
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.empty());
+
+        // when
+        AccountException e = assertThrows(AccountException.class,
+                () -> transactionHistoryService.getTransactions("1000000000", null, 2));
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND, e.getErrorCode());
+    }
+
+    @Test
+    void exportDetachesEachRow() {
+        // given
+        givenAccount();
+        List<Transaction> transactions = transactions(1, 2, 3);
+        given(transactionRepository.streamByAccountId(7L))
+                .willReturn(transactions.stream());
+
+        // when
+        List<String> written = new ArrayList<>();
+        transactionHistoryService.exportTransactions("1000000000",
+                transactionDto -> written.add(transactionDto.getTransactionId()));
+
+        // then
+        assertEquals(List.of("tx1", "tx2", "tx3"), written);
+        for (Transaction transaction : transactions) {
+            verify(entityManager, times(1)).detach(transaction);
+        }
+    }
+
+    private void givenAccount() {
+        given(accountRepository.findByAccountNumber("1000000000"))
+                .willReturn(Optional.of(Account.builder()
+                        .id(7L)
+                        .accountUser(AccountUser.builder().id(1L).build())
+                        .accountStatus(AccountStatus.IN_USE)
+                        .accountNumber("1000000000")
+                        .build()));
+    }
+
+    private List<Transaction> transactions(long... ids) {
+        return Arrays.stream(ids)
+                .mapToObj(id -> Transaction.builder()
+                        .id(id)
+                        .transactionType(USE)
+                        .transactionResultType(S)
+                        .amount(100L)
+                        .transactionId("tx" + id)
+                        .transactionAt(baseTime.plusMinutes(id))
+                        .build())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionIdGeneratorTest {
+
+    @Test
+    void idsAreTimeOrdered() {
+        // given
+        TransactionIdGenerator generator = new TransactionIdGenerator(5);
+
+        // when
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            ids.add(generator.next());
+        }
+
+        // then
+        for (int i = 1; i < ids.size(); i++) {
+            assertEquals(TransactionIdGenerator.LENGTH, ids.get(i).length());
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0,
+                    ids.get(i - 1) + " >= " + ids.get(i));
+        }
+    }
+
+    @Test
+    void containsNodeAndTimestamp() {
+        // given
+        TransactionIdGenerator generator = new TransactionIdGenerator(1023);
+        long before = System.currentTimeMillis();
+
+        // when
+        long id = generator.nextId();
+
+        // then
+        long node = (id >>> TransactionIdGenerator.SEQUENCE_BITS)
+                & ((1L << TransactionIdGenerator.NODE_BITS) - 1);
+        long timestamp = (id >>> (TransactionIdGenerator.NODE_BITS + TransactionIdGenerator.SEQUENCE_BITS))
+                + TransactionIdGenerator.EPOCH;
+        assertEquals(1023L, node);
+        assertTrue(timestamp >= before && timestamp <= System.currentTimeMillis() + 1);
+    }
+
+    @Test
+    void uniqueAcrossThreads() throws InterruptedException {
+        // given
+        TransactionIdGenerator generator = new TransactionIdGenerator(1);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // when
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    ids.add(generator.next());
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        // then
+        assertEquals(160_000, ids.size());
+    }
+
+    @Test
+    void parseFormatted() {
+        // given
+        long id = new TransactionIdGenerator(3).nextId();
+
+        // when
+        long parsed = TransactionIdGenerator.parse(TransactionIdGenerator.format(id));
+
+        // then
+        assertEquals(id, parsed);
+        assertEquals(-1L, TransactionIdGenerator.parse("tx1"));
+        assertEquals(-1L, TransactionIdGenerator.parse("0000000000OIL"));
+    }
+
+    @Test
+    void invalidNodeId() {
+        assertThrows(IllegalArgumentException.class, () -> new TransactionIdGenerator(1024));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.account.service;
+
+import com.example.account.domain.Transaction;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionMetricsTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransactionMetrics transactionMetrics = new TransactionMetrics(meterRegistry);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private double used() {
+        return meterRegistry.get("account.transactions")
+                .tag("type", "USE").tag("result", "S").counter().count();
+    }
+
+    private static Transaction use() {
+        return Transaction.builder()
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.S)
+                .amount(1000L)
+                .build();
+    }
+
+    @Test
+    void recordAfterCommit() {
+        // given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        transactionMetrics.recordAfterCommit(use());
+
+        // then
+        assertEquals(0.0, used());
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(TransactionSynchronization::afterCommit);
+        assertEquals(1.0, used());
+    }
+
+    @Test
+    void rolledBackAttemptIsNotCounted() {
+        // given
+        // @Version 충돌로 rollback 된 시도와 다시 실행해서 commit 된 시도
+        TransactionSynchronizationManager.initSynchronization();
+        transactionMetrics.recordAfterCommit(use());
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        TransactionSynchronizationManager.initSynchronization();
+        transactionMetrics.recordAfterCommit(use());
+
+        // when
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(TransactionSynchronization::afterCommit);
+
+        // then
+        assertEquals(1.0, used());
+    }
+
+    @Test
+    void recordNowOutsideTransaction() {
+        // when
+        transactionMetrics.recordAfterCommit(use());
+
+        // then
+        assertEquals(1.0, used());
+    }
+}
@@ -6,24 +6,38 @@ import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
 import com.example.account.dto.AccountDto;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionWithCancel;
+import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRepository;
 import com.example.account.repository.TransactionRepository;
+import com.example.account.type.BalanceMode;
 import com.example.account.type.ErrorCode;
+import com.example.account.type.LockStrategyType;
 import jakarta.persistence.SqlResultSetMapping;
 import net.bytebuddy.asm.Advice;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -34,6 +48,7 @@ import static com.example.account.type.TransactionType.USE;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -45,8 +60,33 @@ class TransactionServiceTest {
     private AccountRepository accountRepository;
     @Mock
     private AccountUserRepository accountUserRepository;
-    @InjectMocks
+    @Mock
+    private LockStrategy lockStrategy;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private FailedTransactionWriter failedTransactionWriter;
+    @Mock
+    private AccountJournal accountJournal;
     private TransactionService transactionService;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        // 캐시는 실제 객체를 쓴다. 처음 조회는 항상 accountRepository 로 간다.
+        transactionService = new TransactionService(
+                transactionRepository,
+                accountUserRepository,
+                accountRepository,
+                lockStrategy,
+                transactionTemplate,
+                new AccountLookupCache(accountRepository, 100, Duration.ofMinutes(1)),
+                new TransactionIdGenerator(0),
+                new TransactionMetrics(meterRegistry),
+                failedTransactionWriter,
+                accountJournal,
+                new OptimisticRetryExecutor(BalanceMode.OPTIMISTIC, 3, 0, 0));
+    }
 
     @Test
     @DisplayName("성공적으로 거래 완료")
@@ -301,8 +341,8 @@ class TransactionServiceTest {
                 .balanceSnapshot(9000L)
                 .build();
 
-        given(transactionRepository.findByTransactionId(anyString()))
-                .willReturn(Optional.of(transaction));
+        given(transactionRepository.findWithCancelByTransactionId(anyString()))
+                .willReturn(Optional.of(new TransactionWithCancel(transaction, null)));
 
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.empty());
@@ -356,8 +396,8 @@ class TransactionServiceTest {
                 .balanceSnapshot(9000L)
                 .build();
 
-        given(transactionRepository.findByTransactionId(anyString()))
-                .willReturn(Optional.of(transaction));
+        given(transactionRepository.findWithCancelByTransactionId(anyString()))
+                .willReturn(Optional.of(new TransactionWithCancel(transaction, null)));
 
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.of(accountNotUsed));
@@ -403,8 +443,8 @@ class TransactionServiceTest {
                 .balanceSnapshot(9000L)
                 .build();
 
-        given(transactionRepository.findByTransactionId(anyString()))
-                .willReturn(Optional.of(transaction));
+        given(transactionRepository.findWithCancelByTransactionId(anyString()))
+                .willReturn(Optional.of(new TransactionWithCancel(transaction, null)));
 
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.of(account));
@@ -451,8 +491,8 @@ class TransactionServiceTest {
                 .balanceSnapshot(9000L)
                 .build();
 
-        given(transactionRepository.findByTransactionId(anyString()))
-                .willReturn(Optional.of(transaction));
+        given(transactionRepository.findWithCancelByTransactionId(anyString()))
+                .willReturn(Optional.of(new TransactionWithCancel(transaction, null)));
 
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.of(account));
@@ -476,7 +516,7 @@ class TransactionServiceTest {
     void cancelFailedTransactionNotFound() {
         // given
 
-        given(transactionRepository.findByTransactionId(anyString()))
+        given(transactionRepository.findWithCancelByTransactionId(anyString()))
                 .willReturn(Optional.empty());
 
         // when
@@ -489,6 +529,88 @@ class TransactionServiceTest {
     }
 
 
+    @Test
+    @DisplayName("이미 취소된 거래")
+    void cancelFailedAlreadyCancelled() {
+        // given
+        Account account = Account.builder()
+                .id(1L)
+                .balance(10000L)
+                .accountStatus(AccountStatus.IN_USE)
+                .accountNumber("1231231231")
+                .build();
+
+        Transaction transaction = Transaction.builder()
+                .account(account)
+                .transactionId("transactionId")
+                .transactionType(USE)
+                .transactionResultType(S)
+                .transactionAt(LocalDateTime.now())
+                .amount(1000L)
+                .build();
+
+        Transaction cancel = Transaction.builder()
+                .account(account)
+                .transactionId("transactionIdForCancel")
+                .transactionType(CANCEL)
+                .transactionResultType(S)
+                .transactionAt(LocalDateTime.now())
+                .amount(1000L)
+                .originalTransactionId("transactionId")
+                .build();
+
+        given(transactionRepository.findWithCancelByTransactionId(anyString()))
+                .willReturn(Optional.of(new TransactionWithCancel(transaction, cancel)));
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.cancelBalance("transactionId", "1231231231", 1000L));
+
+        // then
+        assertEquals(ErrorCode.TRANSACTION_ALREADY_CANCELLED, exception.getErrorCode());
+        verify(accountRepository, times(0)).findByAccountNumber(anyString());
+        verify(transactionRepository, times(0)).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("atomic 모드 - 동시에 들어온 취소는 원거래 id 유니크 인덱스에 걸린다")
+    void cancelAtomicDuplicated() {
+        // given
+        ReflectionTestUtils.setField(transactionService, "balanceMode", BalanceMode.ATOMIC);
+        Account account = Account.builder()
+                .id(1L)
+                .accountUser(AccountUser.builder().id(1L).build())
+                .balance(10000L)
+                .accountStatus(AccountStatus.IN_USE)
+                .accountNumber("1231231231")
+                .build();
+
+        Transaction transaction = Transaction.builder()
+                .account(account)
+                .transactionId("transactionId")
+                .transactionType(USE)
+                .transactionResultType(S)
+                .transactionAt(LocalDateTime.now())
+                .amount(1000L)
+                .build();
+
+        given(transactionRepository.findWithCancelByTransactionId(anyString()))
+                .willReturn(Optional.of(new TransactionWithCancel(transaction, null)));
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(accountRepository.findBalanceById(1L))
+                .willReturn(11000L);
+        given(transactionRepository.saveAndFlush(any()))
+                .willThrow(new DataIntegrityViolationException("ux_transaction_original_transaction_id"));
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.cancelBalance("transactionId", "1231231231", 1000L));
+
+        // then
+        assertEquals(ErrorCode.TRANSACTION_ALREADY_CANCELLED, exception.getErrorCode());
+    }
+
     @Test
     @DisplayName("성공적으로 거래 취소 완료")
     void successCancelBalance() {
@@ -515,13 +637,13 @@ class TransactionServiceTest {
                 .balanceSnapshot(9000L)
                 .build();
 
-        given(transactionRepository.findByTransactionId(anyString()))
-                .willReturn(Optional.of(transaction));
+        given(transactionRepository.findWithCancelByTransactionId(anyString()))
+                .willReturn(Optional.of(new TransactionWithCancel(transaction, null)));
 
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.of(account));
 
-        given(transactionRepository.save(any()))
+        given(transactionRepository.saveAndFlush(any()))
                 .willReturn(Transaction.builder()
                         .account(account)
                         .transactionId("transactionIdForCancel")
@@ -539,10 +661,11 @@ class TransactionServiceTest {
                 "transactionId", "1000000000", 1000L);
 
         // then
-        verify(transactionRepository, times(1)).save(captor.capture());
+        verify(transactionRepository, times(1)).saveAndFlush(captor.capture());
 
         assertEquals(1000L, captor.getValue().getAmount());
         assertEquals(10000L + 1000L, captor.getValue().getBalanceSnapshot());
+        assertEquals("transactionId", captor.getValue().getOriginalTransactionId());
 
         assertEquals(S, transactionDto.getTransactionResultType());
         assertEquals(CANCEL, transactionDto.getTransactionType());
@@ -554,20 +677,8 @@ class TransactionServiceTest {
     @Test
     void successQueryTransaction() {
         // given
-        AccountUser user = AccountUser.builder()
-                .id(12L)
-                .name("Pobi")
-                .build();
-
-        Account account = Account.builder()
-                .accountUser(user)
-                .balance(10000L)
-                .accountStatus(AccountStatus.IN_USE)
+        TransactionDto projection = TransactionDto.builder()
                 .accountNumber("1000000012")
-                .build();
-
-        Transaction transaction = Transaction.builder()
-                .account(account)
                 .transactionId("transactionId")
                 .transactionType(USE)
                 .transactionResultType(S)
@@ -576,8 +687,8 @@ class TransactionServiceTest {
                 .balanceSnapshot(9000L)
                 .build();
 
-        given(transactionRepository.findByTransactionId(anyString()))
-                .willReturn(Optional.of(transaction));
+        given(transactionRepository.findDtoByTransactionId(anyString()))
+                .willReturn(Optional.of(projection));
         // when
         TransactionDto transactionDto = transactionService.queryTransaction("id");
 
@@ -593,7 +704,7 @@ class TransactionServiceTest {
     void queryTransactionNotFound() {
         // given
 
-        given(transactionRepository.findByTransactionId(anyString()))
+        given(transactionRepository.findDtoByTransactionId(anyString()))
                 .willReturn(Optional.empty());
 
         // when
@@ -604,4 +715,361 @@ class TransactionServiceTest {
         // then
         assertEquals(exception.getErrorCode(), ErrorCode.TRANSACTION_NOT_FOUND);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("일괄 거래 - 계좌별 lock 한 번, 실패 건 포함")
+    void useBalanceBatch() {
+        // given
+        AccountUser user = AccountUser.builder()
+                .id(12L)
+                .name("Pobi")
+                .build();
+
+        Account account = Account.builder()
+                .accountUser(user)
+                .balance(10000L)
+                .accountStatus(AccountStatus.IN_USE)
+                .accountNumber("1000000012")
+                .build();
+
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> invocation
+                        .<TransactionCallback<?>>getArgument(0)
+                        .doInTransaction(null));
+        given(accountUserRepository.findById(12L))
+                .willReturn(Optional.of(user));
+        given(accountRepository.findByAccountNumber("1000000012"))
+                .willReturn(Optional.of(account));
+        given(accountRepository.findByAccountNumber("1000000099"))
+                .willReturn(Optional.empty());
+        given(transactionRepository.saveAll(anyList()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        List<UseBalance.Request> requests = Arrays.asList(
+                new UseBalance.Request(12L, "1000000012", 4000L),
+                new UseBalance.Request(12L, "1000000099", 1000L),
+                new UseBalance.Request(12L, "1000000012", 5000L),
+                new UseBalance.Request(12L, "1000000012", 5000L)
+        );
+
+        // when
+        List<TransactionDto> results = transactionService.useBalanceBatch(requests);
+
+        // then
+        verify(lockStrategy, times(1)).lock("1000000012");
+        verify(lockStrategy, times(1)).unlock("1000000012");
+        verify(accountRepository, times(1)).findByAccountNumber("1000000012");
+        verify(accountUserRepository, times(1)).findById(12L);
+
+        assertEquals(4, results.size());
+        assertEquals(S, results.get(0).getTransactionResultType());
+        assertEquals(6000L, results.get(0).getBalanceSnapshot());
+        assertEquals(F, results.get(1).getTransactionResultType());
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND, results.get(1).getErrorCode());
+        assertEquals(S, results.get(2).getTransactionResultType());
+        assertEquals(1000L, results.get(2).getBalanceSnapshot());
+        assertEquals(F, results.get(3).getTransactionResultType());
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, results.get(3).getErrorCode());
+        assertEquals(1000L, account.getBalance());
+        assertEquals(2.0, meterRegistry.get("account.transactions")
+                .tags("type", "USE", "result", "S").counter().count());
+        assertEquals(1.0, meterRegistry.get("account.transactions")
+                .tags("type", "USE", "result", "F").counter().count());
+        assertEquals(9000.0, meterRegistry.get("account.transaction.amount")
+                .tag("type", "USE").summary().totalAmount());
+        assertEquals(4.0, meterRegistry.get("account.transaction.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("일괄 거래 - single-writer 모드는 lock 없이 (작업 스레드에서 호출)")
+    void useBalanceAccountBatchSingleWriter() {
+        // given
+        ReflectionTestUtils.setField(transactionService, "balanceMode", BalanceMode.SINGLE_WRITER);
+        AccountUser user = AccountUser.builder()
+                .id(12L)
+                .name("Pobi")
+                .build();
+        Account account = Account.builder()
+                .accountUser(user)
+                .balance(10000L)
+                .accountStatus(AccountStatus.IN_USE)
+                .accountNumber("1000000012")
+                .build();
+
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> invocation
+                        .<TransactionCallback<?>>getArgument(0)
+                        .doInTransaction(null));
+        given(accountUserRepository.findById(12L))
+                .willReturn(Optional.of(user));
+        given(accountRepository.findByAccountNumber("1000000012"))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.saveAll(anyList()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        List<TransactionDto> results = transactionService.useBalanceAccountBatch("1000000012", List.of(
+                new UseBalance.Request(12L, "1000000012", 4000L),
+                new UseBalance.Request(12L, "1000000012", 7000L)));
+
+        // then
+        verify(lockStrategy, times(0)).lock(anyString());
+        assertEquals(S, results.get(0).getTransactionResultType());
+        assertEquals(6000L, results.get(0).getBalanceSnapshot());
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, results.get(1).getErrorCode());
+    }
+
+    @Test
+    @DisplayName("atomic 모드 - 조건부 UPDATE 로 차감")
+    void useBalanceAtomic() {
+        // given
+        ReflectionTestUtils.setField(transactionService, "balanceMode", BalanceMode.ATOMIC);
+        AccountUser user = AccountUser.builder()
+                .id(12L)
+                .name("Pobi")
+                .build();
+        Account account = Account.builder()
+                .id(7L)
+                .accountUser(user)
+                .balance(10000L)
+                .accountStatus(AccountStatus.IN_USE)
+                .accountNumber("1000000012")
+                .build();
+
+        given(accountUserRepository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(accountRepository.debitBalance(eq(7L), eq(1000L), any()))
+                .willReturn(1);
+        given(accountRepository.getReferenceById(7L))
+                .willReturn(account);
+        given(accountRepository.findBalanceById(7L))
+                .willReturn(9000L);
+        given(transactionRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        TransactionDto transactionDto = transactionService.useBalance(12L, "1000000012", 1000L);
+
+        // then
+        assertEquals(S, transactionDto.getTransactionResultType());
+        assertEquals(9000L, transactionDto.getBalanceSnapshot());
+        assertEquals("1000000012", transactionDto.getAccountNumber());
+        // 엔티티의 잔액은 건드리지 않는다.
+        assertEquals(10000L, account.getBalance());
+    }
+
+    @Test
+    @DisplayName("optimistic 모드 - 이벤트보다 계좌 UPDATE 를 먼저 flush")
+    void useBalanceOptimisticFlushAccountFirst() {
+        // given
+        ReflectionTestUtils.setField(transactionService, "balanceMode", BalanceMode.OPTIMISTIC);
+        AccountUser user = AccountUser.builder()
+                .id(12L)
+                .name("Pobi")
+                .build();
+        Account account = Account.builder()
+                .id(7L)
+                .accountUser(user)
+                .balance(10000L)
+                .accountStatus(AccountStatus.IN_USE)
+                .accountNumber("1000000012")
+                .build();
+
+        given(accountUserRepository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        transactionService.useBalance(12L, "1000000012", 1000L);
+
+        // then
+        // 같은 순번을 쓴 동시 요청은 이벤트 unique 제약이 아니라 @Version 충돌로 실패해야 재시도된다.
+        InOrder inOrder = inOrder(accountRepository, accountJournal);
+        inOrder.verify(accountRepository).flush();
+        inOrder.verify(accountJournal).append(eq(7L), eq(1L), any(), eq(1000L), eq(9000L), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("일괄 거래 - atomic 모드는 lock 없이 조건부 UPDATE 로 차감")
+    void useBalanceBatchAtomic() {
+        // given
+        ReflectionTestUtils.setField(transactionService, "balanceMode", BalanceMode.ATOMIC);
+        AccountUser user = AccountUser.builder()
+                .id(12L)
+                .name("Pobi")
+                .build();
+        Account account = Account.builder()
+                .id(7L)
+                .accountUser(user)
+                .balance(10000L)
+                .accountStatus(AccountStatus.IN_USE)
+                .accountNumber("1000000012")
+                .build();
+
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> invocation
+                        .<TransactionCallback<?>>getArgument(0)
+                        .doInTransaction(null));
+        given(accountUserRepository.findById(12L))
+                .willReturn(Optional.of(user));
+        given(accountRepository.findByAccountNumber("1000000012"))
+                .willReturn(Optional.of(account));
+        given(accountRepository.getReferenceById(7L))
+                .willReturn(account);
+        given(accountRepository.debitBalance(eq(7L), eq(4000L), any()))
+                .willReturn(1);
+        given(accountRepository.debitBalance(eq(7L), eq(7000L), any()))
+                .willReturn(0);
+        given(accountRepository.findById(7L))
+                .willReturn(Optional.of(account));
+        given(accountRepository.findBalanceById(7L))
+                .willReturn(6000L);
+        given(transactionRepository.saveAll(anyList()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        List<TransactionDto> results = transactionService.useBalanceBatch(List.of(
+                new UseBalance.Request(12L, "1000000012", 4000L),
+                new UseBalance.Request(12L, "1000000012", 7000L)));
+
+        // then
+        verify(lockStrategy, times(0)).lock(anyString());
+        assertEquals(S, results.get(0).getTransactionResultType());
+        assertEquals(6000L, results.get(0).getBalanceSnapshot());
+        assertEquals("1000000012", results.get(0).getAccountNumber());
+        assertEquals(F, results.get(1).getTransactionResultType());
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, results.get(1).getErrorCode());
+        // 엔티티의 잔액은 건드리지 않는다.
+        assertEquals(10000L, account.getBalance());
+    }
+
+    @Test
+    @DisplayName("일괄 거래 - optimistic 모드는 lock 없이 충돌하면 chunk 를 다시")
+    void useBalanceBatchOptimisticRetry() {
+        // given
+        ReflectionTestUtils.setField(transactionService, "balanceMode", BalanceMode.OPTIMISTIC);
+        AccountUser user = AccountUser.builder()
+                .id(12L)
+                .name("Pobi")
+                .build();
+        Account account = Account.builder()
+                .accountUser(user)
+                .balance(10000L)
+                .accountStatus(AccountStatus.IN_USE)
+                .accountNumber("1000000012")
+                .build();
+
+        // 처음 commit 은 다른 요청과 충돌한다.
+        given(transactionTemplate.execute(any()))
+                .willThrow(new ObjectOptimisticLockingFailureException("Account", 7L))
+                .willAnswer(invocation -> invocation
+                        .<TransactionCallback<?>>getArgument(0)
+                        .doInTransaction(null));
+        given(accountUserRepository.findById(12L))
+                .willReturn(Optional.of(user));
+        given(accountRepository.findByAccountNumber("1000000012"))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.saveAll(anyList()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        List<TransactionDto> results = transactionService.useBalanceBatch(List.of(
+                new UseBalance.Request(12L, "1000000012", 4000L)));
+
+        // then
+        verify(lockStrategy, times(0)).lock(anyString());
+        verify(transactionTemplate, times(2)).execute(any());
+        assertEquals(S, results.get(0).getTransactionResultType());
+        assertEquals(6000L, results.get(0).getBalanceSnapshot());
+    }
+
+    @Test
+    @DisplayName("atomic 모드 - 잔액 부족")
+    void useBalanceAtomicExceed() {
+        // given
+        ReflectionTestUtils.setField(transactionService, "balanceMode", BalanceMode.ATOMIC);
+        AccountUser user = AccountUser.builder()
+                .id(12L)
+                .name("Pobi")
+                .build();
+        Account account = Account.builder()
+                .id(7L)
+                .accountUser(user)
+                .balance(100L)
+                .accountStatus(AccountStatus.IN_USE)
+                .accountNumber("1000000012")
+                .build();
+
+        given(accountUserRepository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(accountRepository.debitBalance(eq(7L), eq(1000L), any()))
+                .willReturn(0);
+        given(accountRepository.findById(7L))
+                .willReturn(Optional.of(account));
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(12L, "1000000012", 1000L));
+
+        // then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+        verify(transactionRepository, times(0)).save(any());
+    }
+
+    @Test
+    @DisplayName("database lock - 계좌를 FOR UPDATE 로 읽어서 차감")
+    void useBalanceDatabaseLock() {
+        // given
+        ReflectionTestUtils.setField(transactionService, "lockStrategyType", LockStrategyType.DATABASE);
+        AccountUser user = AccountUser.builder()
+                .id(12L)
+                .name("Pobi")
+                .build();
+        Account account = Account.builder()
+                .id(7L)
+                .accountUser(user)
+                .balance(10000L)
+                .accountStatus(AccountStatus.IN_USE)
+                .accountNumber("1000000012")
+                .build();
+
+        given(accountUserRepository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountRepository.findByAccountNumberForUpdate("1000000012"))
+                .willReturn(Optional.of(account));
+        given(accountRepository.findByIdForUpdate(7L))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        transactionService.useBalance(12L, "1000000012", 1000L);
+        TransactionDto transactionDto = transactionService.useBalance(12L, "1000000012", 1000L);
+
+        // then
+        assertEquals(8000L, transactionDto.getBalanceSnapshot());
+        // 두 번째는 캐시된 id 로 row lock 을 잡는다.
+        verify(accountRepository, times(1)).findByAccountNumberForUpdate("1000000012");
+        verify(accountRepository, times(1)).findByIdForUpdate(7L);
+        verify(accountRepository, times(0)).findByAccountNumber(anyString());
+    }
+
+    @Test
+    @DisplayName("실패 거래 내역은 write-behind 큐로")
+    void saveFailedUseTransaction() {
+        // when
+        transactionService.saveFailedUseTransaction("1000000012", 1000L);
+
+        // then
+        verify(failedTransactionWriter, times(1)).write("1000000012", 1000L);
+        verify(transactionRepository, times(0)).save(any());
+        verify(accountRepository, times(0)).findByAccountNumber(anyString());
+    }
+}